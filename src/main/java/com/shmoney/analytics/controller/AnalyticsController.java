@@ -1,6 +1,9 @@
 package com.shmoney.analytics.controller;
 
 import com.shmoney.analytics.dto.AnalyticsResponse;
+import com.shmoney.analytics.dto.AnalyticsTimeseriesResponse;
+import com.shmoney.analytics.model.AnalyticsGranularity;
+import com.shmoney.analytics.service.AnalyticsRollupService;
 import com.shmoney.analytics.service.AnalyticsService;
 import com.shmoney.auth.security.AuthenticatedUser;
 import com.shmoney.auth.security.CurrentUserProvider;
@@ -13,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
 
@@ -23,11 +27,14 @@ import java.util.List;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final AnalyticsRollupService analyticsRollupService;
     private final CurrentUserProvider currentUserProvider;
 
     public AnalyticsController(AnalyticsService analyticsService,
+                               AnalyticsRollupService analyticsRollupService,
                                CurrentUserProvider currentUserProvider) {
         this.analyticsService = analyticsService;
+        this.analyticsRollupService = analyticsRollupService;
         this.currentUserProvider = currentUserProvider;
     }
 
@@ -44,4 +51,20 @@ public class AnalyticsController {
         AuthenticatedUser current = currentUserProvider.requireCurrentUser();
         return analyticsService.getAnalytics(current.id(), from, to, categoryIds);
     }
+
+    @Operation(summary = "Динамика доходов и расходов по дням, неделям или месяцам")
+    @GetMapping("/timeseries")
+    public AnalyticsTimeseriesResponse getTimeseries(@RequestParam(required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                     LocalDate from,
+                                                     @RequestParam(required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                                     LocalDate to,
+                                                     @RequestParam(required = false)
+                                                     AnalyticsGranularity granularity,
+                                                     @RequestParam(required = false, name = "categoryIds")
+                                                     List<Long> categoryIds) {
+        AuthenticatedUser current = currentUserProvider.requireCurrentUser();
+        return analyticsRollupService.getTimeseries(current.id(), from, to, granularity, categoryIds);
+    }
 }
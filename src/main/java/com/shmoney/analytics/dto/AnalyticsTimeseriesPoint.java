@@ -0,0 +1,13 @@
+package com.shmoney.analytics.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record AnalyticsTimeseriesPoint(
+        LocalDate bucketStart,
+        LocalDate bucketEnd,
+        BigDecimal totalExpense,
+        BigDecimal totalIncome,
+        long transactionCount
+) {
+}
@@ -0,0 +1,15 @@
+package com.shmoney.analytics.dto;
+
+import com.shmoney.analytics.model.AnalyticsGranularity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record AnalyticsTimeseriesResponse(
+        LocalDate from,
+        LocalDate to,
+        AnalyticsGranularity granularity,
+        String currencyCode,
+        List<AnalyticsTimeseriesPoint> points
+) {
+}
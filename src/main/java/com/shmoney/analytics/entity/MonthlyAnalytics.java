@@ -50,6 +50,10 @@ public class MonthlyAnalytics {
     @Column(name = "expense_breakdown", columnDefinition = "TEXT")
     private List<CategoryBreakdown> expenseBreakdown = new ArrayList<>();
 
+    @Convert(converter = CategoryBreakdownConverter.class)
+    @Column(name = "income_breakdown", columnDefinition = "TEXT")
+    private List<CategoryBreakdown> incomeBreakdown = new ArrayList<>();
+
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
@@ -140,6 +144,14 @@ public class MonthlyAnalytics {
         this.expenseBreakdown = expenseBreakdown;
     }
 
+    public List<CategoryBreakdown> getIncomeBreakdown() {
+        return incomeBreakdown;
+    }
+
+    public void setIncomeBreakdown(List<CategoryBreakdown> incomeBreakdown) {
+        this.incomeBreakdown = incomeBreakdown;
+    }
+
     public OffsetDateTime getCreatedAt() {
         return createdAt;
     }
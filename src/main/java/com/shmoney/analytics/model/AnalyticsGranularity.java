@@ -0,0 +1,7 @@
+package com.shmoney.analytics.model;
+
+public enum AnalyticsGranularity {
+    DAY,
+    WEEK,
+    MONTH
+}
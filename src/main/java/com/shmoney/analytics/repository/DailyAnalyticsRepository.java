@@ -0,0 +1,46 @@
+package com.shmoney.analytics.repository;
+
+import com.shmoney.analytics.entity.DailyAnalytics;
+import com.shmoney.transaction.category.entity.CategoryTransactionType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface DailyAnalyticsRepository extends JpaRepository<DailyAnalytics, Long> {
+
+    Optional<DailyAnalytics> findByUserIdAndDayAndCategoryIdAndTypeAndCurrencyCode(Long userId,
+                                                                                  LocalDate day,
+                                                                                  Long categoryId,
+                                                                                  CategoryTransactionType type,
+                                                                                  String currencyCode);
+
+    List<DailyAnalytics> findAllByUserIdAndDayBetween(Long userId, LocalDate from, LocalDate to);
+
+    List<DailyAnalytics> findAllByUserIdAndDayBetweenAndCategoryIdIn(Long userId,
+                                                                     LocalDate from,
+                                                                     LocalDate to,
+                                                                     Collection<Long> categoryIds);
+
+    @Modifying
+    @Query("DELETE FROM DailyAnalytics d WHERE d.userId = :userId")
+    void deleteAllForUser(@Param("userId") Long userId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM analytics_daily_rollup_state WHERE user_id = :userId)",
+            nativeQuery = true)
+    boolean isBuilt(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO analytics_daily_rollup_state (user_id) VALUES (:userId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    void markBuilt(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM analytics_daily_rollup_state WHERE user_id = :userId", nativeQuery = true)
+    void clearBuilt(@Param("userId") Long userId);
+}
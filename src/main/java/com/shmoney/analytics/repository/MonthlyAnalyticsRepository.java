@@ -2,8 +2,12 @@ package com.shmoney.analytics.repository;
 
 import com.shmoney.analytics.entity.MonthlyAnalytics;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +17,25 @@ public interface MonthlyAnalyticsRepository extends JpaRepository<MonthlyAnalyti
 
     List<MonthlyAnalytics> findAllByUserId(Long userId);
 
-    void deleteByUserIdAndPeriodStart(Long userId, OffsetDateTime periodStart);
+    Optional<MonthlyAnalytics> findFirstByUserIdAndPeriodStartLessThanEqualAndPeriodEndGreaterThanEqual(
+            Long userId,
+            OffsetDateTime periodStart,
+            OffsetDateTime periodEnd
+    );
+
+    @Query("SELECT m.userId FROM MonthlyAnalytics m WHERE m.periodStart = :periodStart AND m.userId IN :userIds")
+    List<Long> findUserIdsWithSummary(@Param("periodStart") OffsetDateTime periodStart,
+                                      @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM MonthlyAnalytics m WHERE m.userId = :userId AND m.periodStart <= :to AND m.periodEnd >= :from")
+    void deleteOverlapping(@Param("userId") Long userId,
+                           @Param("from") OffsetDateTime from,
+                           @Param("to") OffsetDateTime to);
+
+    @Query(value = """
+            SELECT 1
+            FROM (SELECT pg_advisory_xact_lock(hashtextextended('analytics_monthly_summary:' || :userId, 0))) AS user_lock
+            """, nativeQuery = true)
+    Integer lockUserSummaries(@Param("userId") Long userId);
 }
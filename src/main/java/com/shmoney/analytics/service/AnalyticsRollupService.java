@@ -0,0 +1,310 @@
+package com.shmoney.analytics.service;
+
+import com.shmoney.analytics.dto.AnalyticsTimeseriesPoint;
+import com.shmoney.analytics.dto.AnalyticsTimeseriesResponse;
+import com.shmoney.analytics.entity.DailyAnalytics;
+import com.shmoney.analytics.model.AnalyticsGranularity;
+import com.shmoney.analytics.repository.DailyAnalyticsRepository;
+import com.shmoney.analytics.repository.MonthlyAnalyticsRepository;
+import com.shmoney.budget.service.BudgetSpendingService.TransactionSnapshot;
+import com.shmoney.common.aggregation.AmountTotal;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.currency.service.RateTable;
+import com.shmoney.settings.entity.AppSettings;
+import com.shmoney.settings.service.AppSettingsProvider;
+import com.shmoney.transaction.category.entity.CategoryTransactionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-day, per-category totals of category transactions in their original currency. A user's rollup is
+ * built from the transactions on first use and maintained on every write after that, under the same
+ * per-user lock as the monthly summaries.
+ */
+@Service
+@Transactional
+public class AnalyticsRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsRollupService.class);
+
+    private static final int AMOUNT_SCALE = 2;
+    private static final int MAX_BUCKETS = 1_000;
+
+    private final DailyAnalyticsRepository dailyAnalyticsRepository;
+    private final MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+    private final EncryptedAmountAggregator amountAggregator;
+    private final ExchangeRateService exchangeRateService;
+    private final AppSettingsProvider appSettingsProvider;
+
+    public AnalyticsRollupService(DailyAnalyticsRepository dailyAnalyticsRepository,
+                                  MonthlyAnalyticsRepository monthlyAnalyticsRepository,
+                                  EncryptedAmountAggregator amountAggregator,
+                                  ExchangeRateService exchangeRateService,
+                                  AppSettingsProvider appSettingsProvider) {
+        this.dailyAnalyticsRepository = dailyAnalyticsRepository;
+        this.monthlyAnalyticsRepository = monthlyAnalyticsRepository;
+        this.amountAggregator = amountAggregator;
+        this.exchangeRateService = exchangeRateService;
+        this.appSettingsProvider = appSettingsProvider;
+    }
+
+    public AnalyticsTimeseriesResponse getTimeseries(Long userId,
+                                                     LocalDate from,
+                                                     LocalDate to,
+                                                     AnalyticsGranularity granularity,
+                                                     List<Long> categoryIds) {
+        if ((from == null) != (to == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Необходимо указать обе даты диапазона или ни одной");
+        }
+        LocalDate rangeFrom = from == null ? today().withDayOfMonth(1) : from;
+        LocalDate rangeTo = to == null ? rangeFrom.plusMonths(1).minusDays(1) : to;
+        if (rangeTo.isBefore(rangeFrom)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата окончания раньше даты начала");
+        }
+        AnalyticsGranularity resolvedGranularity = granularity == null ? AnalyticsGranularity.DAY : granularity;
+
+        Map<LocalDate, Bucket> buckets = new LinkedHashMap<>();
+        for (LocalDate start = bucketStart(rangeFrom, resolvedGranularity);
+             !start.isAfter(rangeTo);
+             start = nextBucketStart(start, resolvedGranularity)) {
+            if (buckets.size() == MAX_BUCKETS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Слишком много интервалов для выбранного периода, укажите более крупный шаг");
+            }
+            buckets.put(start, new Bucket());
+        }
+
+        ensureBuilt(userId);
+        List<DailyAnalytics> rows = categoryIds == null || categoryIds.isEmpty()
+                ? dailyAnalyticsRepository.findAllByUserIdAndDayBetween(userId, rangeFrom, rangeTo)
+                : dailyAnalyticsRepository.findAllByUserIdAndDayBetweenAndCategoryIdIn(
+                userId, rangeFrom, rangeTo, categoryIds);
+        for (DailyAnalytics row : rows) {
+            buckets.get(bucketStart(row.getDay(), resolvedGranularity)).add(row);
+        }
+
+        String targetCurrency = resolveMainCurrency();
+        List<AnalyticsTimeseriesPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach((start, bucket) -> {
+            LocalDate end = nextBucketStart(start, resolvedGranularity).minusDays(1);
+            points.add(new AnalyticsTimeseriesPoint(
+                    start.isBefore(rangeFrom) ? rangeFrom : start,
+                    end.isAfter(rangeTo) ? rangeTo : end,
+                    bucket.total(CategoryTransactionType.EXPENSE, targetCurrency),
+                    bucket.total(CategoryTransactionType.INCOME, targetCurrency),
+                    bucket.transactionCount
+            ));
+        });
+        return new AnalyticsTimeseriesResponse(rangeFrom, rangeTo, resolvedGranularity, targetCurrency, points);
+    }
+
+    public void apply(TransactionSnapshot snapshot, int sign) {
+        if (snapshot.categoryId() == null || !dailyAnalyticsRepository.isBuilt(snapshot.userId())) {
+            return;
+        }
+        BigDecimal amount = normalize(snapshot.amount());
+        applyTotals(snapshot.userId(), rollupKey(snapshot), sign < 0 ? amount.negate() : amount, sign);
+    }
+
+    /**
+     * Adds many new transactions of one user, updating each day, category, type and currency row once.
+     */
+    public void applyCreated(Long userId, List<TransactionSnapshot> snapshots) {
+        if (!dailyAnalyticsRepository.isBuilt(userId)) {
+            return;
+        }
+        Map<RollupKey, RollupDelta> totals = new LinkedHashMap<>();
+        for (TransactionSnapshot snapshot : snapshots) {
+            if (snapshot.categoryId() == null) {
+                continue;
+            }
+            totals.merge(rollupKey(snapshot), new RollupDelta(normalize(snapshot.amount()), 1), RollupDelta::plus);
+        }
+        for (Map.Entry<RollupKey, RollupDelta> entry : totals.entrySet()) {
+            if (!applyTotals(userId, entry.getKey(), entry.getValue().amount(), entry.getValue().count())) {
+                return;
+            }
+        }
+    }
+
+    // Returns false when the rollup turned out inconsistent and was reset instead.
+    private boolean applyTotals(Long userId, RollupKey key, BigDecimal amountDelta, long countDelta) {
+        CategoryTransactionType type = CategoryTransactionType.valueOf(key.type());
+        DailyAnalytics row = dailyAnalyticsRepository.findByUserIdAndDayAndCategoryIdAndTypeAndCurrencyCode(
+                userId, key.day(), key.categoryId(), type, key.currencyCode()
+        ).orElse(null);
+        if (row == null) {
+            if (countDelta < 0) {
+                reset(userId);
+                return false;
+            }
+            row = new DailyAnalytics();
+            row.setUserId(userId);
+            row.setDay(key.day());
+            row.setCategoryId(key.categoryId());
+            row.setType(type);
+            row.setCurrencyCode(key.currencyCode());
+        }
+
+        BigDecimal value = normalize(row.getAmount()).add(amountDelta);
+        long count = row.getTransactionCount() + countDelta;
+        if (count < 0 || value.signum() < 0 || (count == 0 && value.signum() != 0)) {
+            reset(userId);
+            return false;
+        }
+        if (count == 0) {
+            dailyAnalyticsRepository.delete(row);
+            return true;
+        }
+        row.setAmount(value);
+        row.setTransactionCount(count);
+        dailyAnalyticsRepository.save(row);
+        return true;
+    }
+
+    private RollupKey rollupKey(TransactionSnapshot snapshot) {
+        return new RollupKey(toDay(snapshot.occurredAt()), snapshot.categoryId(), snapshot.type().name(),
+                snapshot.currencyCode());
+    }
+
+    private void ensureBuilt(Long userId) {
+        if (dailyAnalyticsRepository.isBuilt(userId)) {
+            return;
+        }
+        monthlyAnalyticsRepository.lockUserSummaries(userId);
+        if (dailyAnalyticsRepository.isBuilt(userId)) {
+            return;
+        }
+        Map<RollupKey, AmountTotal> totals = amountAggregator.aggregateCategoryTransactions(
+                userId,
+                null,
+                null,
+                null,
+                row -> new RollupKey(toDay(row.occurredAt()), row.groupId(), row.type(), row.currencyCode())
+        );
+        List<DailyAnalytics> rows = new ArrayList<>(totals.size());
+        totals.forEach((key, total) -> {
+            DailyAnalytics row = new DailyAnalytics();
+            row.setUserId(userId);
+            row.setDay(key.day());
+            row.setCategoryId(key.categoryId());
+            row.setType(CategoryTransactionType.valueOf(key.type()));
+            row.setCurrencyCode(key.currencyCode());
+            row.setAmount(total.amount());
+            row.setTransactionCount(total.count());
+            rows.add(row);
+        });
+        dailyAnalyticsRepository.saveAll(rows);
+        dailyAnalyticsRepository.markBuilt(userId);
+    }
+
+    private void reset(Long userId) {
+        log.warn("Daily analytics rollup for user={} is inconsistent and will be rebuilt", userId);
+        dailyAnalyticsRepository.deleteAllForUser(userId);
+        dailyAnalyticsRepository.clearBuilt(userId);
+    }
+
+    private LocalDate bucketStart(LocalDate day, AnalyticsGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private LocalDate nextBucketStart(LocalDate start, AnalyticsGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    // Days are taken in the server zone, like the monthly summary boundaries.
+    private LocalDate toDay(OffsetDateTime timestamp) {
+        return timestamp.atZoneSameInstant(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(ZoneId.systemDefault());
+    }
+
+    // Rows are converted at the rate of their own day.
+    private BigDecimal convert(BigDecimal amount, String fromCurrency, String toCurrency, LocalDate day) {
+        if (fromCurrency == null || fromCurrency.equalsIgnoreCase(toCurrency)) {
+            return normalize(amount);
+        }
+        RateTable rates = exchangeRateService.snapshotAsOf(day);
+        return normalize(rates.convert(amount, fromCurrency, toCurrency));
+    }
+
+    private BigDecimal normalize(BigDecimal value) {
+        if (value == null) {
+            return BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        }
+        return value.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private String resolveMainCurrency() {
+        AppSettings settings = appSettingsProvider.getOrCreate();
+        return settings.getMainCurrency() == null
+                ? "KZT"
+                : settings.getMainCurrency().toUpperCase(Locale.ROOT);
+    }
+
+    private record RollupKey(LocalDate day, Long categoryId, String type, String currencyCode) {
+    }
+
+    private record RollupDelta(BigDecimal amount, long count) {
+
+        RollupDelta plus(RollupDelta other) {
+            return new RollupDelta(amount.add(other.amount), count + other.count);
+        }
+    }
+
+    private record TotalKey(CategoryTransactionType type, String currencyCode, LocalDate day) {
+    }
+
+    // Amounts are summed per currency and day first, so each bucket converts once per currency and day.
+    private final class Bucket {
+        private final Map<TotalKey, BigDecimal> amounts = new HashMap<>();
+        private long transactionCount;
+
+        void add(DailyAnalytics row) {
+            amounts.merge(new TotalKey(row.getType(), row.getCurrencyCode(), row.getDay()), normalize(row.getAmount()),
+                    BigDecimal::add);
+            transactionCount += row.getTransactionCount();
+        }
+
+        BigDecimal total(CategoryTransactionType type, String targetCurrency) {
+            BigDecimal total = normalize(BigDecimal.ZERO);
+            for (Map.Entry<TotalKey, BigDecimal> entry : amounts.entrySet()) {
+                if (entry.getKey().type() == type) {
+                    TotalKey key = entry.getKey();
+                    total = total.add(convert(entry.getValue(), key.currencyCode(), targetCurrency, key.day()));
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -6,16 +6,18 @@ import com.shmoney.analytics.dto.CategoryAnalyticsItem;
 import com.shmoney.analytics.entity.MonthlyAnalytics;
 import com.shmoney.analytics.model.CategoryBreakdown;
 import com.shmoney.analytics.repository.MonthlyAnalyticsRepository;
+import com.shmoney.budget.service.BudgetSpendingService.TransactionSnapshot;
+import com.shmoney.category.entity.Category;
+import com.shmoney.category.repository.CategoryRepository;
+import com.shmoney.common.aggregation.AmountTotal;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
 import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.currency.service.RateTable;
 import com.shmoney.settings.entity.AppSettings;
 import com.shmoney.settings.service.AppSettingsProvider;
 import com.shmoney.transaction.category.entity.CategoryTransaction;
 import com.shmoney.transaction.category.entity.CategoryTransactionType;
-import com.shmoney.transaction.category.repository.CategoryTransactionRepository;
-import com.shmoney.transaction.category.repository.CategoryTransactionSpecifications;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -23,11 +25,19 @@ import org.springframework.web.server.ResponseStatusException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.OffsetDateTime;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,18 +48,24 @@ public class AnalyticsService {
     private static final int AMOUNT_SCALE = 2;
 
     private final MonthlyAnalyticsRepository monthlyAnalyticsRepository;
-    private final CategoryTransactionRepository categoryTransactionRepository;
     private final ExchangeRateService exchangeRateService;
     private final AppSettingsProvider appSettingsProvider;
+    private final CategoryRepository categoryRepository;
+    private final EncryptedAmountAggregator amountAggregator;
+    private final AnalyticsRollupService analyticsRollupService;
 
     public AnalyticsService(MonthlyAnalyticsRepository monthlyAnalyticsRepository,
-                            CategoryTransactionRepository categoryTransactionRepository,
                             ExchangeRateService exchangeRateService,
-                            AppSettingsProvider appSettingsProvider) {
+                            AppSettingsProvider appSettingsProvider,
+                            CategoryRepository categoryRepository,
+                            EncryptedAmountAggregator amountAggregator,
+                            AnalyticsRollupService analyticsRollupService) {
         this.monthlyAnalyticsRepository = monthlyAnalyticsRepository;
-        this.categoryTransactionRepository = categoryTransactionRepository;
         this.exchangeRateService = exchangeRateService;
         this.appSettingsProvider = appSettingsProvider;
+        this.categoryRepository = categoryRepository;
+        this.amountAggregator = amountAggregator;
+        this.analyticsRollupService = analyticsRollupService;
     }
 
     public AnalyticsResponse getAnalytics(Long userId,
@@ -58,52 +74,28 @@ public class AnalyticsService {
                                           List<Long> categoryIds) {
         AnalyticsPeriod period = resolvePeriod(from, to);
         String targetCurrency = resolveMainCurrency();
-        boolean hasFilters = from != null || to != null || (categoryIds != null && !categoryIds.isEmpty());
-        MonthlyAnalytics storedSummary = null;
-
-        if (!hasFilters) {
-            storedSummary = monthlyAnalyticsRepository
-                    .findByUserIdAndPeriodStart(userId, period.from())
-                    .orElse(null);
-        }
-
-        if (storedSummary != null) {
-            boolean countsMissing = storedSummary.getExpenseBreakdown().stream()
-                    .anyMatch(entry -> entry.transactionCount() <= 0
-                            && entry.amount() != null
-                            && entry.amount().compareTo(BigDecimal.ZERO) > 0);
-            if (countsMissing) {
-                monthlyAnalyticsRepository.deleteByUserIdAndPeriodStart(userId, period.from());
-                storedSummary = null;
+        Set<Long> categoryFilter = categoryIds == null || categoryIds.isEmpty() ? null : new HashSet<>(categoryIds);
+
+        // Whole calendar months come from stored summaries, only the partial edge months are scanned.
+        monthlyAnalyticsRepository.lockUserSummaries(userId);
+        List<ComputationResult> parts = new ArrayList<>();
+        OffsetDateTime monthFrom = monthStart(period.from());
+        while (!monthFrom.isAfter(period.to())) {
+            OffsetDateTime monthTo = monthEnd(monthFrom);
+            if (monthFrom.isBefore(period.from()) || monthTo.isAfter(period.to())) {
+                AnalyticsPeriod edge = new AnalyticsPeriod(
+                        monthFrom.isBefore(period.from()) ? period.from() : monthFrom,
+                        monthTo.isAfter(period.to()) ? period.to() : monthTo
+                );
+                parts.add(compute(userId, edge, categoryIds, targetCurrency));
+            } else {
+                AnalyticsPeriod month = new AnalyticsPeriod(monthFrom, monthTo);
+                parts.add(restrict(summarizeMonth(userId, month, targetCurrency), categoryFilter));
             }
+            monthFrom = monthTo.plusNanos(1);
         }
 
-        if (storedSummary != null) {
-            List<CategoryAnalyticsItem> categories = buildCategoryItems(
-                    storedSummary.getExpenseBreakdown(),
-                    storedSummary.getTotalExpense()
-            );
-            long totalExpenseTransactions = categories.stream()
-                    .mapToLong(CategoryAnalyticsItem::transactionCount)
-                    .sum();
-            List<CategoryAnalyticsItem> top = categories.stream()
-                    .sorted(Comparator.comparing(CategoryAnalyticsItem::amount).reversed())
-                    .limit(3)
-                    .toList();
-            return new AnalyticsResponse(
-                    new AnalyticsPeriod(storedSummary.getPeriodStart(), storedSummary.getPeriodEnd()),
-                    storedSummary.getCurrencyCode(),
-                    storedSummary.getTotalExpense(),
-                    storedSummary.getTotalIncome(),
-                    storedSummary.getCashFlowAmount(),
-                    storedSummary.getCashFlowPercent(),
-                    totalExpenseTransactions,
-                    categories,
-                    top
-            );
-        }
-
-        ComputationResult result = compute(userId, period, categoryIds, targetCurrency);
+        ComputationResult result = merge(parts);
         List<CategoryAnalyticsItem> categories = buildCategoryItems(result.expenseBreakdown(), result.totalExpense());
         List<CategoryAnalyticsItem> topCategories = categories.stream()
                 .sorted(Comparator.comparing(CategoryAnalyticsItem::amount).reversed())
@@ -112,21 +104,6 @@ public class AnalyticsService {
         BigDecimal cashFlowAmount = result.totalIncome().subtract(result.totalExpense());
         BigDecimal cashFlowPercent = calculateCashFlowPercent(result.totalIncome(), result.totalExpense());
 
-        if (!hasFilters && result.hasTransactions()) {
-            monthlyAnalyticsRepository.deleteByUserIdAndPeriodStart(userId, period.from());
-            MonthlyAnalytics entity = new MonthlyAnalytics();
-            entity.setUserId(userId);
-            entity.setPeriodStart(period.from());
-            entity.setPeriodEnd(period.to());
-            entity.setCurrencyCode(targetCurrency);
-            entity.setTotalExpense(result.totalExpense());
-            entity.setTotalIncome(result.totalIncome());
-            entity.setCashFlowAmount(cashFlowAmount);
-            entity.setCashFlowPercent(cashFlowPercent);
-            entity.setExpenseBreakdown(result.expenseBreakdown());
-            monthlyAnalyticsRepository.save(entity);
-        }
-
         return new AnalyticsResponse(
                 period,
                 targetCurrency,
@@ -140,139 +117,373 @@ public class AnalyticsService {
         );
     }
 
-    public void recalculateAllSummaries(String newCurrency) {
-        String target = newCurrency == null ? resolveMainCurrency() : newCurrency.toUpperCase(Locale.ROOT);
-        List<MonthlyAnalytics> summaries = monthlyAnalyticsRepository.findAll();
-        for (MonthlyAnalytics summary : summaries) {
-            String current = summary.getCurrencyCode();
-            if (current != null && current.equalsIgnoreCase(target)) {
+    /**
+     * Computes summaries for the users that have none for the given month yet. The entities are returned
+     * unsaved; the user locks taken here are held until the caller's transaction ends.
+     */
+    public List<MonthlyAnalytics> buildMissingSummaries(List<Long> userIds, AnalyticsPeriod month) {
+        String currency = resolveMainCurrency();
+        Set<Long> existing = new HashSet<>(monthlyAnalyticsRepository.findUserIdsWithSummary(month.from(), userIds));
+        List<MonthlyAnalytics> summaries = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (existing.contains(userId)) {
                 continue;
             }
-            BigDecimal expense = convert(summary.getTotalExpense(), current, target);
-            BigDecimal income = convert(summary.getTotalIncome(), current, target);
-            BigDecimal cashFlow = income.subtract(expense);
-            summary.setTotalExpense(expense);
-            summary.setTotalIncome(income);
-            summary.setCashFlowAmount(cashFlow);
-            summary.setCashFlowPercent(calculateCashFlowPercent(income, expense));
-            summary.setCurrencyCode(target);
-            List<CategoryBreakdown> updated = summary.getExpenseBreakdown().stream()
-                    .map(entry -> new CategoryBreakdown(
-                            entry.categoryId(),
-                            entry.categoryName(),
-                            entry.categoryColor(),
-                            entry.categoryIcon(),
-                            convert(entry.amount(), current, target),
-                            entry.transactionCount()
-                    ))
-                    .toList();
-            summary.setExpenseBreakdown(updated);
+            monthlyAnalyticsRepository.lockUserSummaries(userId);
+            ComputationResult result = compute(userId, month, null, currency);
+            if (result.hasTransactions()) {
+                summaries.add(fillSummary(new MonthlyAnalytics(), userId, month, currency, result));
+            }
         }
-        monthlyAnalyticsRepository.saveAll(summaries);
+        return summaries;
     }
 
-    @Scheduled(cron = "0 5 0 1 * *")
-    public void buildPreviousMonthSnapshots() {
-        AnalyticsPeriod previousMonth = resolvePreviousMonth();
-        List<Long> userIds = categoryTransactionRepository
-                .findDistinctUserIdsByOccurredAtBetween(previousMonth.from(), previousMonth.to());
-        if (userIds.isEmpty()) {
+    public void handleTransactionCreated(CategoryTransaction transaction) {
+        applyDelta(TransactionSnapshot.from(transaction), 1);
+    }
+
+    public void handleTransactionDeleted(CategoryTransaction transaction) {
+        applyDelta(TransactionSnapshot.from(transaction), -1);
+    }
+
+    public void handleTransactionUpdated(TransactionSnapshot before, TransactionSnapshot after) {
+        applyDelta(before, -1);
+        applyDelta(after, 1);
+    }
+
+    /**
+     * Imported transactions drop the summary of every month they touch once; it is rebuilt on the next read.
+     */
+    public void handleTransactionsCreated(Long userId, List<TransactionSnapshot> snapshots) {
+        if (userId == null || snapshots.isEmpty()) {
             return;
         }
-        String currency = resolveMainCurrency();
-        for (Long userId : userIds) {
-            Specification<CategoryTransaction> spec = Specification
-                    .where(CategoryTransactionSpecifications.belongsToUser(userId))
-                    .and(CategoryTransactionSpecifications.occurredAfter(previousMonth.from()))
-                    .and(CategoryTransactionSpecifications.occurredBefore(previousMonth.to()));
-            List<CategoryTransaction> transactions = categoryTransactionRepository.findAll(spec);
-            if (transactions.isEmpty()) {
-                continue;
+        monthlyAnalyticsRepository.lockUserSummaries(userId);
+        analyticsRollupService.applyCreated(userId, snapshots);
+        Set<OffsetDateTime> months = new HashSet<>();
+        for (TransactionSnapshot snapshot : snapshots) {
+            months.add(monthStart(snapshot.occurredAt()));
+        }
+        months.forEach(start -> invalidateMonth(userId, start));
+    }
+
+    private void applyDelta(TransactionSnapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.userId() == null || snapshot.occurredAt() == null
+                || snapshot.amount() == null || snapshot.type() == null) {
+            return;
+        }
+        // Serializes with summary materialization so a summary never misses a concurrently committed write.
+        monthlyAnalyticsRepository.lockUserSummaries(snapshot.userId());
+        analyticsRollupService.apply(snapshot, sign);
+        MonthlyAnalytics summary = monthlyAnalyticsRepository
+                .findFirstByUserIdAndPeriodStartLessThanEqualAndPeriodEndGreaterThanEqual(
+                        snapshot.userId(), snapshot.occurredAt(), snapshot.occurredAt())
+                .orElse(null);
+        if (summary == null) {
+            return;
+        }
+        // Summaries already re-denominated by a running currency change are kept up to date in that currency.
+        String currency = summary.getCurrencyCode();
+        if (currency == null || !(currency.equalsIgnoreCase(resolveMainCurrency())
+                || currency.equalsIgnoreCase(resolvePendingMainCurrency()))) {
+            monthlyAnalyticsRepository.delete(summary);
+            return;
+        }
+
+        RateTable rates = ratesOn(rateDay(snapshot.currencyCode(), currency, snapshot.occurredAt()));
+        BigDecimal amount = convert(rates, snapshot.amount(), snapshot.currencyCode(), currency);
+        if (sign < 0) {
+            amount = amount.negate();
+        }
+        BigDecimal totalExpense = normalize(summary.getTotalExpense());
+        BigDecimal totalIncome = normalize(summary.getTotalIncome());
+        if (snapshot.type() == CategoryTransactionType.EXPENSE) {
+            List<CategoryBreakdown> breakdown = applyToBreakdown(summary.getExpenseBreakdown(),
+                    snapshot.categoryId(), amount, sign);
+            if (breakdown == null) {
+                monthlyAnalyticsRepository.delete(summary);
+                return;
             }
-            if (monthlyAnalyticsRepository.findByUserIdAndPeriodStart(userId, previousMonth.from()).isPresent()) {
-                continue;
+            totalExpense = totalExpense.add(amount);
+            summary.setExpenseBreakdown(breakdown);
+        } else if (snapshot.type() == CategoryTransactionType.INCOME) {
+            List<CategoryBreakdown> breakdown = incomeBreakdownMissing(summary)
+                    ? null
+                    : applyToBreakdown(summary.getIncomeBreakdown(), snapshot.categoryId(), amount, sign);
+            if (breakdown == null) {
+                monthlyAnalyticsRepository.delete(summary);
+                return;
             }
-            ComputationResult result = computeFromTransactions(transactions, currency);
-            if (!result.hasTransactions()) {
+            totalIncome = totalIncome.add(amount);
+            summary.setIncomeBreakdown(breakdown);
+        }
+        if (totalExpense.signum() < 0 || totalIncome.signum() < 0) {
+            monthlyAnalyticsRepository.delete(summary);
+            return;
+        }
+
+        summary.setTotalExpense(totalExpense);
+        summary.setTotalIncome(totalIncome);
+        summary.setCashFlowAmount(totalIncome.subtract(totalExpense));
+        summary.setCashFlowPercent(calculateCashFlowPercent(totalIncome, totalExpense));
+        monthlyAnalyticsRepository.save(summary);
+    }
+
+    private List<CategoryBreakdown> applyToBreakdown(List<CategoryBreakdown> breakdown,
+                                                     Long categoryId,
+                                                     BigDecimal amount,
+                                                     int sign) {
+        List<CategoryBreakdown> current = breakdown == null ? List.of() : breakdown;
+        List<CategoryBreakdown> updated = new ArrayList<>(current.size() + 1);
+        boolean matched = false;
+        for (CategoryBreakdown entry : current) {
+            if (!Objects.equals(entry.categoryId(), categoryId)) {
+                updated.add(entry);
                 continue;
             }
-            MonthlyAnalytics entity = new MonthlyAnalytics();
-            entity.setUserId(userId);
-            entity.setPeriodStart(previousMonth.from());
-            entity.setPeriodEnd(previousMonth.to());
-            entity.setCurrencyCode(currency);
-            entity.setTotalExpense(result.totalExpense());
-            entity.setTotalIncome(result.totalIncome());
-            BigDecimal cashFlowAmount = result.totalIncome().subtract(result.totalExpense());
-            entity.setCashFlowAmount(cashFlowAmount);
-            entity.setCashFlowPercent(calculateCashFlowPercent(result.totalIncome(), result.totalExpense()));
-            entity.setExpenseBreakdown(result.expenseBreakdown());
-            monthlyAnalyticsRepository.save(entity);
+            matched = true;
+            long count = entry.transactionCount() + sign;
+            BigDecimal value = normalize(entry.amount()).add(amount);
+            if (count < 0 || value.signum() < 0) {
+                return null;
+            }
+            if (count > 0) {
+                updated.add(new CategoryBreakdown(entry.categoryId(), entry.categoryName(), entry.categoryColor(),
+                        entry.categoryIcon(), value, count));
+            }
+        }
+        if (!matched) {
+            if (sign < 0) {
+                return null;
+            }
+            Category category = categoryRepository.findById(categoryId).orElse(null);
+            if (category == null) {
+                return null;
+            }
+            updated.add(new CategoryBreakdown(category.getId(), category.getName(), category.getColor(),
+                    category.getIcon(), amount, 1));
+        }
+        updated.sort(Comparator.comparing(CategoryBreakdown::amount).reversed());
+        return updated;
+    }
+
+    private ComputationResult summarizeMonth(Long userId, AnalyticsPeriod month, String currency) {
+        MonthlyAnalytics summary = monthlyAnalyticsRepository
+                .findByUserIdAndPeriodStart(userId, month.from())
+                .orElse(null);
+        if (summary != null && isReusable(summary, currency)) {
+            List<CategoryBreakdown> expenseBreakdown = summary.getExpenseBreakdown();
+            return new ComputationResult(
+                    normalize(summary.getTotalExpense()),
+                    normalize(summary.getTotalIncome()),
+                    expenseBreakdown,
+                    summary.getIncomeBreakdown(),
+                    countTransactions(expenseBreakdown)
+            );
         }
+
+        ComputationResult result = compute(userId, month, null, currency);
+        if (summary == null && !result.hasTransactions()) {
+            return result;
+        }
+        if (summary != null && summary.getCurrencyCode() != null
+                && summary.getCurrencyCode().equalsIgnoreCase(resolvePendingMainCurrency())) {
+            return result;
+        }
+        monthlyAnalyticsRepository.save(fillSummary(summary == null ? new MonthlyAnalytics() : summary,
+                userId, month, currency, result));
+        return result;
+    }
+
+    private MonthlyAnalytics fillSummary(MonthlyAnalytics entity,
+                                         Long userId,
+                                         AnalyticsPeriod month,
+                                         String currency,
+                                         ComputationResult result) {
+        entity.setUserId(userId);
+        entity.setPeriodStart(month.from());
+        entity.setPeriodEnd(month.to());
+        entity.setCurrencyCode(currency);
+        entity.setTotalExpense(result.totalExpense());
+        entity.setTotalIncome(result.totalIncome());
+        entity.setCashFlowAmount(result.totalIncome().subtract(result.totalExpense()));
+        entity.setCashFlowPercent(calculateCashFlowPercent(result.totalIncome(), result.totalExpense()));
+        entity.setExpenseBreakdown(result.expenseBreakdown());
+        entity.setIncomeBreakdown(result.incomeBreakdown());
+        return entity;
+    }
+
+    private boolean isReusable(MonthlyAnalytics summary, String currency) {
+        if (summary.getCurrencyCode() == null || !summary.getCurrencyCode().equalsIgnoreCase(currency)) {
+            return false;
+        }
+        boolean countsMissing = summary.getExpenseBreakdown().stream()
+                .anyMatch(entry -> entry.transactionCount() <= 0
+                        && entry.amount() != null
+                        && entry.amount().compareTo(BigDecimal.ZERO) > 0);
+        return !countsMissing && !incomeBreakdownMissing(summary);
+    }
+
+    // Summaries stored before income was broken down by category have income but no entries.
+    private boolean incomeBreakdownMissing(MonthlyAnalytics summary) {
+        return summary.getIncomeBreakdown().isEmpty()
+                && summary.getTotalIncome() != null
+                && summary.getTotalIncome().compareTo(BigDecimal.ZERO) > 0;
+    }
+
+    private ComputationResult restrict(ComputationResult result, Set<Long> categoryFilter) {
+        if (categoryFilter == null) {
+            return result;
+        }
+        List<CategoryBreakdown> expense = result.expenseBreakdown().stream()
+                .filter(entry -> categoryFilter.contains(entry.categoryId()))
+                .toList();
+        List<CategoryBreakdown> income = result.incomeBreakdown().stream()
+                .filter(entry -> categoryFilter.contains(entry.categoryId()))
+                .toList();
+        return new ComputationResult(sumAmounts(expense), sumAmounts(income), expense, income,
+                countTransactions(expense));
+    }
+
+    private ComputationResult merge(List<ComputationResult> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        BigDecimal totalExpense = BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        BigDecimal totalIncome = BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        Map<Long, CategoryAccumulator> expense = new HashMap<>();
+        Map<Long, CategoryAccumulator> income = new HashMap<>();
+        long expenseCount = 0L;
+        // Newest first, so renamed categories are shown with their latest name.
+        for (ComputationResult part : parts.reversed()) {
+            totalExpense = totalExpense.add(part.totalExpense());
+            totalIncome = totalIncome.add(part.totalIncome());
+            accumulate(expense, part.expenseBreakdown());
+            accumulate(income, part.incomeBreakdown());
+            expenseCount += part.expenseTransactionCount();
+        }
+        return new ComputationResult(totalExpense, totalIncome, toBreakdown(expense), toBreakdown(income),
+                expenseCount);
+    }
+
+    private void accumulate(Map<Long, CategoryAccumulator> accumulators, List<CategoryBreakdown> breakdown) {
+        for (CategoryBreakdown entry : breakdown) {
+            accumulators.computeIfAbsent(entry.categoryId(), id -> new CategoryAccumulator(
+                    entry.categoryId(),
+                    entry.categoryName(),
+                    entry.categoryColor(),
+                    entry.categoryIcon()
+            )).add(normalize(entry.amount()), entry.transactionCount());
+        }
+    }
+
+    private List<CategoryBreakdown> toBreakdown(Map<Long, CategoryAccumulator> accumulators) {
+        return accumulators.values().stream()
+                .map(CategoryAccumulator::toBreakdown)
+                .sorted(Comparator.comparing(CategoryBreakdown::amount).reversed())
+                .toList();
+    }
+
+    private BigDecimal sumAmounts(List<CategoryBreakdown> breakdown) {
+        return breakdown.stream()
+                .map(entry -> normalize(entry.amount()))
+                .reduce(BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP), BigDecimal::add);
+    }
+
+    private long countTransactions(List<CategoryBreakdown> breakdown) {
+        return breakdown.stream().mapToLong(CategoryBreakdown::transactionCount).sum();
     }
 
     private ComputationResult compute(Long userId,
                                       AnalyticsPeriod period,
                                       List<Long> categoryIds,
                                       String targetCurrency) {
-        Specification<CategoryTransaction> specification = Specification
-                .where(CategoryTransactionSpecifications.belongsToUser(userId))
-                .and(CategoryTransactionSpecifications.occurredAfter(period.from()))
-                .and(CategoryTransactionSpecifications.occurredBefore(period.to()))
-                .and(CategoryTransactionSpecifications.hasCategories(categoryIds));
-        List<CategoryTransaction> transactions = categoryTransactionRepository.findAll(specification);
-        return computeFromTransactions(transactions, targetCurrency);
+        Map<AmountKey, AmountTotal> totals = amountAggregator.aggregateCategoryTransactions(
+                userId,
+                categoryIds,
+                period.from(),
+                period.to(),
+                row -> new AmountKey(row.type(), row.groupId(), row.currencyCode(),
+                        rateDay(row.currencyCode(), targetCurrency, row.occurredAt()))
+        );
+        return computeFromTotals(totals, targetCurrency);
     }
 
-    private ComputationResult computeFromTransactions(List<CategoryTransaction> transactions,
-                                                      String targetCurrency) {
+    private ComputationResult computeFromTotals(Map<AmountKey, AmountTotal> totals, String targetCurrency) {
         BigDecimal totalExpense = BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
         BigDecimal totalIncome = BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
-        Map<Long, CategoryAccumulator> categoryTotals = new HashMap<>();
+        Map<Long, CategoryAccumulator> expenseTotals = new HashMap<>();
+        Map<Long, CategoryAccumulator> incomeTotals = new HashMap<>();
         long expenseCount = 0L;
 
-        for (CategoryTransaction transaction : transactions) {
-            BigDecimal amount = normalize(convert(transaction.getAmount(),
-                    transaction.getCurrency().getCode(),
-                    targetCurrency));
-            if (transaction.getType() == CategoryTransactionType.EXPENSE) {
+        List<Long> categoryIds = totals.keySet().stream()
+                .map(AmountKey::categoryId)
+                .distinct()
+                .toList();
+        Map<Long, Category> categories = categoryRepository.findAllById(categoryIds).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+
+        for (Map.Entry<AmountKey, AmountTotal> entry : totals.entrySet()) {
+            AmountKey key = entry.getKey();
+            BigDecimal amount = convert(ratesOn(key.rateDay()), entry.getValue().amount(), key.currencyCode(),
+                    targetCurrency);
+            Map<Long, CategoryAccumulator> categoryTotals;
+            if (CategoryTransactionType.EXPENSE.name().equals(key.type())) {
                 totalExpense = totalExpense.add(amount);
-                var category = transaction.getCategory();
-                if (category == null) {
-                    continue;
-                }
-                CategoryAccumulator accumulator = categoryTotals.computeIfAbsent(
-                        category.getId(),
-                        id -> new CategoryAccumulator(
-                                category.getId(),
-                                category.getName(),
-                                category.getColor(),
-                                category.getIcon()
-                        )
-                );
-                accumulator.add(amount);
-                expenseCount++;
-            } else if (transaction.getType() == CategoryTransactionType.INCOME) {
+                categoryTotals = expenseTotals;
+            } else if (CategoryTransactionType.INCOME.name().equals(key.type())) {
                 totalIncome = totalIncome.add(amount);
+                categoryTotals = incomeTotals;
+            } else {
+                continue;
+            }
+            Category category = categories.get(key.categoryId());
+            if (category == null) {
+                continue;
+            }
+            CategoryAccumulator accumulator = categoryTotals.computeIfAbsent(
+                    category.getId(),
+                    id -> new CategoryAccumulator(
+                            category.getId(),
+                            category.getName(),
+                            category.getColor(),
+                            category.getIcon()
+                    )
+            );
+            accumulator.add(amount, entry.getValue().count());
+            if (categoryTotals == expenseTotals) {
+                expenseCount += entry.getValue().count();
             }
         }
 
-        List<CategoryBreakdown> breakdown = categoryTotals.values().stream()
-                .map(CategoryAccumulator::toBreakdown)
-                .sorted(Comparator.comparing(CategoryBreakdown::amount).reversed())
-                .toList();
+        return new ComputationResult(totalExpense, totalIncome, toBreakdown(expenseTotals), toBreakdown(incomeTotals),
+                expenseCount);
+    }
+
+    private LocalDate rateDay(String currency, String targetCurrency, OffsetDateTime occurredAt) {
+        if (currency == null || currency.equalsIgnoreCase(targetCurrency)) {
+            return null;
+        }
+        return occurredAt == null ? LocalDate.now(ZoneId.systemDefault()) : toDay(occurredAt);
+    }
 
-        return new ComputationResult(totalExpense, totalIncome, breakdown, expenseCount);
+    // Same-currency amounts never read a rate, so no table is loaded for them.
+    private RateTable ratesOn(LocalDate day) {
+        return day == null ? null : exchangeRateService.snapshotAsOf(day);
     }
 
-    private BigDecimal convert(BigDecimal amount, String fromCurrency, String toCurrency) {
+    private LocalDate toDay(OffsetDateTime timestamp) {
+        return timestamp.atZoneSameInstant(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private BigDecimal convert(RateTable rates, BigDecimal amount, String fromCurrency, String toCurrency) {
         if (amount == null) {
             return BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
         }
         if (fromCurrency == null || toCurrency == null || fromCurrency.equalsIgnoreCase(toCurrency)) {
             return normalize(amount);
         }
-        return normalize(exchangeRateService.convert(amount, fromCurrency, toCurrency));
+        return normalize(rates.convert(amount, fromCurrency, toCurrency));
     }
 
     private BigDecimal normalize(BigDecimal value) {
@@ -334,19 +545,13 @@ public class AnalyticsService {
         return new AnalyticsPeriod(start, end);
     }
 
-    private AnalyticsPeriod resolvePreviousMonth() {
-        OffsetDateTime currentStart = monthStart(OffsetDateTime.now());
-        OffsetDateTime start = currentStart.minusMonths(1);
-        OffsetDateTime end = monthEnd(start);
-        return new AnalyticsPeriod(start, end);
-    }
-
     public void invalidateMonth(Long userId, OffsetDateTime occurredAt) {
         if (userId == null || occurredAt == null) {
             return;
         }
+        // Matched by range, so a summary keyed at another offset for the same month is dropped as well.
         OffsetDateTime start = monthStart(occurredAt);
-        monthlyAnalyticsRepository.deleteByUserIdAndPeriodStart(userId, start);
+        monthlyAnalyticsRepository.deleteOverlapping(userId, start, monthEnd(start));
     }
 
     private String resolveMainCurrency() {
@@ -356,30 +561,44 @@ public class AnalyticsService {
                 : settings.getMainCurrency().toUpperCase(Locale.ROOT);
     }
 
+    private String resolvePendingMainCurrency() {
+        String pending = appSettingsProvider.getOrCreate().getPendingMainCurrency();
+        return pending == null ? null : pending.toUpperCase(Locale.ROOT);
+    }
+
+    // Month boundaries are taken in the server zone, so summaries are keyed the same way for any request offset.
     private OffsetDateTime monthStart(OffsetDateTime timestamp) {
         OffsetDateTime base = timestamp == null ? OffsetDateTime.now() : timestamp;
-        return base.withDayOfMonth(1)
-                .withHour(0)
-                .withMinute(0)
-                .withSecond(0)
-                .withNano(0);
+        return base.atZoneSameInstant(ZoneId.systemDefault())
+                .withDayOfMonth(1)
+                .truncatedTo(ChronoUnit.DAYS)
+                .toOffsetDateTime();
     }
 
     private OffsetDateTime monthEnd(OffsetDateTime start) {
-        return start.plusMonths(1).minusNanos(1);
+        return start.atZoneSameInstant(ZoneId.systemDefault())
+                .plusMonths(1)
+                .toOffsetDateTime()
+                .minusNanos(1);
     }
 
     private record ComputationResult(BigDecimal totalExpense,
                                      BigDecimal totalIncome,
                                      List<CategoryBreakdown> expenseBreakdown,
+                                     List<CategoryBreakdown> incomeBreakdown,
                                      long expenseTransactionCount) {
         boolean hasTransactions() {
             return (totalExpense != null && totalExpense.compareTo(BigDecimal.ZERO) > 0)
                     || (totalIncome != null && totalIncome.compareTo(BigDecimal.ZERO) > 0)
-                    || (expenseBreakdown != null && !expenseBreakdown.isEmpty());
+                    || (expenseBreakdown != null && !expenseBreakdown.isEmpty())
+                    || (incomeBreakdown != null && !incomeBreakdown.isEmpty());
         }
     }
 
+    // Foreign-currency amounts are also grouped by day, so each day converts at its own rate.
+    private record AmountKey(String type, Long categoryId, String currencyCode, LocalDate rateDay) {
+    }
+
     private static class CategoryAccumulator {
         private final Long categoryId;
         private final String name;
@@ -395,12 +614,12 @@ public class AnalyticsService {
             this.icon = icon;
         }
 
-        void add(BigDecimal value) {
+        void add(BigDecimal value, long transactions) {
             if (value == null) {
                 return;
             }
             amount = amount.add(value);
-            count++;
+            count += transactions;
         }
 
         CategoryBreakdown toBreakdown() {
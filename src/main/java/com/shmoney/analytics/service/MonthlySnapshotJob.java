@@ -0,0 +1,233 @@
+package com.shmoney.analytics.service;
+
+import com.shmoney.analytics.converter.CategoryBreakdownConverter;
+import com.shmoney.analytics.dto.AnalyticsPeriod;
+import com.shmoney.analytics.entity.MonthlyAnalytics;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds the previous month's summaries for every user with transactions in it. Users are taken in id order,
+ * a wave of chunks at a time, each chunk in its own transaction on a virtual thread. The highest user id of
+ * a finished wave is recorded in analytics_snapshot_runs, so an interrupted run resumes from there.
+ */
+@Component
+public class MonthlySnapshotJob {
+
+    private static final Logger log = LoggerFactory.getLogger(MonthlySnapshotJob.class);
+
+    private static final int CHUNK_SIZE = 100;
+    private static final int PARALLELISM = 4;
+
+    private static final String START_RUN_SQL = """
+            INSERT INTO analytics_snapshot_runs (period_start, period_end)
+            VALUES (:periodStart, :periodEnd)
+            ON CONFLICT (period_start) DO NOTHING
+            """;
+
+    private static final String UNFINISHED_RUNS_SQL = """
+            SELECT period_start, period_end, last_user_id
+            FROM analytics_snapshot_runs
+            WHERE completed_at IS NULL
+            ORDER BY period_start
+            """;
+
+    private static final String RUN_PROGRESS_SQL = """
+            SELECT last_user_id
+            FROM analytics_snapshot_runs
+            WHERE period_start = :periodStart AND completed_at IS NULL
+            """;
+
+    private static final String NEXT_USERS_SQL = """
+            SELECT DISTINCT user_id
+            FROM category_transactions
+            WHERE user_id > :afterUserId
+              AND occurred_at BETWEEN :periodStart AND :periodEnd
+            ORDER BY user_id
+            LIMIT :limit
+            """;
+
+    private static final String SAVE_PROGRESS_SQL = """
+            UPDATE analytics_snapshot_runs
+            SET last_user_id = :lastUserId,
+                processed_users = processed_users + :processedUsers,
+                created_summaries = created_summaries + :createdSummaries,
+                updated_at = NOW()
+            WHERE period_start = :periodStart
+            """;
+
+    private static final String COMPLETE_RUN_SQL = """
+            UPDATE analytics_snapshot_runs
+            SET completed_at = NOW(), updated_at = NOW()
+            WHERE period_start = :periodStart
+            """;
+
+    private static final String INSERT_SUMMARY_SQL = """
+            INSERT INTO analytics_monthly_summary (user_id, period_start, period_end, currency_code, total_expense,
+                                                   total_income, cash_flow_amount, cash_flow_percent,
+                                                   expense_breakdown, income_breakdown)
+            VALUES (:userId, :periodStart, :periodEnd, :currencyCode, :totalExpense,
+                    :totalIncome, :cashFlowAmount, :cashFlowPercent,
+                    :expenseBreakdown, :incomeBreakdown)
+            ON CONFLICT (user_id, period_start) DO NOTHING
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AnalyticsService analyticsService;
+    private final CategoryBreakdownConverter breakdownConverter = new CategoryBreakdownConverter();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MonthlySnapshotJob(NamedParameterJdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              AnalyticsService analyticsService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.analyticsService = analyticsService;
+    }
+
+    @Scheduled(cron = "0 5 0 1 * *")
+    public void buildPreviousMonthSnapshots() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ZonedDateTime currentMonth = ZonedDateTime.now(ZoneId.systemDefault())
+                    .withDayOfMonth(1)
+                    .truncatedTo(ChronoUnit.DAYS);
+            AnalyticsPeriod previousMonth = new AnalyticsPeriod(
+                    currentMonth.minusMonths(1).toOffsetDateTime(),
+                    currentMonth.toOffsetDateTime().minusNanos(1)
+            );
+            jdbcTemplate.update(START_RUN_SQL, periodParams(previousMonth));
+            run(previousMonth);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Scheduled(cron = "0 35 * * * *")
+    public void resumeUnfinishedRuns() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<AnalyticsPeriod> unfinished = jdbcTemplate.query(UNFINISHED_RUNS_SQL, (rs, rowNum) ->
+                    new AnalyticsPeriod(rs.getObject("period_start", OffsetDateTime.class),
+                            rs.getObject("period_end", OffsetDateTime.class)));
+            unfinished.forEach(this::run);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    void run(AnalyticsPeriod month) {
+        List<Long> progress = jdbcTemplate.queryForList(RUN_PROGRESS_SQL, periodParams(month), Long.class);
+        if (progress.isEmpty()) {
+            return;
+        }
+        long afterUserId = progress.get(0);
+        int waveSize = CHUNK_SIZE * PARALLELISM;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                List<Long> userIds = jdbcTemplate.queryForList(NEXT_USERS_SQL, periodParams(month)
+                        .addValue("afterUserId", afterUserId, Types.BIGINT)
+                        .addValue("limit", waveSize, Types.INTEGER), Long.class);
+                if (userIds.isEmpty()) {
+                    break;
+                }
+
+                List<Future<Integer>> chunks = new ArrayList<>();
+                for (int from = 0; from < userIds.size(); from += CHUNK_SIZE) {
+                    List<Long> chunk = userIds.subList(from, Math.min(from + CHUNK_SIZE, userIds.size()));
+                    chunks.add(executor.submit(() -> processChunk(chunk, month)));
+                }
+                int created = 0;
+                for (Future<Integer> chunk : chunks) {
+                    created += chunk.get();
+                }
+
+                afterUserId = userIds.get(userIds.size() - 1);
+                jdbcTemplate.update(SAVE_PROGRESS_SQL, periodParams(month)
+                        .addValue("lastUserId", afterUserId, Types.BIGINT)
+                        .addValue("processedUsers", userIds.size(), Types.INTEGER)
+                        .addValue("createdSummaries", created, Types.INTEGER));
+                if (userIds.size() < waveSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            log.error("Monthly snapshot run for {} stopped after user={}, it will be resumed",
+                    month.from(), afterUserId, ex.getCause());
+            return;
+        }
+        jdbcTemplate.update(COMPLETE_RUN_SQL, periodParams(month));
+        log.info("Monthly snapshots for {} are built", month.from());
+    }
+
+    private int processChunk(List<Long> userIds, AnalyticsPeriod month) {
+        Integer created = transactionTemplate.execute(status -> {
+            List<MonthlyAnalytics> summaries = analyticsService.buildMissingSummaries(userIds, month);
+            if (summaries.isEmpty()) {
+                return 0;
+            }
+            int inserted = 0;
+            for (int count : jdbcTemplate.batchUpdate(INSERT_SUMMARY_SQL, summaries.stream()
+                    .map(this::summaryParams)
+                    .toArray(SqlParameterSource[]::new))) {
+                inserted += Math.max(count, 0);
+            }
+            return inserted;
+        });
+        return created == null ? 0 : created;
+    }
+
+    private SqlParameterSource summaryParams(MonthlyAnalytics summary) {
+        return new MapSqlParameterSource()
+                .addValue("userId", summary.getUserId(), Types.BIGINT)
+                .addValue("periodStart", Timestamp.from(summary.getPeriodStart().toInstant()), Types.TIMESTAMP)
+                .addValue("periodEnd", Timestamp.from(summary.getPeriodEnd().toInstant()), Types.TIMESTAMP)
+                .addValue("currencyCode", summary.getCurrencyCode(), Types.VARCHAR)
+                .addValue("totalExpense", EncryptedBigDecimalConverter.encryptValue(summary.getTotalExpense()),
+                        Types.VARCHAR)
+                .addValue("totalIncome", EncryptedBigDecimalConverter.encryptValue(summary.getTotalIncome()),
+                        Types.VARCHAR)
+                .addValue("cashFlowAmount", EncryptedBigDecimalConverter.encryptValue(summary.getCashFlowAmount()),
+                        Types.VARCHAR)
+                .addValue("cashFlowPercent", summary.getCashFlowPercent(), Types.NUMERIC)
+                .addValue("expenseBreakdown", breakdownConverter.convertToDatabaseColumn(summary.getExpenseBreakdown()),
+                        Types.VARCHAR)
+                .addValue("incomeBreakdown", breakdownConverter.convertToDatabaseColumn(summary.getIncomeBreakdown()),
+                        Types.VARCHAR);
+    }
+
+    private MapSqlParameterSource periodParams(AnalyticsPeriod month) {
+        return new MapSqlParameterSource()
+                .addValue("periodStart", Timestamp.from(month.from().toInstant()), Types.TIMESTAMP)
+                .addValue("periodEnd", Timestamp.from(month.to().toInstant()), Types.TIMESTAMP);
+    }
+}
@@ -0,0 +1,49 @@
+package com.shmoney.auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Principals of recently authenticated users, so the filter does not load the user on every request.
+ * Entries are evicted when the user changes or is deleted; the TTL bounds staleness for anything else.
+ */
+@Component
+public class AuthenticatedUserCache {
+
+    public static final String NAME = "authenticatedUsers";
+
+    private final Cache<Long, AuthenticatedUser> principals = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .maximumSize(10_000)
+            .recordStats()
+            .build();
+
+    public AuthenticatedUser get(Long userId, Function<Long, AuthenticatedUser> loader) {
+        return principals.get(userId, loader);
+    }
+
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        principals.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    principals.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public Cache<Long, AuthenticatedUser> cache() {
+        return principals;
+    }
+}
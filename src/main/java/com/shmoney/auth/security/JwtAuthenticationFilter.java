@@ -28,12 +28,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenService jwtTokenService;
     private final UserService userService;
     private final TokenCookieService tokenCookieService;
+    private final AuthenticatedUserCache authenticatedUserCache;
     
     public JwtAuthenticationFilter(JwtTokenService jwtTokenService, UserService userService,
-                                   TokenCookieService tokenCookieService) {
+                                   TokenCookieService tokenCookieService,
+                                   AuthenticatedUserCache authenticatedUserCache) {
         this.jwtTokenService = jwtTokenService;
         this.userService = userService;
         this.tokenCookieService = tokenCookieService;
+        this.authenticatedUserCache = authenticatedUserCache;
     }
     
     @Override
@@ -56,8 +59,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
                 var details = jwtTokenService.parseAccessToken(token);
-                User user = userService.getById(details.userId());
-                setAuthentication(user, token);
+                AuthenticatedUser principal = authenticatedUserCache.get(details.userId(), this::loadPrincipal);
+                setAuthentication(principal, token);
             } catch (InvalidTokenException | UserNotFoundException ex) {
                 SecurityContextHolder.clearContext();
             }
@@ -66,8 +69,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
-    private void setAuthentication(User user, String token) {
-        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getTelegramUsername());
+    private AuthenticatedUser loadPrincipal(Long userId) {
+        User user = userService.getById(userId);
+        return new AuthenticatedUser(user.getId(), user.getTelegramUsername());
+    }
+    
+    private void setAuthentication(AuthenticatedUser principal, String token) {
         List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
         var authentication = new UsernamePasswordAuthenticationToken(principal, token, authorities);
         SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -1,5 +1,8 @@
 package com.shmoney.auth.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.shmoney.auth.exception.InvalidTokenException;
 import com.shmoney.auth.token.JwtTokenDetails;
 import com.shmoney.auth.token.TokenPair;
@@ -14,9 +17,13 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.Objects;
 
 @Service
@@ -25,9 +32,17 @@ public class JwtTokenService {
     private static final String TOKEN_TYPE_CLAIM = "token_type";
     private static final String NAME_CLAIM = "name";
     
+    public static final String ACCESS_TOKEN_CACHE = "accessTokens";
+    
     private final JwtProperties properties;
     private final SecretKey signingKey;
     private final JwtParser parser;
+    // Keyed by the token's SHA-256, so raw bearer tokens are not kept on the heap.
+    private final Cache<String, JwtTokenDetails> accessTokens = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfter(new UntilTokenExpiry())
+            .recordStats()
+            .build();
     
     public JwtTokenService(JwtProperties properties) {
         this.properties = properties;
@@ -49,8 +64,19 @@ public class JwtTokenService {
         );
     }
     
+    /**
+     * Verified access tokens are cached until they expire, so a token sent with every request is only
+     * parsed and checked once. Rejected tokens are never cached.
+     */
     public JwtTokenDetails parseAccessToken(String token) {
-        return parseToken(token, TokenType.ACCESS);
+        if (token == null) {
+            throw new InvalidTokenException("Token is invalid");
+        }
+        return accessTokens.get(sha256(token), key -> parseToken(token, TokenType.ACCESS));
+    }
+    
+    public Cache<String, JwtTokenDetails> accessTokenCache() {
+        return accessTokens;
     }
     
     public JwtTokenDetails parseRefreshToken(String token) {
@@ -95,6 +121,34 @@ public class JwtTokenService {
         }
     }
     
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+    
+    private static final class UntilTokenExpiry implements Expiry<String, JwtTokenDetails> {
+        
+        @Override
+        public long expireAfterCreate(String key, JwtTokenDetails details, long currentTime) {
+            Duration remaining = Duration.between(OffsetDateTime.now(ZoneOffset.UTC), details.expiresAt());
+            return remaining.isNegative() ? 0 : remaining.toNanos();
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, JwtTokenDetails details, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+        
+        @Override
+        public long expireAfterRead(String key, JwtTokenDetails details, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+    
     private record GeneratedToken(String token, OffsetDateTime expiresAt) {
     }
 }
@@ -4,6 +4,7 @@ import com.shmoney.category.entity.Category;
 import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
 import com.shmoney.user.entity.User;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -12,10 +13,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@DynamicUpdate
 @Table(name = "budgets")
 public class Budget {
 
     private static final int AMOUNT_SCALE = 2;
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -91,6 +94,26 @@ public class Budget {
         normalizeAmounts();
     }
 
+    /**
+     * Spent amount after a change, never below zero.
+     */
+    public static BigDecimal spentWithDelta(BigDecimal spent, BigDecimal delta) {
+        BigDecimal result = (spent == null ? BigDecimal.ZERO : spent).add(delta == null ? BigDecimal.ZERO : delta);
+        if (result.signum() < 0) {
+            result = BigDecimal.ZERO;
+        }
+        return result.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    public static BigDecimal percentOf(BigDecimal spent, BigDecimal limit) {
+        if (spent == null || limit == null || limit.compareTo(BigDecimal.ZERO) == 0) {
+            return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        }
+        return spent.divide(limit, 4, RoundingMode.HALF_UP)
+                .multiply(ONE_HUNDRED)
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
     private void normalizeAmounts() {
         if (amountLimit != null) {
             amountLimit = amountLimit.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
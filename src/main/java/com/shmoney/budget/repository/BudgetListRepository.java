@@ -0,0 +1,162 @@
+package com.shmoney.budget.repository;
+
+import com.shmoney.budget.dto.BudgetFilter;
+import com.shmoney.budget.dto.BudgetResponse;
+import com.shmoney.budget.entity.Budget;
+import com.shmoney.budget.entity.BudgetPeriodType;
+import com.shmoney.budget.entity.BudgetStatus;
+import com.shmoney.budget.entity.BudgetType;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read model for the budget list: the budgets and their category ids are loaded with two set-based queries,
+ * without materializing entities or their lazy category collections. Spent deltas that are not flushed yet
+ * are read in the same statement as the budget row, so both come from one snapshot.
+ */
+@Repository
+public class BudgetListRepository {
+
+    private static final String BUDGETS_SQL_PREFIX = """
+            SELECT id,
+                   name,
+                   period_type,
+                   period_start,
+                   period_end,
+                   budget_type,
+                   currency_code,
+                   amount_limit,
+                   spent_amount,
+                   percent_spent,
+                   status,
+                   closed_at,
+                   created_at,
+                   updated_at,
+                   ARRAY(SELECT d.delta FROM budget_spent_deltas d WHERE d.budget_id = budgets.id) AS pending_deltas
+            FROM budgets
+            WHERE owner_id = :ownerId
+            """;
+
+    private static final String ORDER_BY = """
+            ORDER BY CASE period_type
+                         WHEN 'CUSTOM' THEN 0
+                         WHEN 'WEEK' THEN 1
+                         WHEN 'MONTH' THEN 2
+                         ELSE 3
+                     END,
+                     created_at,
+                     id
+            """;
+
+    private static final String CATEGORY_IDS_SQL = """
+            SELECT budget_id, category_id
+            FROM budget_categories
+            WHERE budget_id IN (:budgetIds)
+            ORDER BY budget_id, category_id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public BudgetListRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<BudgetResponse> findAll(Long ownerId, BudgetFilter filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ownerId", ownerId);
+        String sql = BUDGETS_SQL_PREFIX + buildFilters(filter, params) + ORDER_BY;
+        List<BudgetResponse> budgets = jdbcTemplate.query(sql, params, new BudgetRowMapper());
+        if (budgets.isEmpty()) {
+            return budgets;
+        }
+
+        // Each response is created with an empty list that is filled from the second query.
+        Map<Long, List<Long>> categoryIds = new HashMap<>(budgets.size() * 2);
+        for (BudgetResponse budget : budgets) {
+            categoryIds.put(budget.id(), budget.categoryIds());
+        }
+        MapSqlParameterSource budgetIds = new MapSqlParameterSource("budgetIds", List.copyOf(categoryIds.keySet()));
+        jdbcTemplate.query(CATEGORY_IDS_SQL, budgetIds, rs -> {
+            categoryIds.get(rs.getLong("budget_id")).add(rs.getLong("category_id"));
+        });
+        return budgets;
+    }
+
+    private String buildFilters(BudgetFilter filter, MapSqlParameterSource params) {
+        if (filter == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        if (filter.status() != null) {
+            builder.append("AND status = :status\n");
+            params.addValue("status", filter.status().name(), Types.VARCHAR);
+        }
+        if (filter.periodType() != null) {
+            builder.append("AND period_type = :periodType\n");
+            params.addValue("periodType", filter.periodType().name(), Types.VARCHAR);
+        }
+        if (filter.budgetType() != null) {
+            builder.append("AND budget_type = :budgetType\n");
+            params.addValue("budgetType", filter.budgetType().name(), Types.VARCHAR);
+        }
+        if (filter.from() != null) {
+            builder.append("AND period_end >= :from\n");
+            params.addValue("from", Timestamp.from(filter.from().toInstant()), Types.TIMESTAMP);
+        }
+        if (filter.to() != null) {
+            builder.append("AND period_start <= :to\n");
+            params.addValue("to", Timestamp.from(filter.to().toInstant()), Types.TIMESTAMP);
+        }
+        return builder.toString();
+    }
+
+    private static class BudgetRowMapper implements RowMapper<BudgetResponse> {
+        @Override
+        public BudgetResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
+            BigDecimal limit = EncryptedBigDecimalConverter.decryptValue(rs.getString("amount_limit"));
+            BigDecimal spent = EncryptedBigDecimalConverter.decryptValue(rs.getString("spent_amount"));
+            BigDecimal percent = rs.getBigDecimal("percent_spent");
+            Array pendingArray = rs.getArray("pending_deltas");
+            String[] pendingDeltas = pendingArray == null ? new String[0] : (String[]) pendingArray.getArray();
+            if (pendingDeltas.length > 0) {
+                BigDecimal pending = BigDecimal.ZERO;
+                for (String delta : pendingDeltas) {
+                    pending = pending.add(EncryptedBigDecimalConverter.decryptValue(delta));
+                }
+                spent = Budget.spentWithDelta(spent, pending);
+                percent = Budget.percentOf(spent, limit);
+            }
+            return new BudgetResponse(
+                    rs.getLong("id"),
+                    rs.getString("name"),
+                    BudgetPeriodType.valueOf(rs.getString("period_type")),
+                    rs.getObject("period_start", OffsetDateTime.class),
+                    rs.getObject("period_end", OffsetDateTime.class),
+                    BudgetType.valueOf(rs.getString("budget_type")),
+                    rs.getString("currency_code"),
+                    limit,
+                    spent,
+                    percent,
+                    BudgetStatus.valueOf(rs.getString("status")),
+                    rs.getObject("closed_at", OffsetDateTime.class),
+                    rs.getObject("created_at", OffsetDateTime.class),
+                    rs.getObject("updated_at", OffsetDateTime.class),
+                    new ArrayList<>()
+            );
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.shmoney.budget.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user index from category id to the active budgets that include it, so transaction writes find the
+ * budgets they affect without querying. A user's index is loaded in one query on first use and dropped
+ * whenever one of their budgets is created, changed, closed, reopened or deleted.
+ */
+@Component
+public class ActiveBudgetIndex {
+
+    private static final String ACTIVE_BUDGETS_SQL = """
+            SELECT b.id, b.currency_code, b.period_start, b.period_end, bc.category_id
+            FROM budgets b
+            JOIN budget_categories bc ON bc.budget_id = b.id
+            WHERE b.owner_id = :ownerId
+              AND b.status = 'ACTIVE'
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Cache<Long, Map<Long, List<BudgetWindow>>> budgetsByUser = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .maximumSize(10_000)
+            .build();
+
+    public ActiveBudgetIndex(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Active budgets of the user that include the category and whose period covers {@code occurredAt}.
+     */
+    public List<BudgetWindow> find(Long ownerId, Long categoryId, OffsetDateTime occurredAt) {
+        List<BudgetWindow> windows = budgetsByUser.get(ownerId, this::load).getOrDefault(categoryId, List.of());
+        List<BudgetWindow> matching = new ArrayList<>(windows.size());
+        for (BudgetWindow window : windows) {
+            if (window.covers(occurredAt)) {
+                matching.add(window);
+            }
+        }
+        return matching;
+    }
+
+    public void evict(Long ownerId) {
+        if (ownerId == null) {
+            return;
+        }
+        budgetsByUser.invalidate(ownerId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    budgetsByUser.invalidate(ownerId);
+                }
+            });
+        }
+    }
+
+    private Map<Long, List<BudgetWindow>> load(Long ownerId) {
+        Map<Long, List<BudgetWindow>> index = new HashMap<>();
+        jdbcTemplate.query(ACTIVE_BUDGETS_SQL, new MapSqlParameterSource()
+                .addValue("ownerId", ownerId, Types.BIGINT), rs -> {
+            index.computeIfAbsent(rs.getLong("category_id"), id -> new ArrayList<>()).add(new BudgetWindow(
+                    rs.getLong("id"),
+                    rs.getString("currency_code"),
+                    rs.getObject("period_start", OffsetDateTime.class),
+                    rs.getObject("period_end", OffsetDateTime.class)
+            ));
+        });
+        return index;
+    }
+
+    public record BudgetWindow(Long budgetId,
+                               String currencyCode,
+                               OffsetDateTime periodStart,
+                               OffsetDateTime periodEnd) {
+
+        boolean covers(OffsetDateTime moment) {
+            return !moment.isBefore(periodStart) && !moment.isAfter(periodEnd);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.shmoney.budget.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closes active budgets whose period has ended and opens the next period of recurring ones. Expired budgets of
+ * all users are read in (period_end, id) order, a wave of chunks at a time, each chunk in its own transaction.
+ * A next period that has itself already ended sorts after its predecessor, so budgets that lapsed several times
+ * while the app was down are caught up within the same run.
+ */
+@Component
+public class BudgetRolloverJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetRolloverJob.class);
+
+    private static final int CHUNK_SIZE = 100;
+    private static final int PARALLELISM = 4;
+
+    private static final String NEXT_EXPIRED_SQL = """
+            SELECT id, period_end
+            FROM budgets
+            WHERE status = 'ACTIVE'
+              AND period_end < :now
+              AND (period_end, id) > (:afterPeriodEnd, :afterId)
+            ORDER BY period_end, id
+            LIMIT :limit
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BudgetService budgetService;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BudgetRolloverJob(NamedParameterJdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             BudgetService budgetService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.budgetService = budgetService;
+    }
+
+    // The first run shortly after startup is the catch-up for budgets that ended while the app was down.
+    @Scheduled(initialDelay = 30_000, fixedDelay = 60_000)
+    public void rollOverExpiredBudgets() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            run(OffsetDateTime.now());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    void run(OffsetDateTime now) {
+        Instant afterPeriodEnd = Instant.EPOCH;
+        long afterId = 0;
+        int rolledOver = 0;
+        int waveSize = CHUNK_SIZE * PARALLELISM;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                List<ExpiredBudget> expired = jdbcTemplate.query(NEXT_EXPIRED_SQL, new MapSqlParameterSource()
+                                .addValue("now", Timestamp.from(now.toInstant()), Types.TIMESTAMP)
+                                .addValue("afterPeriodEnd", Timestamp.from(afterPeriodEnd), Types.TIMESTAMP)
+                                .addValue("afterId", afterId, Types.BIGINT)
+                                .addValue("limit", waveSize, Types.INTEGER),
+                        (rs, rowNum) -> new ExpiredBudget(rs.getLong("id"),
+                                rs.getObject("period_end", OffsetDateTime.class)));
+                if (expired.isEmpty()) {
+                    break;
+                }
+
+                List<Future<Integer>> chunks = new ArrayList<>();
+                for (int from = 0; from < expired.size(); from += CHUNK_SIZE) {
+                    List<Long> chunk = expired.subList(from, Math.min(from + CHUNK_SIZE, expired.size())).stream()
+                            .map(ExpiredBudget::id)
+                            .toList();
+                    chunks.add(executor.submit(() -> processChunk(chunk, now)));
+                }
+                for (Future<Integer> chunk : chunks) {
+                    rolledOver += chunk.get();
+                }
+
+                ExpiredBudget last = expired.get(expired.size() - 1);
+                afterPeriodEnd = last.periodEnd().toInstant();
+                afterId = last.id();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            log.error("Budget rollover stopped after budget={}, it will be retried", afterId, ex.getCause());
+            return;
+        }
+        if (rolledOver > 0) {
+            log.info("Rolled over {} expired budgets", rolledOver);
+        }
+    }
+
+    private int processChunk(List<Long> budgetIds, OffsetDateTime now) {
+        try {
+            Integer processed = transactionTemplate.execute(status -> budgetService.rollOver(budgetIds, now));
+            return processed == null ? 0 : processed;
+        } catch (RuntimeException ex) {
+            // One broken budget must not hold back the rest of its chunk.
+            int processed = 0;
+            for (Long budgetId : budgetIds) {
+                try {
+                    Integer single = transactionTemplate.execute(status ->
+                            budgetService.rollOver(List.of(budgetId), now));
+                    processed += single == null ? 0 : single;
+                } catch (RuntimeException budgetEx) {
+                    log.warn("Budget {} could not be rolled over: {}", budgetId, budgetEx.getMessage());
+                }
+            }
+            return processed;
+        }
+    }
+
+    private record ExpiredBudget(Long id, OffsetDateTime periodEnd) {
+    }
+}
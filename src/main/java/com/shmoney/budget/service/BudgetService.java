@@ -10,20 +10,19 @@ import com.shmoney.budget.entity.BudgetStatus;
 import com.shmoney.budget.entity.BudgetType;
 import com.shmoney.budget.exception.BudgetNotFoundException;
 import com.shmoney.budget.exception.InvalidBudgetException;
+import com.shmoney.budget.repository.BudgetListRepository;
 import com.shmoney.budget.repository.BudgetRepository;
 import com.shmoney.category.entity.Category;
 import com.shmoney.category.repository.CategoryRepository;
 import com.shmoney.currency.service.CurrencyService;
 import com.shmoney.user.entity.User;
 import com.shmoney.user.service.UserService;
-import jakarta.persistence.criteria.Predicate;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.OffsetDateTime;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,24 +31,33 @@ import org.springframework.transaction.annotation.Transactional;
 public class BudgetService {
 
     private final BudgetRepository budgetRepository;
+    private final BudgetListRepository budgetListRepository;
     private final UserService userService;
     private final CategoryRepository categoryRepository;
     private final CurrencyService currencyService;
     private final BudgetPeriodCalculator periodCalculator;
     private final BudgetSpendingService budgetSpendingService;
+    private final ActiveBudgetIndex activeBudgetIndex;
+    private final BudgetSpentBuffer budgetSpentBuffer;
 
     public BudgetService(BudgetRepository budgetRepository,
+                         BudgetListRepository budgetListRepository,
                          UserService userService,
                          CategoryRepository categoryRepository,
                          CurrencyService currencyService,
                          BudgetPeriodCalculator periodCalculator,
-                         BudgetSpendingService budgetSpendingService) {
+                         BudgetSpendingService budgetSpendingService,
+                         ActiveBudgetIndex activeBudgetIndex,
+                         BudgetSpentBuffer budgetSpentBuffer) {
         this.budgetRepository = budgetRepository;
+        this.budgetListRepository = budgetListRepository;
         this.userService = userService;
         this.categoryRepository = categoryRepository;
         this.currencyService = currencyService;
         this.periodCalculator = periodCalculator;
         this.budgetSpendingService = budgetSpendingService;
+        this.activeBudgetIndex = activeBudgetIndex;
+        this.budgetSpentBuffer = budgetSpentBuffer;
     }
 
     public BudgetResponse create(Long ownerId, BudgetCreateRequest request) {
@@ -77,26 +85,17 @@ public class BudgetService {
 
         Budget saved = budgetRepository.save(budget);
         budgetSpendingService.recalculate(saved);
+        activeBudgetIndex.evict(ownerId);
         return toResponse(saved);
     }
 
+    @Transactional(readOnly = true)
     public List<BudgetResponse> list(Long ownerId, BudgetFilter filter) {
-        refreshBudgets(ownerId);
-        Specification<Budget> specification = buildSpecification(ownerId, filter);
-        return budgetRepository.findAll(specification).stream()
-                .sorted((a, b) -> {
-                    int typeOrder = Integer.compare(periodOrder(a.getPeriodType()), periodOrder(b.getPeriodType()));
-                    if (typeOrder != 0) {
-                        return typeOrder;
-                    }
-                    return a.getCreatedAt().compareTo(b.getCreatedAt());
-                })
-                .map(this::toResponse)
-                .toList();
+        return budgetListRepository.findAll(ownerId, filter);
     }
 
+    @Transactional(readOnly = true)
     public BudgetResponse get(Long ownerId, Long budgetId) {
-        refreshBudgets(ownerId);
         Budget budget = budgetRepository.findByIdAndOwnerId(budgetId, ownerId)
                 .orElseThrow(() -> new BudgetNotFoundException(budgetId));
         return toResponse(budget);
@@ -154,6 +153,7 @@ public class BudgetService {
 
         Budget saved = budgetRepository.save(budget);
         budgetSpendingService.recalculate(saved);
+        activeBudgetIndex.evict(ownerId);
         return toResponse(saved);
     }
 
@@ -171,6 +171,7 @@ public class BudgetService {
         Budget budget = budgetRepository.findByIdAndOwnerId(budgetId, ownerId)
                 .orElseThrow(() -> new BudgetNotFoundException(budgetId));
         budgetRepository.delete(budget);
+        activeBudgetIndex.evict(ownerId);
     }
 
     public BudgetResponse open(Long ownerId, Long budgetId) {
@@ -182,20 +183,27 @@ public class BudgetService {
         budget.setStatus(BudgetStatus.ACTIVE);
         budget.setClosedAt(null);
         budgetRepository.save(budget);
+        activeBudgetIndex.evict(ownerId);
         return toResponse(budget);
     }
 
-    public void refreshBudgets(Long ownerId) {
-        OffsetDateTime now = OffsetDateTime.now();
-        List<Budget> overdue = budgetRepository.findAllByOwnerIdAndStatusAndPeriodEndBefore(ownerId,
-                BudgetStatus.ACTIVE,
-                now);
-        for (Budget budget : overdue) {
+    /**
+     * Closes the given budgets if they are still active and their period ended before {@code now}, opening the
+     * next period of recurring ones. Called by {@link BudgetRolloverJob}; returns the number of budgets closed.
+     */
+    public int rollOver(List<Long> budgetIds, OffsetDateTime now) {
+        int closed = 0;
+        for (Budget budget : budgetRepository.findAllById(budgetIds)) {
+            if (budget.getStatus() != BudgetStatus.ACTIVE || !budget.getPeriodEnd().isBefore(now)) {
+                continue;
+            }
             closeBudget(budget, now);
             if (budget.getBudgetType() == BudgetType.RECURRING) {
                 createNextBudget(budget);
             }
+            closed++;
         }
+        return closed;
     }
 
     private void createNextBudget(Budget closedBudget) {
@@ -226,13 +234,15 @@ public class BudgetService {
         next.setPercentSpent(BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP));
         next.setStatus(BudgetStatus.ACTIVE);
         next.setCategories(new HashSet<>(closedBudget.getCategories()));
-        budgetRepository.save(next);
+        // Transactions may already exist in the new period, e.g. when catching up after downtime.
+        budgetSpendingService.recalculate(budgetRepository.save(next));
     }
 
     private void closeBudget(Budget budget, OffsetDateTime closedAt) {
         budget.setStatus(BudgetStatus.CLOSED);
         budget.setClosedAt(closedAt);
         budgetRepository.save(budget);
+        activeBudgetIndex.evict(budget.getOwner().getId());
     }
 
     private Set<Category> loadCategories(Long ownerId, List<Long> ids) {
@@ -246,45 +256,18 @@ public class BudgetService {
         return new HashSet<>(categories);
     }
 
-    private Specification<Budget> buildSpecification(Long ownerId, BudgetFilter filter) {
-        return (root, query, cb) -> {
-            Predicate predicate = cb.equal(root.get("owner").get("id"), ownerId);
-            if (filter != null) {
-                if (filter.status() != null) {
-                    predicate = cb.and(predicate, cb.equal(root.get("status"), filter.status()));
-                }
-                if (filter.periodType() != null) {
-                    predicate = cb.and(predicate, cb.equal(root.get("periodType"), filter.periodType()));
-                }
-                if (filter.budgetType() != null) {
-                    predicate = cb.and(predicate, cb.equal(root.get("budgetType"), filter.budgetType()));
-                }
-                if (filter.from() != null) {
-                    predicate = cb.and(predicate, cb.greaterThanOrEqualTo(root.get("periodEnd"), filter.from()));
-                }
-                if (filter.to() != null) {
-                    predicate = cb.and(predicate, cb.lessThanOrEqualTo(root.get("periodStart"), filter.to()));
-                }
-            }
-            query.distinct(true);
-            return predicate;
-        };
-    }
-
-    private int periodOrder(BudgetPeriodType type) {
-        return switch (type) {
-            case CUSTOM -> 0;
-            case WEEK -> 1;
-            case MONTH -> 2;
-            case YEAR -> 3;
-        };
-    }
-
     private BudgetResponse toResponse(Budget budget) {
         List<Long> categoryIds = budget.getCategories().stream()
                 .map(Category::getId)
                 .sorted()
                 .toList();
+        BigDecimal spentAmount = budget.getSpentAmount();
+        BigDecimal percentSpent = budget.getPercentSpent();
+        BigDecimal pending = budgetSpentBuffer.pendingDeltas(List.of(budget.getId())).get(budget.getId());
+        if (pending != null) {
+            spentAmount = Budget.spentWithDelta(spentAmount, pending);
+            percentSpent = Budget.percentOf(spentAmount, budget.getAmountLimit());
+        }
         return new BudgetResponse(
                 budget.getId(),
                 budget.getName(),
@@ -294,8 +277,8 @@ public class BudgetService {
                 budget.getBudgetType(),
                 budget.getCurrencyCode(),
                 budget.getAmountLimit(),
-                budget.getSpentAmount(),
-                budget.getPercentSpent(),
+                spentAmount,
+                percentSpent,
                 budget.getStatus(),
                 budget.getClosedAt(),
                 budget.getCreatedAt(),
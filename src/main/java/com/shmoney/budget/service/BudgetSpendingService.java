@@ -3,14 +3,18 @@ package com.shmoney.budget.service;
 import com.shmoney.budget.entity.Budget;
 import com.shmoney.budget.entity.BudgetStatus;
 import com.shmoney.budget.repository.BudgetRepository;
+import com.shmoney.common.aggregation.AmountTotal;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
 import com.shmoney.currency.service.ExchangeRateService;
 import com.shmoney.transaction.category.entity.CategoryTransaction;
 import com.shmoney.transaction.category.entity.CategoryTransactionType;
-import com.shmoney.transaction.category.repository.CategoryTransactionRepository;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,59 +22,82 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class BudgetSpendingService {
 
-    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
-
     private final BudgetRepository budgetRepository;
-    private final CategoryTransactionRepository transactionRepository;
     private final ExchangeRateService exchangeRateService;
+    private final EncryptedAmountAggregator amountAggregator;
+    private final ActiveBudgetIndex activeBudgetIndex;
+    private final BudgetSpentBuffer budgetSpentBuffer;
 
     public BudgetSpendingService(BudgetRepository budgetRepository,
-                                 CategoryTransactionRepository transactionRepository,
-                                 ExchangeRateService exchangeRateService) {
+                                 ExchangeRateService exchangeRateService,
+                                 EncryptedAmountAggregator amountAggregator,
+                                 ActiveBudgetIndex activeBudgetIndex,
+                                 BudgetSpentBuffer budgetSpentBuffer) {
         this.budgetRepository = budgetRepository;
-        this.transactionRepository = transactionRepository;
         this.exchangeRateService = exchangeRateService;
+        this.amountAggregator = amountAggregator;
+        this.activeBudgetIndex = activeBudgetIndex;
+        this.budgetSpentBuffer = budgetSpentBuffer;
     }
 
     public void handleTransactionCreated(CategoryTransaction transaction) {
-        TransactionSnapshot snapshot = TransactionSnapshot.from(transaction);
-        applyDelta(snapshot, true);
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        collectDeltas(TransactionSnapshot.from(transaction), true, deltas);
+        budgetSpentBuffer.append(deltas);
+    }
+
+    public void handleTransactionsCreated(List<TransactionSnapshot> snapshots) {
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        for (TransactionSnapshot snapshot : snapshots) {
+            collectDeltas(snapshot, true, deltas);
+        }
+        budgetSpentBuffer.append(deltas);
     }
 
     public void handleTransactionDeleted(CategoryTransaction transaction) {
-        TransactionSnapshot snapshot = TransactionSnapshot.from(transaction);
-        applyDelta(snapshot, false);
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        collectDeltas(TransactionSnapshot.from(transaction), false, deltas);
+        budgetSpentBuffer.append(deltas);
     }
 
+    // The revert and the new amount are netted before the zero clamp is applied, just as recalculate clamps only
+    // its final total. Clamping the revert on its own would leave part of the old amount counted.
     public void handleTransactionUpdated(TransactionSnapshot before, TransactionSnapshot after) {
-        if (before != null) {
-            applyDelta(before, false);
-        }
-        if (after != null) {
-            applyDelta(after, true);
-        }
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        collectDeltas(before, false, deltas);
+        collectDeltas(after, true, deltas);
+        budgetSpentBuffer.append(deltas);
     }
 
     public void recalculate(Budget budget) {
         if (budget.getCategories().isEmpty()) {
             return;
         }
+        // The full recalculation already counts every transaction, so buffered deltas would count them twice.
+        if (budget.getId() != null) {
+            budgetSpentBuffer.discard(budget.getId());
+        }
         List<Long> categoryIds = budget.getCategories().stream()
                 .map(category -> category.getId())
                 .toList();
-        List<CategoryTransaction> transactions = transactionRepository
-                .findAllByUserIdAndCategoryIdInAndOccurredAtBetween(
-                        budget.getOwner().getId(),
-                        categoryIds,
-                        budget.getPeriodStart(),
-                        budget.getPeriodEnd()
-                );
+        Map<AmountKey, AmountTotal> totals = amountAggregator.aggregateCategoryTransactions(
+                budget.getOwner().getId(),
+                categoryIds,
+                budget.getPeriodStart(),
+                budget.getPeriodEnd(),
+                row -> new AmountKey(CategoryTransactionType.valueOf(row.type()), row.currencyCode(),
+                        row.currencyCode().equalsIgnoreCase(budget.getCurrencyCode())
+                                ? null
+                                : ExchangeRateService.rateDay(row.occurredAt()))
+        );
         BigDecimal total = BigDecimal.ZERO;
-        for (CategoryTransaction tx : transactions) {
-            BigDecimal amount = convert(tx.getAmount(), tx.getCurrency().getCode(), budget.getCurrencyCode());
-            if (tx.getType() == CategoryTransactionType.EXPENSE) {
+        for (Map.Entry<AmountKey, AmountTotal> entry : totals.entrySet()) {
+            AmountKey key = entry.getKey();
+            BigDecimal amount = convert(entry.getValue().amount(), key.currencyCode(), budget.getCurrencyCode(),
+                    key.rateDay());
+            if (key.type() == CategoryTransactionType.EXPENSE) {
                 total = total.add(amount);
-            } else if (tx.getType() == CategoryTransactionType.INCOME) {
+            } else if (key.type() == CategoryTransactionType.INCOME) {
                 total = total.subtract(amount);
             }
         }
@@ -78,15 +105,15 @@ public class BudgetSpendingService {
             total = BigDecimal.ZERO;
         }
         budget.setSpentAmount(total);
-        budget.setPercentSpent(calculatePercent(total, budget.getAmountLimit()));
+        budget.setPercentSpent(Budget.percentOf(total, budget.getAmountLimit()));
         budgetRepository.save(budget);
     }
 
-    private void applyDelta(TransactionSnapshot snapshot, boolean addition) {
+    private void collectDeltas(TransactionSnapshot snapshot, boolean addition, Map<Long, BigDecimal> deltas) {
         if (snapshot == null) {
             return;
         }
-        List<Budget> budgets = budgetRepository.findActiveBudgetsForCategory(
+        List<ActiveBudgetIndex.BudgetWindow> budgets = activeBudgetIndex.find(
                 snapshot.userId(),
                 snapshot.categoryId(),
                 snapshot.occurredAt()
@@ -94,38 +121,29 @@ public class BudgetSpendingService {
         if (budgets.isEmpty()) {
             return;
         }
-        for (Budget budget : budgets) {
-            BigDecimal converted = convert(snapshot.amount(), snapshot.currencyCode(), budget.getCurrencyCode());
-            int typeMultiplier = snapshot.type() == CategoryTransactionType.INCOME ? -1 : 1;
-            int changeMultiplier = addition ? 1 : -1;
+        LocalDate rateDay = ExchangeRateService.rateDay(snapshot.occurredAt());
+        int typeMultiplier = snapshot.type() == CategoryTransactionType.INCOME ? -1 : 1;
+        int changeMultiplier = addition ? 1 : -1;
+        for (ActiveBudgetIndex.BudgetWindow budget : budgets) {
+            BigDecimal converted = convert(snapshot.amount(), snapshot.currencyCode(), budget.currencyCode(),
+                    rateDay);
             BigDecimal delta = converted.multiply(BigDecimal.valueOf(typeMultiplier * changeMultiplier));
-            BigDecimal newSpent = budget.getSpentAmount().add(delta);
-            if (newSpent.compareTo(BigDecimal.ZERO) < 0) {
-                newSpent = BigDecimal.ZERO;
-            }
-            budget.setSpentAmount(newSpent);
-            budget.setPercentSpent(calculatePercent(newSpent, budget.getAmountLimit()));
-            budgetRepository.save(budget);
+            deltas.merge(budget.budgetId(), delta, BigDecimal::add);
         }
     }
 
-    private BigDecimal convert(BigDecimal amount, String from, String to) {
+    // Amounts are converted at the rate of the day they were recorded.
+    private BigDecimal convert(BigDecimal amount, String from, String to, LocalDate rateDay) {
         if (amount == null) {
             return BigDecimal.ZERO;
         }
         if (from.equalsIgnoreCase(to)) {
             return amount.setScale(2, RoundingMode.HALF_UP);
         }
-        return exchangeRateService.convert(amount, from, to);
+        return exchangeRateService.snapshotAsOf(rateDay).convert(amount, from, to);
     }
 
-    private BigDecimal calculatePercent(BigDecimal spent, BigDecimal limit) {
-        if (spent == null || limit == null || limit.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
-        }
-        return spent.divide(limit, 4, RoundingMode.HALF_UP)
-                .multiply(ONE_HUNDRED)
-                .setScale(2, RoundingMode.HALF_UP);
+    private record AmountKey(CategoryTransactionType type, String currencyCode, LocalDate rateDay) {
     }
 
     public record TransactionSnapshot(Long userId,
@@ -0,0 +1,180 @@
+package com.shmoney.budget.service;
+
+import com.shmoney.budget.entity.Budget;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for budget spent amounts. Transaction writes only insert their deltas, in the same
+ * database transaction, so they never contend on the budget row and survive a crash. A periodic flush folds
+ * the pending deltas into budgets.spent_amount, one update per budget per flush. Reads add the deltas that are
+ * still pending.
+ */
+@Component
+public class BudgetSpentBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetSpentBuffer.class);
+
+    private static final int FLUSH_BATCH_SIZE = 5_000;
+
+    private static final String APPEND_SQL = """
+            INSERT INTO budget_spent_deltas (budget_id, delta)
+            VALUES (:budgetId, :delta)
+            """;
+
+    private static final String PENDING_SQL = """
+            SELECT budget_id, delta
+            FROM budget_spent_deltas
+            WHERE budget_id IN (:budgetIds)
+            """;
+
+    private static final String LOCK_FOR_RECALCULATION_SQL = "SELECT id FROM budgets WHERE id = :budgetId FOR UPDATE";
+
+    private static final String DISCARD_SQL = "DELETE FROM budget_spent_deltas WHERE budget_id = :budgetId";
+
+    // SKIP LOCKED lets flushes on several instances take disjoint batches.
+    private static final String NEXT_BATCH_SQL = """
+            SELECT id, budget_id, delta
+            FROM budget_spent_deltas
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    // NO KEY UPDATE does not wait for open delta inserts; budgets locked by a recalculation are left for later.
+    private static final String LOCK_BUDGETS_SQL = """
+            SELECT id, amount_limit, spent_amount
+            FROM budgets
+            WHERE id IN (:budgetIds)
+            ORDER BY id
+            FOR NO KEY UPDATE SKIP LOCKED
+            """;
+
+    private static final String UPDATE_SPENT_SQL = """
+            UPDATE budgets
+            SET spent_amount = :spentAmount,
+                percent_spent = :percentSpent,
+                updated_at = NOW()
+            WHERE id = :id
+            """;
+
+    private static final String DELETE_FLUSHED_SQL = "DELETE FROM budget_spent_deltas WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BudgetSpentBuffer(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void append(Map<Long, BigDecimal> deltas) {
+        List<SqlParameterSource> rows = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, BigDecimal> delta : deltas.entrySet()) {
+            if (delta.getValue().signum() == 0) {
+                continue;
+            }
+            rows.add(new MapSqlParameterSource()
+                    .addValue("budgetId", delta.getKey(), Types.BIGINT)
+                    .addValue("delta", EncryptedBigDecimalConverter.encryptValue(delta.getValue()), Types.VARCHAR));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPEND_SQL, rows.toArray(SqlParameterSource[]::new));
+        }
+    }
+
+    public Map<Long, BigDecimal> pendingDeltas(Collection<Long> budgetIds) {
+        Map<Long, BigDecimal> pending = new HashMap<>();
+        if (budgetIds.isEmpty()) {
+            return pending;
+        }
+        jdbcTemplate.query(PENDING_SQL, new MapSqlParameterSource("budgetIds", budgetIds), (RowCallbackHandler) rs ->
+                pending.merge(rs.getLong("budget_id"),
+                        EncryptedBigDecimalConverter.decryptValue(rs.getString("delta")), BigDecimal::add));
+        return pending;
+    }
+
+    /**
+     * Drops the pending deltas of a budget whose spent amount is being recalculated from its transactions. The
+     * budget row is locked first, in the caller's transaction: the lock conflicts with the key-share lock every
+     * delta insert takes through its foreign key, so open writes commit before their deltas are dropped and
+     * later writes wait until the recalculation has committed.
+     */
+    public void discard(Long budgetId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("budgetId", budgetId, Types.BIGINT);
+        jdbcTemplate.queryForList(LOCK_FOR_RECALCULATION_SQL, params, Long.class);
+        jdbcTemplate.update(DISCARD_SQL, params);
+    }
+
+    @Scheduled(fixedDelay = 10_000)
+    public void flush() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int flushed;
+            do {
+                Integer batch = transactionTemplate.execute(status -> flushBatch());
+                flushed = batch == null ? 0 : batch;
+            } while (flushed == FLUSH_BATCH_SIZE);
+        } catch (RuntimeException ex) {
+            log.error("Budget spent flush failed, pending deltas are kept", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int flushBatch() {
+        Map<Long, List<Long>> deltaIds = new HashMap<>();
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        jdbcTemplate.query(NEXT_BATCH_SQL, new MapSqlParameterSource()
+                .addValue("limit", FLUSH_BATCH_SIZE, Types.INTEGER), (RowCallbackHandler) rs -> {
+            long budgetId = rs.getLong("budget_id");
+            deltaIds.computeIfAbsent(budgetId, id -> new ArrayList<>()).add(rs.getLong("id"));
+            deltas.merge(budgetId, EncryptedBigDecimalConverter.decryptValue(rs.getString("delta")), BigDecimal::add);
+        });
+        if (deltaIds.isEmpty()) {
+            return 0;
+        }
+
+        List<SqlParameterSource> updates = jdbcTemplate.query(LOCK_BUDGETS_SQL,
+                new MapSqlParameterSource("budgetIds", List.copyOf(deltas.keySet())), (rs, rowNum) -> {
+                    long id = rs.getLong("id");
+                    BigDecimal limit = EncryptedBigDecimalConverter.decryptValue(rs.getString("amount_limit"));
+                    BigDecimal spent = Budget.spentWithDelta(
+                            EncryptedBigDecimalConverter.decryptValue(rs.getString("spent_amount")), deltas.get(id));
+                    return new MapSqlParameterSource()
+                            .addValue("id", id, Types.BIGINT)
+                            .addValue("spentAmount", EncryptedBigDecimalConverter.encryptValue(spent), Types.VARCHAR)
+                            .addValue("percentSpent", Budget.percentOf(spent, limit), Types.NUMERIC);
+                });
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SPENT_SQL, updates.toArray(SqlParameterSource[]::new));
+        List<Long> flushedIds = updates.stream()
+                .flatMap(update -> deltaIds.get((Long) update.getValue("id")).stream())
+                .toList();
+        jdbcTemplate.update(DELETE_FLUSHED_SQL, new MapSqlParameterSource("ids", flushedIds));
+        return flushedIds.size();
+    }
+}
@@ -12,10 +12,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -55,6 +60,18 @@ public class CategoryService {
                 .orElseThrow(() -> new CategoryNotFoundException(id));
     }
 
+    @Transactional(readOnly = true)
+    public Map<Long, Category> getOwnedCategories(Collection<Long> ids, Long ownerId) {
+        Map<Long, Category> categories = categoryRepository.findAllByOwnerIdAndIdIn(ownerId, ids).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        for (Long id : ids) {
+            if (!categories.containsKey(id)) {
+                throw new CategoryNotFoundException(id);
+            }
+        }
+        return categories;
+    }
+
     public Category update(Category category) {
         Category saved = categoryRepository.save(category);
         invalidateAnalytics(saved);
@@ -93,10 +110,9 @@ public class CategoryService {
 
     private OffsetDateTime monthStart(OffsetDateTime timestamp) {
         OffsetDateTime base = timestamp == null ? OffsetDateTime.now() : timestamp;
-        return base.withDayOfMonth(1)
-                .withHour(0)
-                .withMinute(0)
-                .withSecond(0)
-                .withNano(0);
+        return base.atZoneSameInstant(ZoneId.systemDefault())
+                .withDayOfMonth(1)
+                .truncatedTo(ChronoUnit.DAYS)
+                .toOffsetDateTime();
     }
 }
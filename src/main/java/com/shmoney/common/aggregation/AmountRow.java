@@ -0,0 +1,6 @@
+package com.shmoney.common.aggregation;
+
+import java.time.OffsetDateTime;
+
+public record AmountRow(long id, String type, Long groupId, String currencyCode, OffsetDateTime occurredAt) {
+}
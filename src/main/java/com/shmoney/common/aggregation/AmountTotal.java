@@ -0,0 +1,10 @@
+package com.shmoney.common.aggregation;
+
+import java.math.BigDecimal;
+
+public record AmountTotal(long minorUnits, long count) {
+
+    public BigDecimal amount() {
+        return BigDecimal.valueOf(minorUnits, EncryptedAmountAggregator.AMOUNT_SCALE);
+    }
+}
@@ -0,0 +1,170 @@
+package com.shmoney.common.aggregation;
+
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+@Component
+public class EncryptedAmountAggregator {
+
+    static final int AMOUNT_SCALE = 2;
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final int CHUNK_SIZE = 2_048;
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private static final String CATEGORY_TRANSACTIONS_SQL = """
+            SELECT ct.id,
+                   ct.type,
+                   ct.category_id AS group_id,
+                   curr.code AS currency_code,
+                   ct.amount,
+                   ct.occurred_at
+            FROM category_transactions ct
+            JOIN currencies curr ON curr.id = ct.currency_id
+            WHERE ct.user_id = :userId
+              AND ((:fromDate)::TIMESTAMPTZ IS NULL OR ct.occurred_at >= (:fromDate)::TIMESTAMPTZ)
+              AND ((:toDate)::TIMESTAMPTZ IS NULL OR ct.occurred_at <= (:toDate)::TIMESTAMPTZ)
+            """;
+
+    private static final String DEBT_TRANSACTIONS_SQL = """
+            SELECT dt.id,
+                   dt.direction AS type,
+                   dt.counterparty_id AS group_id,
+                   curr.code AS currency_code,
+                   dt.amount,
+                   dt.occurred_at
+            FROM debt_transactions dt
+            JOIN currencies curr ON curr.id = dt.currency_id
+            WHERE dt.counterparty_id = :counterpartyId
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public EncryptedAmountAggregator(DataSource dataSource, EntityManager entityManager) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(FETCH_SIZE);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.entityManager = entityManager;
+    }
+
+    public <K> Map<K, AmountTotal> aggregateCategoryTransactions(Long userId,
+                                                                 Collection<Long> categoryIds,
+                                                                 OffsetDateTime from,
+                                                                 OffsetDateTime to,
+                                                                 Function<AmountRow, K> keyExtractor) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId, Types.BIGINT)
+                .addValue("fromDate", toTimestamp(from), Types.TIMESTAMP)
+                .addValue("toDate", toTimestamp(to), Types.TIMESTAMP);
+        String sql = CATEGORY_TRANSACTIONS_SQL;
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            params.addValue("categoryIds", categoryIds);
+            sql += "  AND ct.category_id IN (:categoryIds)\n";
+        }
+        return aggregate(sql, params, keyExtractor);
+    }
+
+    public <K> Map<K, AmountTotal> aggregateDebtTransactions(Long counterpartyId,
+                                                             Function<AmountRow, K> keyExtractor) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("counterpartyId", counterpartyId, Types.BIGINT);
+        return aggregate(DEBT_TRANSACTIONS_SQL, params, keyExtractor);
+    }
+
+    private <K> Map<K, AmountTotal> aggregate(String sql,
+                                              MapSqlParameterSource params,
+                                              Function<AmountRow, K> keyExtractor) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+        Accumulator<K> accumulator = new Accumulator<>(keyExtractor);
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> accumulator.add(new AmountRow(
+                rs.getLong("id"),
+                rs.getString("type"),
+                rs.getObject("group_id", Long.class),
+                rs.getString("currency_code"),
+                rs.getObject("occurred_at", OffsetDateTime.class)
+        ), rs.getString("amount")));
+        return accumulator.finish();
+    }
+
+    static long toMinorUnits(String encrypted) {
+        BigDecimal value = EncryptedBigDecimalConverter.decryptValue(encrypted);
+        if (value == null) {
+            return 0L;
+        }
+        return value.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private Timestamp toTimestamp(OffsetDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.from(dateTime.toInstant());
+    }
+
+    private static final class Accumulator<K> {
+        private final Function<AmountRow, K> keyExtractor;
+        private final Map<K, long[]> totals = new HashMap<>();
+        private final AmountRow[] rows = new AmountRow[CHUNK_SIZE];
+        private final String[] amounts = new String[CHUNK_SIZE];
+        private final long[] minorUnits = new long[CHUNK_SIZE];
+        private int size;
+
+        private Accumulator(Function<AmountRow, K> keyExtractor) {
+            this.keyExtractor = keyExtractor;
+        }
+
+        void add(AmountRow row, String amount) {
+            rows[size] = row;
+            amounts[size] = amount;
+            size++;
+            if (size == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        Map<K, AmountTotal> finish() {
+            flush();
+            Map<K, AmountTotal> result = new LinkedHashMap<>();
+            totals.forEach((key, total) -> result.put(key, new AmountTotal(total[0], total[1])));
+            return result;
+        }
+
+        private void flush() {
+            if (size == 0) {
+                return;
+            }
+            IntStream indexes = IntStream.range(0, size);
+            if (size >= PARALLEL_THRESHOLD) {
+                indexes = indexes.parallel();
+            }
+            indexes.forEach(i -> minorUnits[i] = toMinorUnits(amounts[i]));
+            for (int i = 0; i < size; i++) {
+                long[] total = totals.computeIfAbsent(keyExtractor.apply(rows[i]), key -> new long[2]);
+                total[0] = Math.addExact(total[0], minorUnits[i]);
+                total[1]++;
+                rows[i] = null;
+                amounts[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
@@ -3,21 +3,31 @@ package com.shmoney.common.crypto;
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
 
 final class AesGcmCipher {
 
     static final String PREFIX = "ENC:v1:";
+    static final String COMPACT_PREFIX = "~";
+    static final int MAX_COMPACT_SCALE = 15;
 
     private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int IV_LENGTH = 12;
     private static final int TAG_LENGTH = 128;
+    private static final int COMPACT_VERSION = 0x20;
+    private static final int HEADER_LENGTH = 1;
+    private static final int MAX_REUSED_PAYLOAD = 4096;
 
     private final SecretKeySpec keySpec;
     private final SecureRandom secureRandom = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(AesGcmCipher::newCipher);
+    private final ThreadLocal<byte[]> payloads = ThreadLocal.withInitial(() -> new byte[256]);
 
     AesGcmCipher(byte[] key) {
         if (key == null || key.length == 0) {
@@ -31,14 +41,16 @@ final class AesGcmCipher {
             byte[] iv = new byte[IV_LENGTH];
             secureRandom.nextBytes(iv);
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            Cipher cipher = ciphers.get();
             cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, iv));
-            byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            ByteBuffer buffer = ByteBuffer.allocate(iv.length + encrypted.length);
-            buffer.put(iv);
-            buffer.put(encrypted);
-            return PREFIX + Base64.getEncoder().encodeToString(buffer.array());
+            byte[] input = plainText.getBytes(StandardCharsets.UTF_8);
+            byte[] payload = new byte[IV_LENGTH + cipher.getOutputSize(input.length)];
+            System.arraycopy(iv, 0, payload, 0, IV_LENGTH);
+            int written = cipher.doFinal(input, 0, input.length, payload, IV_LENGTH);
+            if (IV_LENGTH + written != payload.length) {
+                throw new IllegalStateException("Unexpected ciphertext length");
+            }
+            return PREFIX + Base64.getEncoder().encodeToString(payload);
         } catch (Exception e) {
             throw new IllegalStateException("Failed to encrypt value", e);
         }
@@ -52,22 +64,105 @@ final class AesGcmCipher {
             throw new IllegalArgumentException("Value is not encrypted");
         }
         try {
-            byte[] payload = Base64.getDecoder().decode(encrypted.substring(PREFIX.length()));
+            byte[] encoded = encrypted.substring(PREFIX.length()).getBytes(StandardCharsets.ISO_8859_1);
+            byte[] payload = payloadBuffer(encoded.length);
+            int length = Base64.getDecoder().decode(encoded, payload);
+            if (length < IV_LENGTH + TAG_LENGTH / 8) {
+                throw new IllegalArgumentException("Ciphertext is too short");
+            }
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, payload, 0, IV_LENGTH));
+            byte[] decrypted = cipher.doFinal(payload, IV_LENGTH, length - IV_LENGTH);
+            return new String(decrypted, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to decrypt value", e);
+        }
+    }
+
+    String encryptAmount(BigDecimal value) {
+        BigDecimal normalized = value.scale() < 0 ? value.setScale(0) : value;
+        if (!supportsCompact(normalized)) {
+            throw new IllegalArgumentException("Amount does not fit the compact format");
+        }
+        try {
+            byte[] payload = new byte[HEADER_LENGTH + IV_LENGTH + Long.BYTES + TAG_LENGTH / 8];
+            payload[0] = (byte) (COMPACT_VERSION | normalized.scale());
             byte[] iv = new byte[IV_LENGTH];
-            byte[] ciphertext = new byte[payload.length - IV_LENGTH];
-            System.arraycopy(payload, 0, iv, 0, IV_LENGTH);
-            System.arraycopy(payload, IV_LENGTH, ciphertext, 0, ciphertext.length);
+            secureRandom.nextBytes(iv);
+            System.arraycopy(iv, 0, payload, HEADER_LENGTH, IV_LENGTH);
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, iv));
-            byte[] decrypted = cipher.doFinal(ciphertext);
-            return new String(decrypted, StandardCharsets.UTF_8);
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH, iv));
+            cipher.updateAAD(payload, 0, HEADER_LENGTH);
+            byte[] plain = ByteBuffer.allocate(Long.BYTES).putLong(normalized.unscaledValue().longValue()).array();
+            cipher.doFinal(plain, 0, plain.length, payload, HEADER_LENGTH + IV_LENGTH);
+            return COMPACT_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(payload);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encrypt value", e);
+        }
+    }
+
+    BigDecimal decryptAmount(String encrypted) {
+        if (!isCompact(encrypted)) {
+            throw new IllegalArgumentException("Value is not in compact format");
+        }
+        try {
+            byte[] encoded = encrypted.substring(COMPACT_PREFIX.length()).getBytes(StandardCharsets.ISO_8859_1);
+            byte[] payload = payloadBuffer(encoded.length);
+            int length = Base64.getUrlDecoder().decode(encoded, payload);
+            if (length < HEADER_LENGTH + IV_LENGTH + TAG_LENGTH / 8) {
+                throw new IllegalArgumentException("Ciphertext is too short");
+            }
+            int header = payload[0] & 0xFF;
+            if ((header & 0xF0) != COMPACT_VERSION) {
+                throw new IllegalArgumentException("Unsupported ciphertext version");
+            }
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, keySpec,
+                    new GCMParameterSpec(TAG_LENGTH, payload, HEADER_LENGTH, IV_LENGTH));
+            cipher.updateAAD(payload, 0, HEADER_LENGTH);
+            int offset = HEADER_LENGTH + IV_LENGTH;
+            byte[] plain = cipher.doFinal(payload, offset, length - offset);
+            return BigDecimal.valueOf(ByteBuffer.wrap(plain).getLong(), header & 0x0F);
         } catch (Exception e) {
             throw new IllegalStateException("Failed to decrypt value", e);
         }
     }
 
+    static boolean supportsCompact(BigDecimal value) {
+        int scale = Math.max(value.scale(), 0);
+        BigInteger unscaled = value.setScale(scale).unscaledValue();
+        return scale <= MAX_COMPACT_SCALE && unscaled.bitLength() < Long.SIZE;
+    }
+
     boolean isEncrypted(String value) {
-        return value != null && value.startsWith(PREFIX);
+        return value != null && (value.startsWith(PREFIX) || value.startsWith(COMPACT_PREFIX));
+    }
+
+    boolean isCompact(String value) {
+        return value != null && value.startsWith(COMPACT_PREFIX);
+    }
+
+    // Decoded payloads are only read by the cipher within the same call, so one buffer per thread is enough.
+    // Oversized values get a one-off array to keep the retained buffer small.
+    private byte[] payloadBuffer(int encodedLength) {
+        int required = (encodedLength + 3) / 4 * 3;
+        if (required > MAX_REUSED_PAYLOAD) {
+            return new byte[required];
+        }
+        byte[] buffer = payloads.get();
+        if (buffer.length < required) {
+            buffer = new byte[required];
+            payloads.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM is not available", e);
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.shmoney.common.crypto;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Function;
+
+public final class DecryptedAmountCache {
+
+    public static final String NAME = "decryptedAmounts";
+
+    // Approximate retained bytes: ciphertext chars plus entry and BigDecimal overhead.
+    private static final long MAX_WEIGHT_BYTES = 32L * 1024 * 1024;
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private static final Cache<String, BigDecimal> CACHE = Caffeine.newBuilder()
+            .maximumWeight(MAX_WEIGHT_BYTES)
+            .weigher((String ciphertext, BigDecimal amount) -> ciphertext.length() * 2 + ENTRY_OVERHEAD_BYTES)
+            .expireAfterAccess(Duration.ofHours(6))
+            .recordStats()
+            .build();
+
+    private DecryptedAmountCache() {
+    }
+
+    public static BigDecimal get(String ciphertext, Function<String, BigDecimal> decryptor) {
+        return CACHE.get(ciphertext, decryptor);
+    }
+
+    public static void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+
+    public static Cache<String, BigDecimal> cache() {
+        return CACHE;
+    }
+}
@@ -0,0 +1,135 @@
+package com.shmoney.common.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class EncryptedAmountMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(EncryptedAmountMigrationJob.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final List<MigrationTarget> TARGETS = List.of(
+            new MigrationTarget("wallets", List.of("id"), "balance"),
+            new MigrationTarget("wallet_transactions", List.of("id"), "source_amount"),
+            new MigrationTarget("wallet_transactions", List.of("id"), "target_amount"),
+            new MigrationTarget("category_transactions", List.of("id"), "amount"),
+            new MigrationTarget("debt_transactions", List.of("id"), "amount"),
+            new MigrationTarget("debt_counterparties", List.of("id"), "owed_to_me"),
+            new MigrationTarget("debt_counterparties", List.of("id"), "i_owe"),
+            new MigrationTarget("budgets", List.of("id"), "amount_limit"),
+            new MigrationTarget("budgets", List.of("id"), "spent_amount"),
+            new MigrationTarget("analytics_monthly_summary", List.of("id"), "total_expense"),
+            new MigrationTarget("analytics_monthly_summary", List.of("id"), "total_income"),
+            new MigrationTarget("analytics_monthly_summary", List.of("id"), "cash_flow_amount"),
+            new MigrationTarget("transaction_feed_entries", List.of("entry_source", "entry_id"), "amount"),
+            new MigrationTarget("wallet_ledger_entries", List.of("id"), "delta"),
+            new MigrationTarget("wallet_balance_checkpoints", List.of("id"), "balance")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public EncryptedAmountMigrationJob(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "0 0 4 * * *")
+    public void migrateLegacyCiphertexts() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (MigrationTarget target : TARGETS) {
+                try {
+                    int migrated = migrate(target);
+                    if (migrated > 0) {
+                        log.info("Re-encrypted {} values in {}.{} to compact format",
+                                migrated, target.table(), target.valueColumn());
+                    }
+                } catch (RuntimeException ex) {
+                    log.error("Failed to re-encrypt {}.{}", target.table(), target.valueColumn(), ex);
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    int migrate(MigrationTarget target) {
+        String keys = String.join(", ", target.keyColumns());
+        String keyPlaceholders = String.join(", ", target.keyColumns().stream().map(column -> "?").toList());
+        String firstBatchSql = "SELECT " + keys + ", " + target.valueColumn() + " FROM " + target.table()
+                + " ORDER BY " + keys + " LIMIT " + BATCH_SIZE;
+        String nextBatchSql = "SELECT " + keys + ", " + target.valueColumn() + " FROM " + target.table()
+                + " WHERE (" + keys + ") > (" + keyPlaceholders + ")"
+                + " ORDER BY " + keys + " LIMIT " + BATCH_SIZE;
+        String updateSql = "UPDATE " + target.table() + " SET " + target.valueColumn() + " = ? WHERE "
+                + String.join(" AND ", target.keyColumns().stream().map(column -> column + " = ?").toList())
+                + " AND " + target.valueColumn() + " = ?";
+
+        int keyCount = target.keyColumns().size();
+        Object[] lastKey = null;
+        int migrated = 0;
+        while (true) {
+            List<Object[]> rows = lastKey == null
+                    ? jdbcTemplate.query(firstBatchSql, (rs, rowNum) -> readRow(rs, keyCount))
+                    : jdbcTemplate.query(nextBatchSql, (rs, rowNum) -> readRow(rs, keyCount), lastKey);
+            if (rows.isEmpty()) {
+                return migrated;
+            }
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Object[] row : rows) {
+                String current = (String) row[keyCount];
+                if (current == null || !EncryptionContext.isEncrypted(current)
+                        || EncryptionContext.isCompactFormat(current)) {
+                    continue;
+                }
+                String reEncrypted = EncryptionContext.encryptAmount(EncryptionContext.decryptAmount(current));
+                if (!EncryptionContext.isCompactFormat(reEncrypted)) {
+                    continue;
+                }
+                Object[] args = new Object[keyCount + 2];
+                args[0] = reEncrypted;
+                System.arraycopy(row, 0, args, 1, keyCount);
+                args[keyCount + 1] = current;
+                updates.add(args);
+            }
+            if (!updates.isEmpty()) {
+                for (int updated : jdbcTemplate.batchUpdate(updateSql, updates)) {
+                    migrated += Math.max(updated, 0);
+                }
+            }
+
+            Object[] last = rows.get(rows.size() - 1);
+            lastKey = new Object[keyCount];
+            System.arraycopy(last, 0, lastKey, 0, keyCount);
+            if (rows.size() < BATCH_SIZE) {
+                return migrated;
+            }
+        }
+    }
+
+    private Object[] readRow(ResultSet rs, int keyCount) throws SQLException {
+        Object[] row = new Object[keyCount + 1];
+        for (int i = 0; i < keyCount; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        row[keyCount] = rs.getString(keyCount + 1);
+        return row;
+    }
+
+    record MigrationTarget(String table, List<String> keyColumns, String valueColumn) {
+    }
+}
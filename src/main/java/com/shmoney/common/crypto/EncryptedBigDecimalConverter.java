@@ -4,16 +4,33 @@ import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
 
 @Converter
 public class EncryptedBigDecimalConverter implements AttributeConverter<BigDecimal, String> {
     
+    private static final int PARALLEL_THRESHOLD = 256;
+    
     public static String encryptValue(BigDecimal value) {
         if (value == null) {
             return null;
         }
         
-        return EncryptionContext.encrypt(value.toPlainString());
+        return EncryptionContext.encryptAmount(value);
+    }
+    
+    /**
+     * Encrypts many amounts at once, spreading large batches over the common pool. Keeps the input order.
+     */
+    public static String[] encryptAll(List<BigDecimal> values) {
+        String[] encrypted = new String[values.size()];
+        IntStream indexes = IntStream.range(0, values.size());
+        if (values.size() >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> encrypted[i] = encryptValue(values.get(i)));
+        return encrypted;
     }
     
     public static BigDecimal decryptValue(String value) {
@@ -25,8 +42,7 @@ public class EncryptedBigDecimalConverter implements AttributeConverter<BigDecim
             return new BigDecimal(value);
         }
         
-        String decrypted = EncryptionContext.decrypt(value);
-        return new BigDecimal(decrypted);
+        return DecryptedAmountCache.get(value, EncryptionContext::decryptAmount);
     }
     
     @Override
@@ -1,5 +1,6 @@
 package com.shmoney.common.crypto;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -15,6 +16,7 @@ public final class EncryptionContext {
             throw new IllegalArgumentException("Encryption secret must not be blank");
         }
         CIPHER.set(new AesGcmCipher(EncryptionKeyUtils.deriveKey(secret.trim())));
+        DecryptedAmountCache.invalidateAll();
     }
 
     public static String encrypt(String plainText) {
@@ -24,6 +26,16 @@ public final class EncryptionContext {
         return getCipher().encrypt(plainText);
     }
 
+    public static String encryptAmount(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        if (!AesGcmCipher.supportsCompact(value)) {
+            return encrypt(value.toPlainString());
+        }
+        return getCipher().encryptAmount(value);
+    }
+
     public static String decrypt(String encrypted) {
         if (encrypted == null) {
             return null;
@@ -31,9 +43,22 @@ public final class EncryptionContext {
         if (!isEncrypted(encrypted)) {
             return encrypted;
         }
+        if (isCompactFormat(encrypted)) {
+            return getCipher().decryptAmount(encrypted).toPlainString();
+        }
         return getCipher().decrypt(encrypted);
     }
 
+    public static BigDecimal decryptAmount(String encrypted) {
+        if (encrypted == null) {
+            return null;
+        }
+        if (isCompactFormat(encrypted)) {
+            return getCipher().decryptAmount(encrypted);
+        }
+        return new BigDecimal(decrypt(encrypted));
+    }
+
     public static boolean isEncrypted(String value) {
         if (value == null) {
             return false;
@@ -42,7 +67,11 @@ public final class EncryptionContext {
         if (cipher != null) {
             return cipher.isEncrypted(value);
         }
-        return value.startsWith(AesGcmCipher.PREFIX);
+        return value.startsWith(AesGcmCipher.PREFIX) || value.startsWith(AesGcmCipher.COMPACT_PREFIX);
+    }
+
+    public static boolean isCompactFormat(String value) {
+        return value != null && value.startsWith(AesGcmCipher.COMPACT_PREFIX);
     }
 
     private static AesGcmCipher getCipher() {
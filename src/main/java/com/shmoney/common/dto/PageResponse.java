@@ -5,22 +5,32 @@ import org.springframework.data.domain.Page;
 import java.util.List;
 
 public record PageResponse<T>(
-        long count,
+        Long count,
         Integer next,
         Integer previous,
+        boolean hasNext,
+        String nextCursor,
         List<T> results
 ) {
 
     public static <T, R> PageResponse<R> fromPage(Page<T> page, List<R> results) {
         Integer next = page.hasNext() ? page.getNumber() + 1 : null;
         Integer previous = page.hasPrevious() ? page.getNumber() - 1 : null;
-        return new PageResponse<>(page.getTotalElements(), next, previous, results);
+        return new PageResponse<>(page.getTotalElements(), next, previous, page.hasNext(), null, results);
     }
 
     public static <R> PageResponse<R> of(long total, int page, int size, List<R> results) {
         long shown = (long) (page + 1) * size;
-        Integer next = shown < total ? page + 1 : null;
+        return of(total, page, shown < total, null, results);
+    }
+
+    public static <R> PageResponse<R> of(Long total, int page, boolean hasNext, String nextCursor, List<R> results) {
+        Integer next = hasNext ? page + 1 : null;
         Integer previous = page > 0 ? page - 1 : null;
-        return new PageResponse<>(total, next, previous, results);
+        return new PageResponse<>(total, next, previous, hasNext, nextCursor, results);
+    }
+
+    public static <R> PageResponse<R> ofCursor(Long total, boolean hasNext, String nextCursor, List<R> results) {
+        return new PageResponse<>(total, null, null, hasNext, nextCursor, results);
     }
 }
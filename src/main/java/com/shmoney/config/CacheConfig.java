@@ -1,6 +1,11 @@
 package com.shmoney.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shmoney.auth.security.AuthenticatedUserCache;
+import com.shmoney.auth.service.JwtTokenService;
+import com.shmoney.common.crypto.DecryptedAmountCache;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
@@ -23,4 +28,21 @@ public class CacheConfig {
         
         return cacheManager;
     }
+    
+    @Bean
+    public MeterBinder decryptedAmountCacheMetrics() {
+        return registry -> CaffeineCacheMetrics.monitor(registry, DecryptedAmountCache.cache(), DecryptedAmountCache.NAME);
+    }
+    
+    @Bean
+    public MeterBinder authenticatedUserCacheMetrics(AuthenticatedUserCache authenticatedUserCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, authenticatedUserCache.cache(),
+                AuthenticatedUserCache.NAME);
+    }
+    
+    @Bean
+    public MeterBinder accessTokenCacheMetrics(JwtTokenService jwtTokenService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, jwtTokenService.accessTokenCache(),
+                JwtTokenService.ACCESS_TOKEN_CACHE);
+    }
 }
@@ -4,6 +4,7 @@ import com.shmoney.currency.entity.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
@@ -18,4 +19,9 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long
             String targetCode,
             OffsetDateTime threshold
     );
+    
+    List<ExchangeRate> findAllByBaseCurrencyCodeIgnoreCaseAndFetchedAtAfterOrderByFetchedAtDesc(
+            String baseCode,
+            OffsetDateTime threshold
+    );
 }
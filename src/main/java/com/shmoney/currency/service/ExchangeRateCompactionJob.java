@@ -0,0 +1,95 @@
+package com.shmoney.currency.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thins out old exchange rates. Recent days keep every fetch; before that only the last rate of each day is
+ * kept per currency pair. Days are taken in the server zone, the same way {@link ExchangeRateService#snapshotAsOf}
+ * picks the latest rate of a day, so historical conversions give the same result after compaction.
+ */
+@Component
+public class ExchangeRateCompactionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateCompactionJob.class);
+
+    private static final int FULL_RESOLUTION_DAYS = 30;
+    private static final int BATCH_SIZE = 5_000;
+
+    private static final String DELETE_BATCH_SQL = """
+            DELETE FROM exchange_rates
+            WHERE id IN (
+                SELECT id
+                FROM (
+                    SELECT id,
+                           ROW_NUMBER() OVER (
+                               PARTITION BY base_currency_id, target_currency_id,
+                                            (fetched_at AT TIME ZONE %s)::DATE
+                               ORDER BY fetched_at DESC, id DESC
+                           ) AS position
+                    FROM exchange_rates
+                    WHERE fetched_at < :cutoff
+                ) ranked
+                WHERE position > 1
+                LIMIT :limit
+            )
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ExchangeRateCompactionJob(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "0 40 3 * * *")
+    public void compactRates() {
+        compactRates(ZoneId.systemDefault());
+    }
+
+    void compactRates(ZoneId zone) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDate cutoffDay = LocalDate.now(zone).minusDays(FULL_RESOLUTION_DAYS);
+            // Postgres reads a text offset such as '+05:00' as a POSIX zone, east of UTC being negative, so
+            // fixed offsets are passed as an interval. Region ids are passed by name.
+            String sql = DELETE_BATCH_SQL.formatted(":zone");
+            String zoneValue = zone.getId();
+            if (zone.normalized() instanceof ZoneOffset offset) {
+                sql = DELETE_BATCH_SQL.formatted("CAST(:zone AS INTERVAL)");
+                zoneValue = offset.getTotalSeconds() + " seconds";
+            }
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("zone", zoneValue, Types.VARCHAR)
+                    .addValue("cutoff", Timestamp.from(cutoffDay.atStartOfDay(zone).toInstant()), Types.TIMESTAMP)
+                    .addValue("limit", BATCH_SIZE, Types.INTEGER);
+            // Each batch commits on its own, so the table is never locked for the whole run.
+            int deleted = 0;
+            int batch;
+            do {
+                batch = jdbcTemplate.update(sql, params);
+                deleted += batch;
+            } while (batch == BATCH_SIZE);
+            if (deleted > 0) {
+                log.info("Compacted {} exchange rates older than {}", deleted, cutoffDay);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Exchange rate compaction failed", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.shmoney.currency.service;
+
+import com.shmoney.currency.client.ExchangeRateClient;
+import com.shmoney.currency.entity.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fetches the latest rates from the provider and stores them. Concurrent refreshes are coalesced into one
+ * provider call: callers arriving while a refresh is running wait for its result instead of starting their
+ * own. A scheduled pre-warm refreshes ahead of expiry, so requests normally never wait on the provider.
+ */
+@Component
+public class ExchangeRateRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateRefresher.class);
+
+    static final String PIVOT_CODE = "USD";
+    static final Duration RATE_TTL = Duration.ofHours(12);
+
+    private static final String SOURCE_PROVIDER = "ExchangeRate.host";
+    private static final Duration PREWARM_MARGIN = Duration.ofHours(1);
+    private static final Duration RECENT_REFRESH = Duration.ofMinutes(1);
+    private static final int RATE_SCALE = 6;
+
+    private static final String LATEST_FETCH_SQL = """
+            SELECT MAX(r.fetched_at)
+            FROM exchange_rates r
+            JOIN currencies c ON c.id = r.base_currency_id
+            WHERE UPPER(c.code) = :pivotCode
+            """;
+
+    private static final String INSERT_RATE_SQL = """
+            INSERT INTO exchange_rates (base_currency_id, target_currency_id, rate, fetched_at, source)
+            VALUES (:baseCurrencyId, :targetCurrencyId, :rate, :fetchedAt, :source)
+            ON CONFLICT (base_currency_id, target_currency_id, fetched_at) DO NOTHING
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CurrencyService currencyService;
+    private final ExchangeRateClient exchangeRateClient;
+    private final AtomicReference<CompletableFuture<RefreshedRates>> inFlight = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile RefreshedRates lastRefresh;
+
+    public ExchangeRateRefresher(NamedParameterJdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 CurrencyService currencyService,
+                                 ExchangeRateClient exchangeRateClient) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.currencyService = currencyService;
+        this.exchangeRateClient = exchangeRateClient;
+    }
+
+    /**
+     * Refreshes the rates and returns them, or waits for a refresh that is already running. A refresh that
+     * finished moments ago is reused as well, for callers that saw the miss before it completed. The rows are
+     * committed in their own transaction before this returns, so they are visible to every caller.
+     */
+    public RefreshedRates refresh() {
+        RefreshedRates recent = lastRefresh;
+        if (recent != null && recent.fetchedAt().isAfter(OffsetDateTime.now().minus(RECENT_REFRESH))) {
+            return recent;
+        }
+        CompletableFuture<RefreshedRates> own = new CompletableFuture<>();
+        CompletableFuture<RefreshedRates> running = inFlight.compareAndExchange(null, own);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+        try {
+            RefreshedRates rates = transactionTemplate.execute(status -> fetchAndStore());
+            lastRefresh = rates;
+            generation.incrementAndGet();
+            own.complete(rates);
+            return rates;
+        } catch (RuntimeException ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    /**
+     * Starts a refresh on a virtual thread unless one is already running. Used when stale rates are served.
+     */
+    public void refreshInBackground() {
+        if (inFlight.get() != null) {
+            return;
+        }
+        Thread.ofVirtual().name("exchange-rate-refresh").start(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException ex) {
+                log.warn("Background exchange rate refresh failed: {}", ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Incremented after every stored refresh, so snapshots built from older rates can tell they are outdated.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    @Scheduled(cron = "0 20 * * * *")
+    public void prewarm() {
+        OffsetDateTime latest = jdbcTemplate.queryForObject(LATEST_FETCH_SQL,
+                new MapSqlParameterSource("pivotCode", PIVOT_CODE), OffsetDateTime.class);
+        if (latest != null && latest.isAfter(OffsetDateTime.now().minus(RATE_TTL).plus(PREWARM_MARGIN))) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.warn("Exchange rate pre-warm failed, stored rates stay in use: {}", ex.getMessage());
+        }
+    }
+
+    private RefreshedRates fetchAndStore() {
+        List<Currency> activeCurrencies = currencyService.getActiveCurrencies();
+        Map<String, Currency> currencyByCode = new HashMap<>();
+        for (Currency currency : activeCurrencies) {
+            currencyByCode.put(currency.getCode().toUpperCase(), currency);
+        }
+        Currency pivot = currencyByCode.get(PIVOT_CODE);
+        if (pivot == null) {
+            pivot = currencyService.getActiveByCode(PIVOT_CODE);
+        }
+        List<String> symbols = currencyByCode.keySet().stream()
+                .filter(code -> !code.equals(PIVOT_CODE))
+                .sorted()
+                .toList();
+        ExchangeRateClient.ExchangeRateResponse response = exchangeRateClient.fetchLatest(PIVOT_CODE, symbols);
+        OffsetDateTime fetchedAt = OffsetDateTime.now();
+
+        Map<String, BigDecimal> rates = new HashMap<>();
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> entry : response.rates().entrySet()) {
+            String targetCode = entry.getKey().toUpperCase();
+            Currency target = currencyByCode.get(targetCode);
+            if (target == null || entry.getValue() == null) {
+                continue;
+            }
+            BigDecimal rate = entry.getValue().setScale(RATE_SCALE, RoundingMode.HALF_UP);
+            rates.put(targetCode, rate);
+            rows.add(new MapSqlParameterSource()
+                    .addValue("baseCurrencyId", pivot.getId(), Types.BIGINT)
+                    .addValue("targetCurrencyId", target.getId(), Types.BIGINT)
+                    .addValue("rate", rate, Types.NUMERIC)
+                    .addValue("fetchedAt", Timestamp.from(fetchedAt.toInstant()), Types.TIMESTAMP)
+                    .addValue("source", SOURCE_PROVIDER, Types.VARCHAR));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RATE_SQL, rows.toArray(SqlParameterSource[]::new));
+        }
+        log.info("Stored {} exchange rates from {}", rows.size(), SOURCE_PROVIDER);
+        return new RefreshedRates(rates, fetchedAt);
+    }
+
+    /**
+     * @param rates units of each returned currency per one unit of the pivot currency
+     */
+    public record RefreshedRates(Map<String, BigDecimal> rates, OffsetDateTime fetchedAt) {
+    }
+}
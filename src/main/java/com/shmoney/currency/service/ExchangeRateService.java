@@ -1,43 +1,89 @@
 package com.shmoney.currency.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.shmoney.config.CacheConfig;
-import com.shmoney.currency.client.ExchangeRateClient;
 import com.shmoney.currency.entity.Currency;
 import com.shmoney.currency.entity.ExchangeRate;
 import com.shmoney.currency.repository.ExchangeRateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @Service
 @Transactional
 public class ExchangeRateService {
     
-    private static final String SOURCE_PROVIDER = "ExchangeRate.host";
-    private static final String BASE_PIVOT_CODE = "USD";
-    private static final Duration RATE_TTL = Duration.ofHours(12);
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateService.class);
+    
+    private static final String BASE_PIVOT_CODE = ExchangeRateRefresher.PIVOT_CODE;
+    private static final Duration RATE_TTL = ExchangeRateRefresher.RATE_TTL;
+    private static final Duration INCOMPLETE_TABLE_TTL = Duration.ofMinutes(1);
     private static final int RATE_SCALE = 6;
     private static final int AMOUNT_SCALE = 2;
+    private static final int HISTORICAL_TABLES = 4_000;
+    
+    private static final String RATES_AS_OF_SQL = """
+            SELECT DISTINCT ON (r.target_currency_id) UPPER(t.code) AS code, r.rate
+            FROM exchange_rates r
+            JOIN currencies b ON b.id = r.base_currency_id
+            JOIN currencies t ON t.id = r.target_currency_id
+            WHERE UPPER(b.code) = :pivotCode
+              AND r.fetched_at < :before
+            ORDER BY r.target_currency_id, r.fetched_at DESC
+            """;
+
+    private static final String FIRST_FETCHES_SQL = """
+            SELECT UPPER(t.code) AS code, MIN(r.fetched_at) AS first_fetched_at
+            FROM exchange_rates r
+            JOIN currencies b ON b.id = r.base_currency_id
+            JOIN currencies t ON t.id = r.target_currency_id
+            WHERE UPPER(b.code) = :pivotCode
+              AND UPPER(t.code) IN (:codes)
+            GROUP BY UPPER(t.code)
+            """;
     
     private final ExchangeRateRepository exchangeRateRepository;
     private final CurrencyService currencyService;
-    private final ExchangeRateClient exchangeRateClient;
+    private final ExchangeRateRefresher exchangeRateRefresher;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Cache<LocalDate, RateTable> historicalTables = Caffeine.newBuilder()
+            .maximumSize(HISTORICAL_TABLES)
+            .build();
+    private final Cache<LocalDate, RateTable> provisionalTables = Caffeine.newBuilder()
+            .maximumSize(HISTORICAL_TABLES)
+            .expireAfterWrite(INCOMPLETE_TABLE_TTL)
+            .build();
+    private volatile RateTable rateTable;
+    private volatile long rateTableGeneration;
     
     public ExchangeRateService(ExchangeRateRepository exchangeRateRepository,
                                CurrencyService currencyService,
-                               ExchangeRateClient exchangeRateClient) {
+                               ExchangeRateRefresher exchangeRateRefresher,
+                               NamedParameterJdbcTemplate jdbcTemplate) {
         this.exchangeRateRepository = exchangeRateRepository;
         this.currencyService = currencyService;
-        this.exchangeRateClient = exchangeRateClient;
+        this.exchangeRateRefresher = exchangeRateRefresher;
+        this.jdbcTemplate = jdbcTemplate;
     }
     
     @Cacheable(value = CacheConfig.EXCHANGE_RATE_CACHE,
@@ -63,77 +109,212 @@ public class ExchangeRateService {
     
     public BigDecimal convert(BigDecimal amount, String sourceCurrency, String targetCurrency) {
         Objects.requireNonNull(amount, "amount");
-        BigDecimal rate = getRate(sourceCurrency, targetCurrency);
+        Objects.requireNonNull(sourceCurrency, "sourceCurrency");
+        Objects.requireNonNull(targetCurrency, "targetCurrency");
+        if (sourceCurrency.equalsIgnoreCase(targetCurrency)) {
+            return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        }
 
-        return amount.multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        return snapshot().convert(amount, sourceCurrency, targetCurrency);
     }
 
     public List<com.shmoney.currency.dto.ExchangeRateResponse> getAllTo(String targetCurrency) {
         Objects.requireNonNull(targetCurrency, "targetCurrency");
         String base = targetCurrency.toUpperCase();
+        RateTable rates = snapshot();
 
         return currencyService.getActiveCurrencies().stream()
                 .map(Currency::getCode)
                 .map(String::toUpperCase)
                 .filter(code -> !code.equals(base))
-                .map(code -> new com.shmoney.currency.dto.ExchangeRateResponse(code, base, getRate(code, base)))
+                .map(code -> new com.shmoney.currency.dto.ExchangeRateResponse(code, base, rates.rate(code, base)))
+                .toList();
+    }
+
+    /**
+     * Returns the rates between all active currencies as one immutable table. The table is rebuilt once the
+     * oldest rate in it passes the TTL or a refresh stores newer rates; until then every call returns the
+     * same instance.
+     */
+    public RateTable snapshot() {
+        RateTable current = rateTable;
+        long generation = exchangeRateRefresher.generation();
+        if (current != null && rateTableGeneration == generation && !current.isExpired(OffsetDateTime.now())) {
+            return current;
+        }
+        RateTable rebuilt = buildRateTable();
+        rateTable = rebuilt;
+        rateTableGeneration = generation;
+        return rebuilt;
+    }
+
+    /**
+     * Returns the rates that apply to amounts recorded on the given day in the server zone: the last rates
+     * stored before the day started. They are final from the first moment of the day, so an amount converted
+     * when it is recorded and again when it is reverted gets the same result. Later days use
+     * {@link #snapshot()}.
+     */
+    public RateTable snapshotAsOf(LocalDate day) {
+        Objects.requireNonNull(day, "day");
+        if (day.isAfter(LocalDate.now(ZoneId.systemDefault()))) {
+            return snapshot();
+        }
+        RateTable table = historicalTables.getIfPresent(day);
+        if (table == null) {
+            table = provisionalTables.getIfPresent(day);
+        }
+        if (table != null) {
+            return table;
+        }
+        HistoricalTable built = buildHistoricalTable(day);
+        (built.settled() ? historicalTables : provisionalTables).put(day, built.table());
+        return built.table();
+    }
+
+    public RateTable snapshotAt(OffsetDateTime moment) {
+        return moment == null ? snapshot() : snapshotAsOf(rateDay(moment));
+    }
+
+    /**
+     * The day whose rates apply to an amount recorded at the given moment.
+     */
+    public static LocalDate rateDay(OffsetDateTime moment) {
+        return moment.atZoneSameInstant(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    // A currency first fetched after the day takes the closing rate of its first day with rates. Until that
+    // day has ended, or when the currency was never fetched, the current rate stands in and the table is only
+    // kept briefly.
+    private HistoricalTable buildHistoricalTable(LocalDate day) {
+        ZoneId zone = ZoneId.systemDefault();
+        Map<String, BigDecimal> pivotRates = ratesBefore(day.atStartOfDay(zone).toInstant());
+        pivotRates.put(BASE_PIVOT_CODE, BigDecimal.ONE.setScale(RATE_SCALE, RoundingMode.HALF_UP));
+        List<String> missing = currencyService.getActiveCurrencies().stream()
+                .map(currency -> currency.getCode().toUpperCase())
+                .filter(code -> !pivotRates.containsKey(code))
                 .toList();
+        if (missing.isEmpty()) {
+            return new HistoricalTable(new RateTable(pivotRates, null), true);
+        }
+
+        Map<String, Instant> firstFetches = new HashMap<>();
+        jdbcTemplate.query(FIRST_FETCHES_SQL, new MapSqlParameterSource()
+                .addValue("pivotCode", BASE_PIVOT_CODE, Types.VARCHAR)
+                .addValue("codes", missing), rs -> {
+            firstFetches.put(rs.getString("code"), rs.getTimestamp("first_fetched_at").toInstant());
+        });
+        Instant todayStart = LocalDate.now(zone).atStartOfDay(zone).toInstant();
+        Map<Instant, Map<String, BigDecimal>> closingRates = new HashMap<>();
+        boolean settled = true;
+        RateTable current = null;
+        for (String code : missing) {
+            Instant firstFetch = firstFetches.get(code);
+            Instant firstDayEnd = firstFetch == null
+                    ? null
+                    : LocalDate.ofInstant(firstFetch, zone).plusDays(1).atStartOfDay(zone).toInstant();
+            if (firstDayEnd != null && !firstDayEnd.isAfter(todayStart)) {
+                pivotRates.put(code, closingRates.computeIfAbsent(firstDayEnd, this::ratesBefore).get(code));
+                continue;
+            }
+            settled = false;
+            current = current == null ? snapshot() : current;
+            if (current.contains(code)) {
+                pivotRates.put(code, current.rate(BASE_PIVOT_CODE, code));
+            }
+        }
+        return new HistoricalTable(new RateTable(pivotRates, null), settled);
+    }
+
+    private Map<String, BigDecimal> ratesBefore(Instant before) {
+        Map<String, BigDecimal> pivotRates = new HashMap<>();
+        jdbcTemplate.query(RATES_AS_OF_SQL, new MapSqlParameterSource()
+                .addValue("pivotCode", BASE_PIVOT_CODE, Types.VARCHAR)
+                .addValue("before", Timestamp.from(before), Types.TIMESTAMP), rs -> {
+            pivotRates.put(rs.getString("code"), rs.getBigDecimal("rate"));
+        });
+        return pivotRates;
+    }
+
+    private RateTable buildRateTable() {
+        Currency pivot = currencyService.getActiveByCode(BASE_PIVOT_CODE);
+        String pivotCode = pivot.getCode().toUpperCase();
+        OffsetDateTime now = OffsetDateTime.now();
+        List<ExchangeRate> fresh = exchangeRateRepository
+                .findAllByBaseCurrencyCodeIgnoreCaseAndFetchedAtAfterOrderByFetchedAtDesc(
+                        pivotCode,
+                        now.minus(RATE_TTL)
+                );
+        Map<String, ExchangeRate> latest = new HashMap<>();
+        for (ExchangeRate rate : fresh) {
+            latest.putIfAbsent(rate.getTargetCurrency().getCode().toUpperCase(), rate);
+        }
+
+        Map<String, BigDecimal> pivotRates = new HashMap<>();
+        OffsetDateTime validUntil = now.plus(RATE_TTL);
+        for (Currency currency : currencyService.getActiveCurrencies()) {
+            String code = currency.getCode().toUpperCase();
+            if (code.equals(pivotCode)) {
+                pivotRates.put(code, BigDecimal.ONE.setScale(RATE_SCALE, RoundingMode.HALF_UP));
+                continue;
+            }
+            ExchangeRate stored = latest.get(code);
+            if (stored != null) {
+                pivotRates.put(code, stored.getRate());
+                OffsetDateTime expiresAt = stored.getFetchedAt().plus(RATE_TTL);
+                validUntil = expiresAt.isBefore(validUntil) ? expiresAt : validUntil;
+                continue;
+            }
+            // Stale, refreshed or missing, the rate is re-checked soon rather than trusted for a full TTL.
+            OffsetDateTime retryAt = now.plus(INCOMPLETE_TABLE_TTL);
+            validUntil = retryAt.isBefore(validUntil) ? retryAt : validUntil;
+            try {
+                pivotRates.put(code, resolvePivotRate(pivot, currency));
+            } catch (RuntimeException ex) {
+                // A currency the provider can't price is left out, the rest stay usable.
+                log.warn("Exchange rate for {} is unavailable: {}", code, ex.getMessage());
+            }
+        }
+        return new RateTable(pivotRates, validUntil);
     }
     
+    // Expired rates are served while a background refresh runs; only a currency never fetched waits for it.
     private BigDecimal resolvePivotRate(Currency pivot, Currency target) {
         if (pivot.getCode().equalsIgnoreCase(target.getCode())) {
             return BigDecimal.ONE.setScale(RATE_SCALE, RoundingMode.HALF_UP);
         }
         
         OffsetDateTime threshold = OffsetDateTime.now().minus(RATE_TTL);
-        
-        return exchangeRateRepository
+        Optional<ExchangeRate> fresh = exchangeRateRepository
                 .findTopByBaseCurrencyCodeIgnoreCaseAndTargetCurrencyCodeIgnoreCaseAndFetchedAtAfter(
                         pivot.getCode(),
                         target.getCode(),
                         threshold
-                )
-                .map(ExchangeRate::getRate)
-                .orElseGet(() -> refreshRates(pivot, target.getCode()));
-    }
-    
-    private BigDecimal refreshRates(Currency pivot, String requestedTargetCode) {
-        List<Currency> activeCurrencies = currencyService.getActiveCurrencies();
-        Map<String, Currency> currencyByCode = activeCurrencies.stream()
-                .collect(Collectors.toMap(c -> c.getCode().toUpperCase(), c -> c));
-        List<String> symbols = activeCurrencies.stream()
-                .map(currency -> currency.getCode().toUpperCase())
-                .filter(code -> !code.equalsIgnoreCase(pivot.getCode()))
-                .toList();
-        ExchangeRateClient.ExchangeRateResponse response = exchangeRateClient.fetchLatest(pivot.getCode(), symbols);
-        OffsetDateTime fetchedAt = OffsetDateTime.now();
-        BigDecimal result = null;
+                );
+        if (fresh.isPresent()) {
+            return fresh.get().getRate();
+        }
         
-        for (Map.Entry<String, BigDecimal> entry : response.rates().entrySet()) {
-            String targetCode = entry.getKey().toUpperCase();
-            Currency target = currencyByCode.get(targetCode);
-            
-            if (target == null) continue;
-            
-            BigDecimal rateValue = entry.getValue().setScale(RATE_SCALE, RoundingMode.HALF_UP);
-            ExchangeRate rate = new ExchangeRate();
-            
-            rate.setBaseCurrency(pivot);
-            rate.setTargetCurrency(target);
-            rate.setRate(rateValue);
-            rate.setFetchedAt(fetchedAt);
-            rate.setSource(SOURCE_PROVIDER);
-            exchangeRateRepository.save(rate);
-            
-            if (targetCode.equals(requestedTargetCode.toUpperCase())) {
-                result = rateValue;
-            }
+        Optional<ExchangeRate> stale = exchangeRateRepository
+                .findTopByBaseCurrencyCodeIgnoreCaseAndTargetCurrencyCodeIgnoreCaseOrderByFetchedAtDesc(
+                        pivot.getCode(),
+                        target.getCode()
+                );
+        if (stale.isPresent()) {
+            exchangeRateRefresher.refreshInBackground();
+            return stale.get().getRate();
         }
         
-        if (result == null) {
-            throw new IllegalStateException("Requested currency " + requestedTargetCode + " not returned by provider");
+        BigDecimal rate = exchangeRateRefresher.refresh().rates().get(target.getCode().toUpperCase());
+        if (rate == null) {
+            throw new IllegalStateException("Requested currency " + target.getCode() + " not returned by provider");
         }
         
-        return result;
+        return rate;
+    }
+
+    /**
+     * @param settled whether every rate in the table is final, so the table can be kept for good
+     */
+    private record HistoricalTable(RateTable table, boolean settled) {
     }
 }
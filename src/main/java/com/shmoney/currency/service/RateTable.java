@@ -0,0 +1,84 @@
+package com.shmoney.currency.service;
+
+import com.shmoney.currency.exception.CurrencyNotFoundException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the exchange rates between all active currencies. Every cross rate is computed
+ * once when the snapshot is built, so a lookup is two map reads and an array read. Callers take one
+ * snapshot per operation from {@link ExchangeRateService#snapshot()} and convert every amount against it.
+ */
+public final class RateTable {
+
+    private static final int RATE_SCALE = 6;
+    private static final int AMOUNT_SCALE = 2;
+
+    private final Map<String, Integer> indexByCode;
+    private final BigDecimal[] rates;
+    private final int size;
+    private final OffsetDateTime validUntil;
+
+    /**
+     * @param pivotRates units of each currency per one unit of the pivot currency, the pivot itself included
+     * @param validUntil moment after which the snapshot has to be rebuilt
+     */
+    public RateTable(Map<String, BigDecimal> pivotRates, OffsetDateTime validUntil) {
+        this.size = pivotRates.size();
+        this.indexByCode = new HashMap<>(size * 2);
+        this.validUntil = validUntil;
+        String[] codes = new String[size];
+        BigDecimal[] pivotToCurrency = new BigDecimal[size];
+        int index = 0;
+        for (Map.Entry<String, BigDecimal> entry : pivotRates.entrySet()) {
+            codes[index] = entry.getKey().toUpperCase(Locale.ROOT);
+            pivotToCurrency[index] = entry.getValue();
+            indexByCode.put(codes[index], index);
+            index++;
+        }
+
+        this.rates = new BigDecimal[size * size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                rates[from * size + to] = from == to
+                        ? BigDecimal.ONE.setScale(RATE_SCALE, RoundingMode.HALF_UP)
+                        : pivotToCurrency[to].divide(pivotToCurrency[from], RATE_SCALE, RoundingMode.HALF_UP);
+            }
+        }
+    }
+
+    public BigDecimal rate(String sourceCurrency, String targetCurrency) {
+        return rates[indexOf(sourceCurrency) * size + indexOf(targetCurrency)];
+    }
+
+    public BigDecimal convert(BigDecimal amount, String sourceCurrency, String targetCurrency) {
+        return amount.multiply(rate(sourceCurrency, targetCurrency)).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    public boolean contains(String currency) {
+        return currency != null && lookup(currency) != null;
+    }
+
+    public boolean isExpired(OffsetDateTime now) {
+        return validUntil != null && !now.isBefore(validUntil);
+    }
+
+    private int indexOf(String currency) {
+        Integer index = lookup(currency);
+        if (index == null) {
+            throw new CurrencyNotFoundException(currency);
+        }
+        return index;
+    }
+
+    // Codes are stored upper-cased; most callers already pass them that way, so the exact form is tried first.
+    private Integer lookup(String currency) {
+        Integer index = indexByCode.get(currency);
+        return index != null ? index : indexByCode.get(currency.toUpperCase(Locale.ROOT));
+    }
+}
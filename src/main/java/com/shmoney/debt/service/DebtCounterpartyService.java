@@ -2,7 +2,6 @@ package com.shmoney.debt.service;
 
 import com.shmoney.currency.entity.Currency;
 import com.shmoney.currency.service.CurrencyService;
-import com.shmoney.currency.service.ExchangeRateService;
 import com.shmoney.debt.dto.DebtCounterpartyCreateRequest;
 import com.shmoney.debt.dto.DebtCounterpartyUpdateRequest;
 import com.shmoney.debt.entity.DebtCounterparty;
@@ -30,18 +29,15 @@ public class DebtCounterpartyService {
     private final UserService userService;
     private final CurrencyService currencyService;
     private final AppSettingsProvider appSettingsProvider;
-    private final ExchangeRateService exchangeRateService;
     
     public DebtCounterpartyService(DebtCounterpartyRepository counterpartyRepository,
                                    UserService userService,
                                    CurrencyService currencyService,
-                                   AppSettingsProvider appSettingsProvider,
-                                   ExchangeRateService exchangeRateService) {
+                                   AppSettingsProvider appSettingsProvider) {
         this.counterpartyRepository = counterpartyRepository;
         this.userService = userService;
         this.currencyService = currencyService;
         this.appSettingsProvider = appSettingsProvider;
-        this.exchangeRateService = exchangeRateService;
     }
     
     public DebtCounterparty create(Long userId, DebtCounterpartyCreateRequest request) {
@@ -104,21 +100,6 @@ public class DebtCounterpartyService {
         return counterpartyRepository.save(counterparty);
     }
     
-    public void recalculateForNewCurrency(String newCurrencyCode) {
-        Currency newCurrency = currencyService.getActiveByCode(newCurrencyCode);
-        List<DebtCounterparty> counterparties = counterpartyRepository.findAll();
-        
-        for (DebtCounterparty counterparty : counterparties) {
-            String previousCode = counterparty.getCurrency().getCode();
-            BigDecimal owed = convert(counterparty.getOwedToMe(), previousCode, newCurrency.getCode());
-            BigDecimal iOwe = convert(counterparty.getIOwe(), previousCode, newCurrency.getCode());
-            counterparty.setCurrency(newCurrency);
-            counterparty.setOwedToMe(owed);
-            counterparty.setIOwe(iOwe);
-            counterpartyRepository.save(counterparty);
-        }
-    }
-    
     private Currency resolveMainCurrency() {
         String code = appSettingsProvider.getOrCreate().getMainCurrency();
         
@@ -132,14 +113,4 @@ public class DebtCounterpartyService {
         
         return name.trim();
     }
-    
-    private BigDecimal convert(BigDecimal amount, String from, String to) {
-        if (amount == null) return ZERO;
-        
-        if (from.equalsIgnoreCase(to)) {
-            return amount.setScale(2, RoundingMode.HALF_UP);
-        }
-        
-        return exchangeRateService.convert(amount, from, to);
-    }
 }
@@ -1,6 +1,8 @@
 package com.shmoney.debt.service;
 
 import com.shmoney.auth.security.AuthenticatedUser;
+import com.shmoney.common.aggregation.AmountTotal;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
 import com.shmoney.currency.service.ExchangeRateService;
 import com.shmoney.debt.dto.DebtForgiveRequest;
 import com.shmoney.debt.dto.DebtTransactionCreateRequest;
@@ -16,8 +18,11 @@ import com.shmoney.debt.exception.InvalidDebtTransactionException;
 import com.shmoney.debt.repository.DebtCounterpartyRepository;
 import com.shmoney.debt.repository.DebtTransactionRepository;
 import com.shmoney.debt.repository.DebtTransactionSpecifications;
+import com.shmoney.transaction.feed.TransactionFeedCountCache;
+import com.shmoney.transaction.feed.TransactionFeedWriter;
 import com.shmoney.wallet.entity.Wallet;
-import com.shmoney.wallet.repository.WalletRepository;
+import com.shmoney.wallet.ledger.WalletLedgerEntrySource;
+import com.shmoney.wallet.service.WalletBalanceUpdater;
 import com.shmoney.wallet.service.WalletService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -29,6 +34,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
 
 @Service
 @Transactional
@@ -39,19 +47,28 @@ public class DebtTransactionService {
     private final DebtTransactionRepository transactionRepository;
     private final DebtCounterpartyRepository counterpartyRepository;
     private final WalletService walletService;
-    private final WalletRepository walletRepository;
+    private final WalletBalanceUpdater balanceUpdater;
     private final ExchangeRateService exchangeRateService;
+    private final TransactionFeedCountCache feedCountCache;
+    private final TransactionFeedWriter feedWriter;
+    private final EncryptedAmountAggregator amountAggregator;
     
     public DebtTransactionService(DebtTransactionRepository transactionRepository,
                                   DebtCounterpartyRepository counterpartyRepository,
                                   WalletService walletService,
-                                  WalletRepository walletRepository,
-                                  ExchangeRateService exchangeRateService) {
+                                  WalletBalanceUpdater balanceUpdater,
+                                  ExchangeRateService exchangeRateService,
+                                  TransactionFeedCountCache feedCountCache,
+                                  TransactionFeedWriter feedWriter,
+                                  EncryptedAmountAggregator amountAggregator) {
         this.transactionRepository = transactionRepository;
         this.counterpartyRepository = counterpartyRepository;
         this.walletService = walletService;
-        this.walletRepository = walletRepository;
+        this.balanceUpdater = balanceUpdater;
         this.exchangeRateService = exchangeRateService;
+        this.feedCountCache = feedCountCache;
+        this.feedWriter = feedWriter;
+        this.amountAggregator = amountAggregator;
     }
     
     public DebtTransaction create(AuthenticatedUser currentUser, DebtTransactionCreateRequest request) {
@@ -76,8 +93,11 @@ public class DebtTransactionService {
         transaction.setOccurredAt(request.occurredAt());
         
         DebtTransaction saved = transactionRepository.save(transaction);
-        applyWalletDelta(wallet, saved.getDirection(), saved.getAmount(), saved.getKind());
-        updateAggregates(counterparty, saved.getDirection(), saved.getAmount(), wallet.getCurrency().getCode());
+        feedWriter.upsert(saved);
+        applyWalletDelta(wallet, saved.getDirection(), saved.getAmount(), saved.getKind(), saved.getId());
+        updateAggregates(counterparty, saved.getDirection(), saved.getAmount(), wallet.getCurrency().getCode(),
+                saved.getOccurredAt());
+        feedCountCache.evict(currentUser.id());
 
         return saved;
     }
@@ -140,20 +160,25 @@ public class DebtTransactionService {
         }
 
         DebtTransaction saved = transactionRepository.save(existing);
-        revertWalletDelta(originalWallet, originalDirection, originalAmount, existing.getKind());
-        applyWalletDelta(targetWallet, saved.getDirection(), saved.getAmount(), saved.getKind());
+        feedWriter.upsert(saved);
+        revertWalletDelta(originalWallet, originalDirection, originalAmount, existing.getKind(), saved.getId());
+        applyWalletDelta(targetWallet, saved.getDirection(), saved.getAmount(), saved.getKind(), saved.getId());
         recalculateAggregates(originalCounterparty);
         if (!originalCounterparty.getId().equals(targetCounterparty.getId())) {
             recalculateAggregates(targetCounterparty);
         }
+        feedCountCache.evict(currentUser.id());
         return saved;
     }
 
     public void delete(AuthenticatedUser currentUser, Long id) {
         DebtTransaction transaction = getOwnedById(currentUser.id(), id);
-        revertWalletDelta(transaction.getWallet(), transaction.getDirection(), transaction.getAmount(), transaction.getKind());
+        revertWalletDelta(transaction.getWallet(), transaction.getDirection(), transaction.getAmount(), transaction.getKind(),
+                transaction.getId());
         transactionRepository.delete(transaction);
+        feedWriter.delete(transaction);
         recalculateAggregates(transaction.getCounterparty());
+        feedCountCache.evict(currentUser.id());
     }
     
     public Pageable buildPageable(int page, int size) {
@@ -203,11 +228,13 @@ public class DebtTransactionService {
         transaction.setOccurredAt(request.occurredAt());
 
         DebtTransaction saved = transactionRepository.save(transaction);
-        updateAggregates(counterparty, saved.getDirection(), saved.getAmount(), saved.getCurrency().getCode());
+        updateAggregates(counterparty, saved.getDirection(), saved.getAmount(), saved.getCurrency().getCode(),
+                saved.getOccurredAt());
         return saved;
     }
 
-    private void applyWalletDelta(Wallet wallet, DebtTransactionDirection direction, BigDecimal amount, DebtTransactionKind kind) {
+    private void applyWalletDelta(Wallet wallet, DebtTransactionDirection direction, BigDecimal amount, DebtTransactionKind kind,
+                                  Long transactionId) {
         if (kind != DebtTransactionKind.CASH_FLOW) {
             return;
         }
@@ -215,34 +242,29 @@ public class DebtTransactionService {
         if (direction == DebtTransactionDirection.LENT) {
             delta = delta.negate();
         }
-        updateWalletBalance(wallet, delta);
+        updateWalletBalance(wallet, delta, transactionId);
     }
 
-    private void revertWalletDelta(Wallet wallet, DebtTransactionDirection direction, BigDecimal amount, DebtTransactionKind kind) {
+    private void revertWalletDelta(Wallet wallet, DebtTransactionDirection direction, BigDecimal amount, DebtTransactionKind kind,
+                                   Long transactionId) {
         if (kind != DebtTransactionKind.CASH_FLOW) {
             return;
         }
         BigDecimal delta = direction == DebtTransactionDirection.LENT ? amount : amount.negate();
-        updateWalletBalance(wallet, delta);
+        updateWalletBalance(wallet, delta, transactionId);
     }
 
-    private void updateWalletBalance(Wallet wallet, BigDecimal delta) {
-        if (wallet == null) {
-            return;
-        }
-        BigDecimal currentBalance = wallet.getBalance() == null
-                ? BigDecimal.ZERO
-                : wallet.getBalance();
-        BigDecimal updated = currentBalance.add(delta);
-        wallet.setBalance(updated);
-        walletRepository.save(wallet);
+    private void updateWalletBalance(Wallet wallet, BigDecimal delta, Long transactionId) {
+        balanceUpdater.applyDelta(wallet, delta, WalletLedgerEntrySource.DEBT_TRANSACTION, transactionId);
     }
     
     private void updateAggregates(DebtCounterparty counterparty,
                                   DebtTransactionDirection direction,
                                   BigDecimal amount,
-                                  String walletCurrency) {
-        BigDecimal converted = convert(amount, walletCurrency, counterparty.getCurrency().getCode());
+                                  String walletCurrency,
+                                  OffsetDateTime occurredAt) {
+        LocalDate rateDay = occurredAt == null ? null : ExchangeRateService.rateDay(occurredAt);
+        BigDecimal converted = convert(amount, walletCurrency, counterparty.getCurrency().getCode(), rateDay);
         BigDecimal owedToMe = valueOrZero(counterparty.getOwedToMe());
         BigDecimal iOwe = valueOrZero(counterparty.getIOwe());
 
@@ -278,13 +300,21 @@ public class DebtTransactionService {
     }
 
     private void recalculateAggregates(DebtCounterparty counterparty) {
-        var transactions = transactionRepository.findAllByCounterpartyId(counterparty.getId());
+        String targetCurrency = counterparty.getCurrency().getCode();
+        Map<AmountKey, AmountTotal> totals = amountAggregator.aggregateDebtTransactions(
+                counterparty.getId(),
+                row -> new AmountKey(DebtTransactionDirection.valueOf(row.type()), row.currencyCode(),
+                        row.currencyCode().equalsIgnoreCase(targetCurrency) || row.occurredAt() == null
+                                ? null
+                                : ExchangeRateService.rateDay(row.occurredAt()))
+        );
         BigDecimal totalLent = BigDecimal.ZERO;
         BigDecimal totalBorrowed = BigDecimal.ZERO;
-        String targetCurrency = counterparty.getCurrency().getCode();
-        for (DebtTransaction tx : transactions) {
-            BigDecimal converted = convert(tx.getAmount(), tx.getCurrency().getCode(), targetCurrency);
-            if (tx.getDirection() == DebtTransactionDirection.LENT) {
+        for (Map.Entry<AmountKey, AmountTotal> entry : totals.entrySet()) {
+            AmountKey key = entry.getKey();
+            BigDecimal converted = convert(entry.getValue().amount(), key.currencyCode(), targetCurrency,
+                    key.rateDay());
+            if (key.direction() == DebtTransactionDirection.LENT) {
                 totalLent = totalLent.add(converted);
             } else {
                 totalBorrowed = totalBorrowed.add(converted);
@@ -297,14 +327,15 @@ public class DebtTransactionService {
         counterpartyRepository.save(counterparty);
     }
     
-    private BigDecimal convert(BigDecimal amount, String from, String to) {
+    private BigDecimal convert(BigDecimal amount, String from, String to, LocalDate rateDay) {
         if (amount == null) return ZERO;
         
         if (from.equalsIgnoreCase(to)) {
             return amount.setScale(2, RoundingMode.HALF_UP);
         }
         
-        return exchangeRateService.convert(amount, from, to);
+        return (rateDay == null ? exchangeRateService.snapshot() : exchangeRateService.snapshotAsOf(rateDay))
+                .convert(amount, from, to);
     }
     
     private BigDecimal normalizeAmount(BigDecimal value) {
@@ -318,4 +349,7 @@ public class DebtTransactionService {
     private BigDecimal valueOrZero(BigDecimal value) {
         return value == null ? ZERO : value;
     }
+
+    private record AmountKey(DebtTransactionDirection direction, String currencyCode, LocalDate rateDay) {
+    }
 }
@@ -1,6 +1,7 @@
 package com.shmoney.settings.controller;
 
 import com.shmoney.settings.dto.AppSettingsResponse;
+import com.shmoney.settings.dto.CurrencyChangeProgressResponse;
 import com.shmoney.settings.dto.UpdateAppSettingsRequest;
 import com.shmoney.settings.service.SettingsService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -36,4 +37,10 @@ public class SettingsController {
     public AppSettingsResponse updateSettings(@Valid @RequestBody UpdateAppSettingsRequest request) {
         return settingsService.updateSettings(request);
     }
+
+    @Operation(summary = "Получить ход смены основной валюты")
+    @GetMapping("/currency-change")
+    public CurrencyChangeProgressResponse getCurrencyChange() {
+        return settingsService.getCurrencyChange();
+    }
 }
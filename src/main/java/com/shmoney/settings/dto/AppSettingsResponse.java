@@ -5,6 +5,7 @@ import java.util.List;
 public record AppSettingsResponse(
         String defaultLanguage,
         String mainCurrency,
+        String pendingMainCurrency,
         List<String> supportedLanguages,
         List<String> supportedCurrencies
 ) {
@@ -0,0 +1,18 @@
+package com.shmoney.settings.dto;
+
+import com.shmoney.settings.entity.CurrencyChangeStatus;
+
+import java.time.OffsetDateTime;
+
+public record CurrencyChangeProgressResponse(
+        Long id,
+        String sourceCurrency,
+        String targetCurrency,
+        CurrencyChangeStatus status,
+        Integer totalRows,
+        int processedRows,
+        OffsetDateTime createdAt,
+        OffsetDateTime completedAt,
+        String error
+) {
+}
@@ -1,11 +1,13 @@
 package com.shmoney.settings.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "app_settings")
+@DynamicUpdate
 public class AppSettings {
 
     @Id
@@ -21,6 +23,9 @@ public class AppSettings {
     @Column(name = "main_currency", nullable = false, length = 10)
     private String mainCurrency;
 
+    @Column(name = "pending_main_currency", length = 10)
+    private String pendingMainCurrency;
+
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
@@ -71,6 +76,14 @@ public class AppSettings {
         this.mainCurrency = mainCurrency;
     }
 
+    public String getPendingMainCurrency() {
+        return pendingMainCurrency;
+    }
+
+    public void setPendingMainCurrency(String pendingMainCurrency) {
+        this.pendingMainCurrency = pendingMainCurrency;
+    }
+
     public OffsetDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,8 @@
+package com.shmoney.settings.entity;
+
+public enum CurrencyChangeStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
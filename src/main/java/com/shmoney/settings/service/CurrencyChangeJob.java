@@ -0,0 +1,420 @@
+package com.shmoney.settings.service;
+
+import com.shmoney.analytics.converter.CategoryBreakdownConverter;
+import com.shmoney.analytics.model.CategoryBreakdown;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.currency.service.RateTable;
+import com.shmoney.settings.dto.CurrencyChangeProgressResponse;
+import com.shmoney.settings.entity.CurrencyChangeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+
+/**
+ * Re-denominates the stored analytics summaries and debt counterparty totals into a new main currency.
+ * Rows are converted page by page under row locks, each page committing together with the job progress, so
+ * an interrupted change resumes where it stopped. A summary is converted at the rates of its last day and a
+ * counterparty at the rates of the day the change was requested; those tables are final, so pages converted
+ * before and after a resume agree. A change that fails after converting rows stays running and is retried
+ * from its recorded position. The main currency itself is switched in the final step; until then every read
+ * keeps using the previous one.
+ */
+@Component
+public class CurrencyChangeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CurrencyChangeJob.class);
+
+    private static final int PAGE_SIZE = 500;
+    private static final int AMOUNT_SCALE = 2;
+    private static final String RETRY_DELAY = "1 minute";
+
+    private static final String JOB_COLUMNS = """
+            id, source_currency, target_currency, status, total_rows, processed_rows,
+            last_summary_id, last_counterparty_id, created_at, completed_at, error
+            """;
+
+    private static final String INSERT_JOB_SQL = """
+            INSERT INTO currency_change_jobs (source_currency, target_currency)
+            VALUES (:sourceCurrency, :targetCurrency)
+            RETURNING id
+            """;
+
+    private static final String ACTIVE_JOB_SQL = "SELECT " + JOB_COLUMNS + """
+            FROM currency_change_jobs
+            WHERE status IN ('PENDING', 'RUNNING')
+            ORDER BY id
+            LIMIT 1
+            """;
+
+    private static final String RUNNABLE_JOB_SQL = "SELECT " + JOB_COLUMNS + """
+            FROM currency_change_jobs
+            WHERE status IN ('PENDING', 'RUNNING')
+              AND (error IS NULL OR updated_at < NOW() - INTERVAL '%s')
+            ORDER BY id
+            LIMIT 1
+            """.formatted(RETRY_DELAY);
+
+    private static final String LATEST_JOB_SQL = "SELECT " + JOB_COLUMNS + """
+            FROM currency_change_jobs
+            ORDER BY id DESC
+            LIMIT 1
+            """;
+
+    private static final String START_JOB_SQL = """
+            UPDATE currency_change_jobs
+            SET status = 'RUNNING',
+                total_rows = COALESCE(total_rows,
+                    (SELECT COUNT(*) FROM analytics_monthly_summary WHERE UPPER(currency_code) <> :targetCurrency)
+                    + (SELECT COUNT(*) FROM debt_counterparties WHERE currency_id <> :targetCurrencyId)),
+                error = NULL,
+                updated_at = NOW()
+            WHERE id = :jobId
+            """;
+
+    private static final String TARGET_CURRENCY_ID_SQL =
+            "SELECT id FROM currencies WHERE UPPER(code) = :targetCurrency";
+
+    private static final String SUMMARY_PAGE_SQL = """
+            SELECT id, period_end, currency_code, total_expense, total_income, expense_breakdown, income_breakdown
+            FROM analytics_monthly_summary
+            WHERE id > :afterId AND UPPER(currency_code) <> :targetCurrency
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE
+            """;
+
+    private static final String UPDATE_SUMMARY_SQL = """
+            UPDATE analytics_monthly_summary
+            SET currency_code = :targetCurrency,
+                total_expense = :totalExpense,
+                total_income = :totalIncome,
+                cash_flow_amount = :cashFlowAmount,
+                expense_breakdown = :expenseBreakdown,
+                income_breakdown = :incomeBreakdown
+            WHERE id = :id
+            """;
+
+    private static final String COUNTERPARTY_PAGE_SQL = """
+            SELECT d.id, c.code AS currency_code, d.owed_to_me, d.i_owe
+            FROM debt_counterparties d
+            JOIN currencies c ON c.id = d.currency_id
+            WHERE d.id > :afterId AND d.currency_id <> :targetCurrencyId
+            ORDER BY d.id
+            LIMIT :limit
+            FOR UPDATE OF d
+            """;
+
+    private static final String UPDATE_COUNTERPARTY_SQL = """
+            UPDATE debt_counterparties
+            SET currency_id = :targetCurrencyId,
+                owed_to_me = :owedToMe,
+                i_owe = :iOwe,
+                updated_at = NOW()
+            WHERE id = :id
+            """;
+
+    private static final String SAVE_PROGRESS_SQL = """
+            UPDATE currency_change_jobs
+            SET %s = :lastId,
+                processed_rows = processed_rows + :processedRows,
+                updated_at = NOW()
+            WHERE id = :jobId
+            """;
+
+    private static final String PROCESSED_ROWS_SQL =
+            "SELECT processed_rows FROM currency_change_jobs WHERE id = :jobId";
+
+    private static final String RECORD_ERROR_SQL = """
+            UPDATE currency_change_jobs
+            SET error = :error,
+                updated_at = NOW()
+            WHERE id = :jobId
+            """;
+
+    private static final String SWITCH_MAIN_CURRENCY_SQL = """
+            UPDATE app_settings
+            SET main_currency = :targetCurrency,
+                pending_main_currency = NULL,
+                updated_at = NOW()
+            """;
+
+    private static final String CLEAR_PENDING_CURRENCY_SQL = """
+            UPDATE app_settings
+            SET pending_main_currency = NULL,
+                updated_at = NOW()
+            """;
+
+    private static final String FINISH_JOB_SQL = """
+            UPDATE currency_change_jobs
+            SET status = :status,
+                error = :error,
+                completed_at = NOW(),
+                updated_at = NOW()
+            WHERE id = :jobId
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExchangeRateService exchangeRateService;
+    private final CategoryBreakdownConverter breakdownConverter = new CategoryBreakdownConverter();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CurrencyChangeJob(NamedParameterJdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ExchangeRateService exchangeRateService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.exchangeRateService = exchangeRateService;
+    }
+
+    public void schedule(String sourceCurrency, String targetCurrency) {
+        jdbcTemplate.queryForObject(INSERT_JOB_SQL, new MapSqlParameterSource()
+                .addValue("sourceCurrency", sourceCurrency, Types.VARCHAR)
+                .addValue("targetCurrency", targetCurrency, Types.VARCHAR), Long.class);
+    }
+
+    public Optional<CurrencyChangeProgressResponse> findActive() {
+        return findJob(ACTIVE_JOB_SQL).map(JobState::toResponse);
+    }
+
+    public Optional<CurrencyChangeProgressResponse> findLatest() {
+        return findJob(LATEST_JOB_SQL).map(JobState::toResponse);
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    public void processPendingChange() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            findJob(RUNNABLE_JOB_SQL).ifPresent(this::run);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    void run(JobState job) {
+        String target = job.targetCurrency().toUpperCase(Locale.ROOT);
+        try {
+            Long targetCurrencyId = jdbcTemplate.queryForObject(TARGET_CURRENCY_ID_SQL,
+                    new MapSqlParameterSource("targetCurrency", target), Long.class);
+            MapSqlParameterSource targetParams = new MapSqlParameterSource()
+                    .addValue("jobId", job.id(), Types.BIGINT)
+                    .addValue("targetCurrency", target, Types.VARCHAR)
+                    .addValue("targetCurrencyId", targetCurrencyId, Types.BIGINT);
+            jdbcTemplate.update(START_JOB_SQL, targetParams);
+
+            LocalDate requestDay = ExchangeRateService.rateDay(job.createdAt());
+            Map<LocalDate, RateTable> tables = new HashMap<>();
+            convertAll(job.id(), "last_summary_id", job.lastSummaryId(),
+                    afterId -> convertSummaryPage(targetParams, afterId, requestDay, tables));
+            convertAll(job.id(), "last_counterparty_id", job.lastCounterpartyId(),
+                    afterId -> convertCounterpartyPage(targetParams, afterId, requestDay, tables));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(SWITCH_MAIN_CURRENCY_SQL, targetParams);
+                finish(job.id(), CurrencyChangeStatus.COMPLETED, null);
+            });
+            log.info("Main currency changed from {} to {}", job.sourceCurrency(), target);
+        } catch (RuntimeException ex) {
+            MapSqlParameterSource jobParams = new MapSqlParameterSource("jobId", job.id());
+            Integer processed = jdbcTemplate.queryForObject(PROCESSED_ROWS_SQL, jobParams, Integer.class);
+            if (processed != null && processed > 0) {
+                log.error("Main currency change {} -> {} stopped, it will be resumed", job.sourceCurrency(), target,
+                        ex);
+                jdbcTemplate.update(RECORD_ERROR_SQL, jobParams.addValue("error", ex.getMessage(), Types.VARCHAR));
+                return;
+            }
+            log.error("Main currency change {} -> {} failed", job.sourceCurrency(), target, ex);
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(CLEAR_PENDING_CURRENCY_SQL, new MapSqlParameterSource());
+                finish(job.id(), CurrencyChangeStatus.FAILED, ex.getMessage());
+            });
+        }
+    }
+
+    // Pages are converted from the recorded position, then once more from the start to pick up rows
+    // that were written back in the old currency while the change was running.
+    private void convertAll(Long jobId, String progressColumn, long resumeAfter, LongFunction<Page> converter) {
+        String progressSql = SAVE_PROGRESS_SQL.formatted(progressColumn);
+        long afterId = resumeAfter;
+        boolean sweeping = false;
+        while (true) {
+            long pageAfter = afterId;
+            Page page = transactionTemplate.execute(status -> {
+                Page converted = converter.apply(pageAfter);
+                if (converted.size() > 0) {
+                    jdbcTemplate.update(progressSql, new MapSqlParameterSource()
+                            .addValue("jobId", jobId, Types.BIGINT)
+                            .addValue("lastId", converted.lastId(), Types.BIGINT)
+                            .addValue("processedRows", converted.size(), Types.INTEGER));
+                }
+                return converted;
+            });
+            if (page != null && page.size() > 0) {
+                afterId = page.lastId();
+                continue;
+            }
+            if (sweeping) {
+                return;
+            }
+            sweeping = true;
+            afterId = 0L;
+        }
+    }
+
+    private Page convertSummaryPage(MapSqlParameterSource targetParams,
+                                    long afterId,
+                                    LocalDate requestDay,
+                                    Map<LocalDate, RateTable> tables) {
+        String target = (String) targetParams.getValue("targetCurrency");
+        List<SqlParameterSource> updates = new ArrayList<>();
+        long[] lastId = {afterId};
+        jdbcTemplate.query(SUMMARY_PAGE_SQL, pageParams(targetParams, afterId), rs -> {
+            LocalDate lastDay = ExchangeRateService.rateDay(rs.getObject("period_end", OffsetDateTime.class));
+            BigDecimal rate = rates(tables, lastDay.isAfter(requestDay) ? requestDay : lastDay)
+                    .rate(rs.getString("currency_code"), target);
+            BigDecimal expense = convert(EncryptedBigDecimalConverter.decryptValue(rs.getString("total_expense")),
+                    rate);
+            BigDecimal income = convert(EncryptedBigDecimalConverter.decryptValue(rs.getString("total_income")),
+                    rate);
+            lastId[0] = rs.getLong("id");
+            updates.add(new MapSqlParameterSource()
+                    .addValue("id", lastId[0], Types.BIGINT)
+                    .addValue("targetCurrency", target, Types.VARCHAR)
+                    .addValue("totalExpense", EncryptedBigDecimalConverter.encryptValue(expense), Types.VARCHAR)
+                    .addValue("totalIncome", EncryptedBigDecimalConverter.encryptValue(income), Types.VARCHAR)
+                    .addValue("cashFlowAmount", EncryptedBigDecimalConverter.encryptValue(income.subtract(expense)),
+                            Types.VARCHAR)
+                    .addValue("expenseBreakdown", convertBreakdown(rs.getString("expense_breakdown"), rate),
+                            Types.VARCHAR)
+                    .addValue("incomeBreakdown", convertBreakdown(rs.getString("income_breakdown"), rate),
+                            Types.VARCHAR));
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SUMMARY_SQL, updates.toArray(SqlParameterSource[]::new));
+        }
+        return new Page(lastId[0], updates.size());
+    }
+
+    private Page convertCounterpartyPage(MapSqlParameterSource targetParams,
+                                         long afterId,
+                                         LocalDate requestDay,
+                                         Map<LocalDate, RateTable> tables) {
+        String target = (String) targetParams.getValue("targetCurrency");
+        List<SqlParameterSource> updates = new ArrayList<>();
+        long[] lastId = {afterId};
+        jdbcTemplate.query(COUNTERPARTY_PAGE_SQL, pageParams(targetParams, afterId), rs -> {
+            BigDecimal rate = rates(tables, requestDay).rate(rs.getString("currency_code"), target);
+            BigDecimal owedToMe = convert(EncryptedBigDecimalConverter.decryptValue(rs.getString("owed_to_me")), rate);
+            BigDecimal iOwe = convert(EncryptedBigDecimalConverter.decryptValue(rs.getString("i_owe")), rate);
+            lastId[0] = rs.getLong("id");
+            updates.add(new MapSqlParameterSource()
+                    .addValue("id", lastId[0], Types.BIGINT)
+                    .addValue("targetCurrencyId", targetParams.getValue("targetCurrencyId"), Types.BIGINT)
+                    .addValue("owedToMe", EncryptedBigDecimalConverter.encryptValue(owedToMe), Types.VARCHAR)
+                    .addValue("iOwe", EncryptedBigDecimalConverter.encryptValue(iOwe), Types.VARCHAR));
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_COUNTERPARTY_SQL, updates.toArray(SqlParameterSource[]::new));
+        }
+        return new Page(lastId[0], updates.size());
+    }
+
+    private MapSqlParameterSource pageParams(MapSqlParameterSource targetParams, long afterId) {
+        return new MapSqlParameterSource(targetParams.getValues())
+                .addValue("afterId", afterId, Types.BIGINT)
+                .addValue("limit", PAGE_SIZE, Types.INTEGER);
+    }
+
+    private RateTable rates(Map<LocalDate, RateTable> tables, LocalDate day) {
+        return tables.computeIfAbsent(day, exchangeRateService::snapshotAsOf);
+    }
+
+    private String convertBreakdown(String stored, BigDecimal rate) {
+        List<CategoryBreakdown> converted = breakdownConverter.convertToEntityAttribute(stored).stream()
+                .map(entry -> new CategoryBreakdown(
+                        entry.categoryId(),
+                        entry.categoryName(),
+                        entry.categoryColor(),
+                        entry.categoryIcon(),
+                        convert(entry.amount(), rate),
+                        entry.transactionCount()
+                ))
+                .toList();
+        return breakdownConverter.convertToDatabaseColumn(converted);
+    }
+
+    private BigDecimal convert(BigDecimal amount, BigDecimal rate) {
+        if (amount == null) {
+            return BigDecimal.ZERO.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        }
+        return amount.multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private void finish(Long jobId, CurrencyChangeStatus status, String error) {
+        jdbcTemplate.update(FINISH_JOB_SQL, new MapSqlParameterSource()
+                .addValue("jobId", jobId, Types.BIGINT)
+                .addValue("status", status.name(), Types.VARCHAR)
+                .addValue("error", error, Types.VARCHAR));
+    }
+
+    private Optional<JobState> findJob(String sql) {
+        RowMapper<JobState> mapper = (rs, rowNum) -> new JobState(
+                rs.getLong("id"),
+                rs.getString("source_currency"),
+                rs.getString("target_currency"),
+                CurrencyChangeStatus.valueOf(rs.getString("status")),
+                rs.getObject("total_rows", Integer.class),
+                rs.getInt("processed_rows"),
+                rs.getLong("last_summary_id"),
+                rs.getLong("last_counterparty_id"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("completed_at", OffsetDateTime.class),
+                rs.getString("error")
+        );
+        return jdbcTemplate.query(sql, mapper).stream().findFirst();
+    }
+
+    record JobState(Long id,
+                    String sourceCurrency,
+                    String targetCurrency,
+                    CurrencyChangeStatus status,
+                    Integer totalRows,
+                    int processedRows,
+                    long lastSummaryId,
+                    long lastCounterpartyId,
+                    OffsetDateTime createdAt,
+                    OffsetDateTime completedAt,
+                    String error) {
+
+        CurrencyChangeProgressResponse toResponse() {
+            return new CurrencyChangeProgressResponse(id, sourceCurrency, targetCurrency, status, totalRows,
+                    processedRows, createdAt, completedAt, error);
+        }
+    }
+
+    private record Page(long lastId, int size) {
+    }
+}
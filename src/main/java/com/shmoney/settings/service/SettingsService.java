@@ -1,14 +1,14 @@
 package com.shmoney.settings.service;
 
-import com.shmoney.analytics.service.AnalyticsService;
 import com.shmoney.currency.entity.Currency;
 import com.shmoney.currency.service.CurrencyService;
-import com.shmoney.debt.service.DebtCounterpartyService;
 import com.shmoney.settings.ApplicationLanguage;
 import com.shmoney.settings.dto.AppSettingsResponse;
+import com.shmoney.settings.dto.CurrencyChangeProgressResponse;
 import com.shmoney.settings.dto.UpdateAppSettingsRequest;
 import com.shmoney.settings.entity.AppSettings;
 import com.shmoney.settings.repository.AppSettingsRepository;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,19 +34,16 @@ public class SettingsService {
     private final AppSettingsRepository appSettingsRepository;
     private final CurrencyService currencyService;
     private final AppSettingsProvider appSettingsProvider;
-    private final AnalyticsService analyticsService;
-    private final DebtCounterpartyService debtCounterpartyService;
+    private final CurrencyChangeJob currencyChangeJob;
 
     public SettingsService(AppSettingsRepository appSettingsRepository,
                            CurrencyService currencyService,
                            AppSettingsProvider appSettingsProvider,
-                           AnalyticsService analyticsService,
-                           DebtCounterpartyService debtCounterpartyService) {
+                           CurrencyChangeJob currencyChangeJob) {
         this.appSettingsRepository = appSettingsRepository;
         this.currencyService = currencyService;
         this.appSettingsProvider = appSettingsProvider;
-        this.analyticsService = analyticsService;
-        this.debtCounterpartyService = debtCounterpartyService;
+        this.currencyChangeJob = currencyChangeJob;
     }
 
     public AppSettingsResponse getSettings() {
@@ -69,24 +66,43 @@ public class SettingsService {
             settings.setDefaultLanguage(language.code());
         }
 
-        String newCurrency = previousCurrency;
         if (StringUtils.hasText(request.mainCurrency())) {
-            newCurrency = resolveCurrency(request.mainCurrency());
-            settings.setMainCurrency(newCurrency);
+            String newCurrency = resolveCurrency(request.mainCurrency());
+            if (previousCurrency == null) {
+                settings.setMainCurrency(newCurrency);
+            } else if (!previousCurrency.equalsIgnoreCase(newCurrency)) {
+                scheduleCurrencyChange(settings, previousCurrency, newCurrency);
+            }
         }
 
         appSettingsRepository.save(settings);
-        if (previousCurrency != null && !previousCurrency.equalsIgnoreCase(newCurrency)) {
-            analyticsService.recalculateAllSummaries(newCurrency);
-            debtCounterpartyService.recalculateForNewCurrency(newCurrency);
-        }
         return buildResponse(settings);
     }
 
+    public CurrencyChangeProgressResponse getCurrencyChange() {
+        return currencyChangeJob.findLatest()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Смена основной валюты не запускалась"));
+    }
+
+    // Stored amounts are converted in the background, the main currency switches once they all are.
+    private void scheduleCurrencyChange(AppSettings settings, String previousCurrency, String newCurrency) {
+        if (currencyChangeJob.findActive().isPresent()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Смена основной валюты уже выполняется");
+        }
+        try {
+            currencyChangeJob.schedule(previousCurrency.toUpperCase(Locale.ROOT), newCurrency);
+        } catch (DuplicateKeyException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Смена основной валюты уже выполняется");
+        }
+        settings.setPendingMainCurrency(newCurrency);
+    }
+
     private AppSettingsResponse buildResponse(AppSettings settings) {
         return new AppSettingsResponse(
                 settings.getDefaultLanguage(),
                 settings.getMainCurrency(),
+                settings.getPendingMainCurrency(),
                 SUPPORTED_LANGUAGES.stream().map(ApplicationLanguage::code).toList(),
                 getSupportedCurrencies()
         );
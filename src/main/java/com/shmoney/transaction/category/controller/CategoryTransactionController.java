@@ -14,6 +14,7 @@ import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -48,6 +49,17 @@ public class CategoryTransactionController {
         return ResponseEntity.created(URI.create("/api/category-transactions/" + response.id())).body(response);
     }
 
+    @Operation(summary = "Импортировать транзакции по категориям пачкой")
+    @PostMapping("/batch")
+    public ResponseEntity<CategoryTransactionBatchResponse> createBatch(
+            @Valid @RequestBody CategoryTransactionBatchRequest request) {
+        AuthenticatedUser current = currentUserProvider.requireCurrentUser();
+        List<Long> ids = transactionService.createBatch(current, request.transactions()).stream()
+                .map(CategoryTransaction::getId)
+                .toList();
+        return ResponseEntity.status(HttpStatus.CREATED).body(new CategoryTransactionBatchResponse(ids.size(), ids));
+    }
+
     @Operation(summary = "Список транзакций")
     @GetMapping
     public PageResponse<CategoryTransactionResponse> list(@RequestParam(defaultValue = "0") int page,
@@ -0,0 +1,12 @@
+package com.shmoney.transaction.category.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CategoryTransactionBatchRequest(
+        @NotEmpty @Size(max = 2000) List<@Valid CategoryTransactionCreateRequest> transactions
+) {
+}
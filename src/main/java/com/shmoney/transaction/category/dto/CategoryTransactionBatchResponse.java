@@ -0,0 +1,9 @@
+package com.shmoney.transaction.category.dto;
+
+import java.util.List;
+
+public record CategoryTransactionBatchResponse(
+        int created,
+        List<Long> ids
+) {
+}
@@ -0,0 +1,69 @@
+package com.shmoney.transaction.category.repository;
+
+import com.shmoney.transaction.category.entity.CategoryTransaction;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Bulk writes of category transactions with JDBC batching. Ids are taken from the table sequence up front in
+ * one query, so the rows can be inserted without reading generated keys back.
+ */
+@Repository
+public class CategoryTransactionBatchRepository {
+
+    private static final String ALLOCATE_IDS_SQL = """
+            SELECT nextval('category_transactions_id_seq')
+            FROM generate_series(1, :count)
+            """;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO category_transactions (
+                id, user_id, wallet_id, category_id, type, amount, currency_id, description,
+                occurred_at, created_at, updated_at
+            ) VALUES (
+                :id, :userId, :walletId, :categoryId, :type, :amount, :currencyId, :description,
+                :occurredAt, :createdAt, :updatedAt
+            )
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CategoryTransactionBatchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> allocateIds(int count) {
+        return jdbcTemplate.queryForList(ALLOCATE_IDS_SQL,
+                new MapSqlParameterSource("count", count), Long.class);
+    }
+
+    /**
+     * @param transactions     transactions with their ids already allocated
+     * @param encryptedAmounts amounts of the transactions in the same order, already encrypted
+     */
+    public void insertAll(List<CategoryTransaction> transactions, String[] encryptedAmounts) {
+        SqlParameterSource[] rows = new SqlParameterSource[transactions.size()];
+        for (int i = 0; i < rows.length; i++) {
+            CategoryTransaction transaction = transactions.get(i);
+            rows[i] = new MapSqlParameterSource()
+                    .addValue("id", transaction.getId(), Types.BIGINT)
+                    .addValue("userId", transaction.getUser().getId(), Types.BIGINT)
+                    .addValue("walletId", transaction.getWallet().getId(), Types.BIGINT)
+                    .addValue("categoryId", transaction.getCategory().getId(), Types.BIGINT)
+                    .addValue("type", transaction.getType().name(), Types.VARCHAR)
+                    .addValue("amount", encryptedAmounts[i], Types.VARCHAR)
+                    .addValue("currencyId", transaction.getCurrency().getId(), Types.BIGINT)
+                    .addValue("description", transaction.getDescription(), Types.VARCHAR)
+                    .addValue("occurredAt", Timestamp.from(transaction.getOccurredAt().toInstant()), Types.TIMESTAMP)
+                    .addValue("createdAt", Timestamp.from(transaction.getCreatedAt().toInstant()), Types.TIMESTAMP)
+                    .addValue("updatedAt", Timestamp.from(transaction.getUpdatedAt().toInstant()), Types.TIMESTAMP);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+}
@@ -5,6 +5,7 @@ import com.shmoney.auth.security.AuthenticatedUser;
 import com.shmoney.budget.service.BudgetSpendingService;
 import com.shmoney.category.entity.Category;
 import com.shmoney.category.service.CategoryService;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
 import com.shmoney.transaction.category.dto.CategoryTransactionCreateRequest;
 import com.shmoney.transaction.category.dto.CategoryTransactionFilter;
 import com.shmoney.transaction.category.dto.CategoryTransactionUpdateRequest;
@@ -12,10 +13,14 @@ import com.shmoney.transaction.category.entity.CategoryTransaction;
 import com.shmoney.transaction.category.entity.CategoryTransactionType;
 import com.shmoney.transaction.category.exception.CategoryTransactionNotFoundException;
 import com.shmoney.transaction.category.exception.InvalidCategoryTransactionException;
+import com.shmoney.transaction.category.repository.CategoryTransactionBatchRepository;
 import com.shmoney.transaction.category.repository.CategoryTransactionRepository;
 import com.shmoney.transaction.category.repository.CategoryTransactionSpecifications;
+import com.shmoney.transaction.feed.TransactionFeedCountCache;
+import com.shmoney.transaction.feed.TransactionFeedWriter;
 import com.shmoney.wallet.entity.Wallet;
-import com.shmoney.wallet.repository.WalletRepository;
+import com.shmoney.wallet.ledger.WalletLedgerEntrySource;
+import com.shmoney.wallet.service.WalletBalanceUpdater;
 import com.shmoney.wallet.service.WalletService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +35,13 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -38,24 +50,33 @@ public class CategoryTransactionService {
     private static final Logger log = LoggerFactory.getLogger(CategoryTransactionService.class);
     
     private final CategoryTransactionRepository transactionRepository;
+    private final CategoryTransactionBatchRepository batchRepository;
     private final WalletService walletService;
-    private final WalletRepository walletRepository;
+    private final WalletBalanceUpdater balanceUpdater;
     private final CategoryService categoryService;
     private final BudgetSpendingService budgetSpendingService;
     private final AnalyticsService analyticsService;
+    private final TransactionFeedCountCache feedCountCache;
+    private final TransactionFeedWriter feedWriter;
 
     public CategoryTransactionService(CategoryTransactionRepository transactionRepository,
+                                      CategoryTransactionBatchRepository batchRepository,
                                       WalletService walletService,
-                                      WalletRepository walletRepository,
+                                      WalletBalanceUpdater balanceUpdater,
                                       CategoryService categoryService,
                                       BudgetSpendingService budgetSpendingService,
-                                      AnalyticsService analyticsService) {
+                                      AnalyticsService analyticsService,
+                                      TransactionFeedCountCache feedCountCache,
+                                      TransactionFeedWriter feedWriter) {
         this.transactionRepository = transactionRepository;
+        this.batchRepository = batchRepository;
         this.walletService = walletService;
-        this.walletRepository = walletRepository;
+        this.balanceUpdater = balanceUpdater;
         this.categoryService = categoryService;
         this.budgetSpendingService = budgetSpendingService;
         this.analyticsService = analyticsService;
+        this.feedCountCache = feedCountCache;
+        this.feedWriter = feedWriter;
     }
     
     public CategoryTransaction create(AuthenticatedUser currentUser,
@@ -70,18 +91,78 @@ public class CategoryTransactionService {
         transaction.setType(request.type());
         transaction.setAmount(normalize(request.amount()));
         transaction.setCurrency(wallet.getCurrency());
-        transaction.setDescription(request.description());
+        transaction.setDescription(normalizeDescription(request.description()));
         transaction.setOccurredAt(enrichOccurredAt(request.occurredAt()));
 
         CategoryTransaction saved = transactionRepository.save(transaction);
-        applyBalanceDelta(wallet, request.type(), saved.getAmount());
+        feedWriter.upsert(saved);
+        applyBalanceDelta(wallet, request.type(), saved.getAmount(), saved.getId());
         budgetSpendingService.handleTransactionCreated(saved);
-        analyticsService.invalidateMonth(currentUser.id(), saved.getOccurredAt());
+        analyticsService.handleTransactionCreated(saved);
+        feedCountCache.evict(currentUser.id());
         log.info("Category transaction created id={} user={} wallet={} type={} amount={}", saved.getId(),
                 currentUser.id(), wallet.getId(), saved.getType(), saved.getAmount());
         return saved;
     }
     
+    /**
+     * Imports many transactions at once. Ownership is checked once per distinct wallet and category, rows are
+     * inserted in JDBC batches, and every side effect is applied once for the whole import: one balance delta
+     * per wallet, one spent delta per budget and one pass over the affected analytics months.
+     */
+    public List<CategoryTransaction> createBatch(AuthenticatedUser currentUser,
+                                                 List<CategoryTransactionCreateRequest> requests) {
+        Map<Long, Wallet> wallets = requireWalletOwner(currentUser.id(), requests.stream()
+                .map(CategoryTransactionCreateRequest::walletId)
+                .collect(Collectors.toSet()));
+        Map<Long, Category> categories = categoryService.getOwnedCategories(requests.stream()
+                .map(CategoryTransactionCreateRequest::categoryId)
+                .collect(Collectors.toSet()), currentUser.id());
+
+        List<Long> ids = batchRepository.allocateIds(requests.size());
+        OffsetDateTime now = OffsetDateTime.now();
+        List<CategoryTransaction> transactions = new ArrayList<>(requests.size());
+        Map<Long, BigDecimal> balanceDeltas = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CategoryTransactionCreateRequest request = requests.get(i);
+            Wallet wallet = wallets.get(request.walletId());
+            CategoryTransaction transaction = new CategoryTransaction();
+            transaction.setId(ids.get(i));
+            transaction.setUser(wallet.getOwner());
+            transaction.setWallet(wallet);
+            transaction.setCategory(categories.get(request.categoryId()));
+            transaction.setType(request.type());
+            transaction.setAmount(normalize(request.amount()));
+            transaction.setCurrency(wallet.getCurrency());
+            transaction.setDescription(normalizeDescription(request.description()));
+            transaction.setOccurredAt(enrichOccurredAt(request.occurredAt()));
+            transaction.setCreatedAt(now);
+            transaction.setUpdatedAt(now);
+            transactions.add(transaction);
+            BigDecimal delta = transaction.getType() == CategoryTransactionType.EXPENSE
+                    ? transaction.getAmount().negate()
+                    : transaction.getAmount();
+            balanceDeltas.merge(wallet.getId(), delta, BigDecimal::add);
+        }
+
+        // One ciphertext per amount serves both the row and its feed entry.
+        String[] encryptedAmounts = EncryptedBigDecimalConverter.encryptAll(transactions.stream()
+                .map(CategoryTransaction::getAmount)
+                .toList());
+        batchRepository.insertAll(transactions, encryptedAmounts);
+        feedWriter.upsertAll(transactions, encryptedAmounts);
+        balanceDeltas.forEach((walletId, delta) -> updateWalletBalance(wallets.get(walletId), delta, null));
+        List<BudgetSpendingService.TransactionSnapshot> snapshots = transactions.stream()
+                .map(BudgetSpendingService.TransactionSnapshot::from)
+                .toList();
+        budgetSpendingService.handleTransactionsCreated(snapshots);
+        analyticsService.handleTransactionsCreated(currentUser.id(), snapshots);
+        feedCountCache.evict(currentUser.id());
+        log.info("Category transactions imported count={} user={} wallets={}", transactions.size(),
+                currentUser.id(), balanceDeltas.size());
+        return transactions;
+    }
+    
     @Transactional(readOnly = true)
     public Page<CategoryTransaction> getPage(Long userId,
                                              CategoryTransactionFilter filter,
@@ -111,7 +192,6 @@ public class CategoryTransactionService {
         Wallet originalWallet = existing.getWallet();
         BigDecimal originalAmount = existing.getAmount();
         CategoryTransactionType originalType = existing.getType();
-        OffsetDateTime originalOccurredAt = existing.getOccurredAt();
         
         Wallet targetWallet = resolveWalletUpdate(currentUser, request.walletId(), existing);
         Category category = resolveCategoryUpdate(currentUser, request.categoryId(), existing);
@@ -134,22 +214,25 @@ public class CategoryTransactionService {
         existing.setCurrency(targetWallet.getCurrency());
 
         CategoryTransaction saved = transactionRepository.save(existing);
-        revertBalanceDelta(originalWallet, originalType, originalAmount);
-        applyBalanceDelta(saved.getWallet(), saved.getType(), saved.getAmount());
-        budgetSpendingService.handleTransactionUpdated(beforeSnapshot,
-                BudgetSpendingService.TransactionSnapshot.from(saved));
-        analyticsService.invalidateMonth(currentUser.id(), originalOccurredAt);
-        analyticsService.invalidateMonth(currentUser.id(), saved.getOccurredAt());
+        feedWriter.upsert(saved);
+        revertBalanceDelta(originalWallet, originalType, originalAmount, saved.getId());
+        applyBalanceDelta(saved.getWallet(), saved.getType(), saved.getAmount(), saved.getId());
+        BudgetSpendingService.TransactionSnapshot afterSnapshot = BudgetSpendingService.TransactionSnapshot.from(saved);
+        budgetSpendingService.handleTransactionUpdated(beforeSnapshot, afterSnapshot);
+        analyticsService.handleTransactionUpdated(beforeSnapshot, afterSnapshot);
+        feedCountCache.evict(currentUser.id());
         log.info("Category transaction updated id={} user={}", saved.getId(), currentUser.id());
         return saved;
     }
 
     public void delete(AuthenticatedUser currentUser, Long id) {
         CategoryTransaction existing = getOwnedById(currentUser.id(), id);
-        revertBalanceDelta(existing.getWallet(), existing.getType(), existing.getAmount());
+        revertBalanceDelta(existing.getWallet(), existing.getType(), existing.getAmount(), existing.getId());
         budgetSpendingService.handleTransactionDeleted(existing);
         transactionRepository.delete(existing);
-        analyticsService.invalidateMonth(currentUser.id(), existing.getOccurredAt());
+        feedWriter.delete(existing);
+        analyticsService.handleTransactionDeleted(existing);
+        feedCountCache.evict(currentUser.id());
         log.info("Category transaction deleted id={} user={}", id, currentUser.id());
     }
     
@@ -161,6 +244,14 @@ public class CategoryTransactionService {
         return wallet;
     }
     
+    private Map<Long, Wallet> requireWalletOwner(Long userId, Set<Long> walletIds) {
+        Map<Long, Wallet> wallets = new HashMap<>();
+        for (Long walletId : walletIds) {
+            wallets.put(walletId, requireWalletOwner(userId, walletId));
+        }
+        return wallets;
+    }
+    
     private Wallet resolveWalletUpdate(AuthenticatedUser currentUser, Long walletId,
                                        CategoryTransaction existing) {
         if (walletId == null) {
@@ -177,37 +268,37 @@ public class CategoryTransactionService {
         return categoryService.getOwnedCategory(categoryId, currentUser.id());
     }
     
-    private void applyBalanceDelta(Wallet wallet, CategoryTransactionType type, BigDecimal amount) {
+    private void applyBalanceDelta(Wallet wallet, CategoryTransactionType type, BigDecimal amount, Long transactionId) {
         BigDecimal delta = amount;
         if (type == CategoryTransactionType.EXPENSE) {
             delta = delta.negate();
         }
-        updateWalletBalance(wallet, delta);
+        updateWalletBalance(wallet, delta, transactionId);
     }
     
-    private void revertBalanceDelta(Wallet wallet, CategoryTransactionType type, BigDecimal amount) {
+    private void revertBalanceDelta(Wallet wallet, CategoryTransactionType type, BigDecimal amount, Long transactionId) {
         BigDecimal delta = amount;
         if (type == CategoryTransactionType.EXPENSE) {
             delta = delta;
         } else {
             delta = delta.negate();
         }
-        updateWalletBalance(wallet, delta);
+        updateWalletBalance(wallet, delta, transactionId);
     }
     
-    private void updateWalletBalance(Wallet wallet, BigDecimal delta) {
-        BigDecimal currentBalance = wallet.getBalance() == null
-                ? BigDecimal.ZERO
-                : wallet.getBalance();
-        BigDecimal updated = currentBalance.add(delta);
-        wallet.setBalance(updated);
-        walletRepository.save(wallet);
+    private void updateWalletBalance(Wallet wallet, BigDecimal delta, Long transactionId) {
+        balanceUpdater.applyDelta(wallet, delta, WalletLedgerEntrySource.CATEGORY_TRANSACTION, transactionId);
     }
     
     private BigDecimal normalize(BigDecimal value) {
         return value == null ? null : value.setScale(2, RoundingMode.HALF_UP);
     }
     
+    // Same trimming as the entity applies on persist; imported rows are written without JPA.
+    private String normalizeDescription(String description) {
+        return description == null ? null : description.trim();
+    }
+    
     public Pageable buildPageable(int page, int size) {
         int resolvedSize = size <= 0 ? 50 : Math.min(size, 100);
         int resolvedPage = Math.max(page, 0);
@@ -0,0 +1,151 @@
+package com.shmoney.transaction.feed;
+
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+
+@Component
+public class TransactionFeedConsistencyChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionFeedConsistencyChecker.class);
+
+    private static final String FEED_COLUMNS = """
+            entry_source, entry_id, user_id, wallet_id, counterparty_wallet_id, category_id,
+            category_transaction_type, debt_counterparty_id, debt_direction, amount, currency_code,
+            description, occurred_at, created_at
+            """;
+
+    private static final String INSERT_MISSING_SQL = "INSERT INTO transaction_feed_entries (" + FEED_COLUMNS + ")"
+            + " SELECT " + FEED_COLUMNS + """
+            FROM user_transaction_feed v
+            WHERE v.user_id = :userId
+              AND NOT EXISTS (
+                    SELECT 1
+                    FROM transaction_feed_entries e
+                    WHERE e.entry_source = v.entry_source AND e.entry_id = v.entry_id
+                )
+            ON CONFLICT (entry_source, entry_id) DO NOTHING
+            """;
+
+    private static final String DELETE_ORPHANS_SQL = """
+            DELETE FROM transaction_feed_entries e
+            WHERE e.user_id = :userId
+              AND NOT EXISTS (
+                    SELECT 1
+                    FROM user_transaction_feed v
+                    WHERE v.entry_source = e.entry_source AND v.entry_id = e.entry_id
+                )
+            """;
+
+    private static final String COMPARE_SQL = """
+            SELECT v.entry_source,
+                   v.entry_id,
+                   (v.user_id, v.wallet_id, v.counterparty_wallet_id, v.category_id, v.category_transaction_type,
+                    v.debt_counterparty_id, v.debt_direction, v.currency_code, v.description, v.occurred_at)
+                       IS NOT DISTINCT FROM
+                   (e.user_id, e.wallet_id, e.counterparty_wallet_id, e.category_id, e.category_transaction_type,
+                    e.debt_counterparty_id, e.debt_direction, e.currency_code, e.description, e.occurred_at)
+                       AS columns_match,
+                   v.amount AS source_amount,
+                   e.amount AS entry_amount
+            FROM user_transaction_feed v
+            JOIN transaction_feed_entries e ON e.entry_source = v.entry_source AND e.entry_id = v.entry_id
+            WHERE v.user_id = :userId
+            """;
+
+    private static final String REPAIR_SQL = "INSERT INTO transaction_feed_entries (" + FEED_COLUMNS + ")"
+            + " SELECT " + FEED_COLUMNS + """
+            FROM user_transaction_feed
+            WHERE entry_source = :entrySource AND entry_id = :entryId
+            ON CONFLICT (entry_source, entry_id) DO UPDATE SET
+                user_id = EXCLUDED.user_id,
+                wallet_id = EXCLUDED.wallet_id,
+                counterparty_wallet_id = EXCLUDED.counterparty_wallet_id,
+                category_id = EXCLUDED.category_id,
+                category_transaction_type = EXCLUDED.category_transaction_type,
+                debt_counterparty_id = EXCLUDED.debt_counterparty_id,
+                debt_direction = EXCLUDED.debt_direction,
+                amount = EXCLUDED.amount,
+                currency_code = EXCLUDED.currency_code,
+                description = EXCLUDED.description,
+                occurred_at = EXCLUDED.occurred_at,
+                created_at = EXCLUDED.created_at
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TransactionFeedConsistencyChecker(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void reconcileAll() {
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id",
+                new MapSqlParameterSource(), Long.class);
+        int inserted = 0;
+        int deleted = 0;
+        int repaired = 0;
+        for (Long userId : userIds) {
+            try {
+                ReconcileResult result = reconcileUser(userId);
+                inserted += result.inserted();
+                deleted += result.deleted();
+                repaired += result.repaired();
+            } catch (RuntimeException ex) {
+                log.error("Transaction feed reconciliation failed for user={}", userId, ex);
+            }
+        }
+        if (inserted + deleted + repaired > 0) {
+            log.warn("Transaction feed drift repaired: inserted={} deleted={} repaired={}", inserted, deleted, repaired);
+        } else {
+            log.info("Transaction feed is consistent for {} users", userIds.size());
+        }
+    }
+
+    public ReconcileResult reconcileUser(Long userId) {
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("userId", userId, Types.BIGINT);
+        int inserted = jdbcTemplate.update(INSERT_MISSING_SQL, params);
+        int deleted = jdbcTemplate.update(DELETE_ORPHANS_SQL, params);
+
+        RowMapper<SqlParameterSource> staleRow = (rs, rowNum) -> {
+            boolean columnsMatch = rs.getBoolean("columns_match");
+            if (columnsMatch && sameAmount(rs.getString("source_amount"), rs.getString("entry_amount"))) {
+                return null;
+            }
+            return new MapSqlParameterSource()
+                    .addValue("entrySource", rs.getString("entry_source"), Types.VARCHAR)
+                    .addValue("entryId", rs.getLong("entry_id"), Types.BIGINT);
+        };
+        List<SqlParameterSource> stale = jdbcTemplate.query(COMPARE_SQL, params, staleRow).stream()
+                .filter(Objects::nonNull)
+                .toList();
+
+        if (!stale.isEmpty()) {
+            jdbcTemplate.batchUpdate(REPAIR_SQL, stale.toArray(SqlParameterSource[]::new));
+        }
+        return new ReconcileResult(inserted, deleted, stale.size());
+    }
+
+    private boolean sameAmount(String sourceAmount, String entryAmount) {
+        BigDecimal source = EncryptedBigDecimalConverter.decryptValue(sourceAmount);
+        BigDecimal entry = EncryptedBigDecimalConverter.decryptValue(entryAmount);
+        if (source == null || entry == null) {
+            return source == entry;
+        }
+        return source.compareTo(entry) == 0;
+    }
+
+    public record ReconcileResult(int inserted, int deleted, int repaired) {
+    }
+}
@@ -35,6 +35,8 @@ public class TransactionFeedController {
     @GetMapping
     public PageResponse<TransactionFeedItem> getFeed(@RequestParam(defaultValue = "0") int page,
                                                      @RequestParam(defaultValue = "50") int size,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "true") boolean withTotal,
                                                      @RequestParam(required = false) TransactionFeedType type,
                                                      @RequestParam(name = "walletId", required = false) List<Long> walletIds,
                                                      @RequestParam(name = "categoryId", required = false) List<Long> categoryIds,
@@ -51,6 +53,6 @@ public class TransactionFeedController {
         AuthenticatedUser current = currentUserProvider.requireCurrentUser();
         
         return feedService.getFeed(current.id(), type, walletIds, categoryIds, debtCounterpartyIds, debtDirection,
-                from, to, period, page, size);
+                from, to, period, page, size, cursor, withTotal);
     }
 }
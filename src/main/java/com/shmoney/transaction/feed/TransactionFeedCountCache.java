@@ -0,0 +1,51 @@
+package com.shmoney.transaction.feed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Component
+public class TransactionFeedCountCache {
+
+    private final Cache<Long, Map<String, Long>> totals = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .maximumSize(10_000)
+            .build();
+
+    // A count loaded while a write evicted the user may predate that write, so it is only kept when the
+    // user's totals are still the ones it was loaded for.
+    public long get(Long userId, String filterKey, Supplier<Long> loader) {
+        Map<String, Long> userTotals = totals.get(userId, id -> new ConcurrentHashMap<>());
+        Long cached = userTotals.get(filterKey);
+        if (cached != null) {
+            return cached;
+        }
+        long total = loader.get();
+        if (totals.getIfPresent(userId) == userTotals) {
+            userTotals.put(filterKey, total);
+        }
+        return total;
+    }
+
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        totals.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    totals.invalidate(userId);
+                }
+            });
+        }
+    }
+}
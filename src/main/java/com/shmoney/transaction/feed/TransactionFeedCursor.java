@@ -0,0 +1,38 @@
+package com.shmoney.transaction.feed;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+public record TransactionFeedCursor(OffsetDateTime occurredAt, String entrySource, long entryId) {
+
+    private static final String SEPARATOR = "|";
+
+    public static TransactionFeedCursor from(TransactionFeedItem item) {
+        return new TransactionFeedCursor(item.occurredAt(), item.entryType(), item.id());
+    }
+
+    public static TransactionFeedCursor decode(String value) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3 || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Unexpected cursor format");
+            }
+            OffsetDateTime occurredAt = Instant.parse(parts[0]).atOffset(ZoneOffset.UTC);
+            return new TransactionFeedCursor(occurredAt, parts[1], Long.parseLong(parts[2]));
+        } catch (RuntimeException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор ленты транзакций");
+        }
+    }
+
+    public String encode() {
+        String raw = occurredAt.toInstant() + SEPARATOR + entrySource + SEPARATOR + entryId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,17 @@
+package com.shmoney.transaction.feed;
+
+import com.shmoney.debt.entity.DebtTransactionDirection;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record TransactionFeedFilter(
+        TransactionFeedType type,
+        List<Long> walletIds,
+        List<Long> categoryIds,
+        List<Long> debtCounterpartyIds,
+        DebtTransactionDirection debtDirection,
+        OffsetDateTime from,
+        OffsetDateTime to
+) {
+}
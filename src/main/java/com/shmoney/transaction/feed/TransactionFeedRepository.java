@@ -20,7 +20,7 @@ import java.util.List;
 public class TransactionFeedRepository {
 
     private static final String BASE_FILTER = """
-            FROM user_transaction_feed
+            FROM transaction_feed_entries
             WHERE user_id = :userId
               AND (:type = 'ALL' OR (
                     :type = 'TRANSFER' AND entry_source = 'TRANSFER'
@@ -51,11 +51,24 @@ public class TransactionFeedRepository {
 
     private static final String COUNT_SQL_PREFIX = "SELECT COUNT(*) " + BASE_FILTER;
 
-    private static final String ORDER_LIMIT = """
-            ORDER BY occurred_at DESC, entry_id DESC
+    private static final String KEYSET_FILTER = """
+            AND occurred_at <= (:cursorOccurredAt)::TIMESTAMPTZ
+            AND (occurred_at < (:cursorOccurredAt)::TIMESTAMPTZ
+                OR (entry_source, entry_id) < (:cursorSource, :cursorId))
+            """;
+
+    private static final String ORDER_BY = """
+            ORDER BY occurred_at DESC, entry_source DESC, entry_id DESC
+            """;
+
+    private static final String OFFSET_LIMIT = """
             OFFSET :offset LIMIT :limit
             """;
 
+    private static final String KEYSET_LIMIT = """
+            LIMIT :limit
+            """;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
 
     public TransactionFeedRepository(NamedParameterJdbcTemplate jdbcTemplate) {
@@ -63,48 +76,55 @@ public class TransactionFeedRepository {
     }
 
     public PagedFeedResult fetch(Long userId,
-                                 TransactionFeedType type,
-                                 List<Long> walletIds,
-                                 List<Long> categoryIds,
-                                 List<Long> debtCounterpartyIds,
-                                 DebtTransactionDirection debtDirection,
-                                 OffsetDateTime from,
-                                 OffsetDateTime to,
+                                 TransactionFeedFilter filter,
                                  int page,
-                                 int size) {
+                                 int size,
+                                 TransactionFeedCursor cursor) {
         int limit = Math.min(size <= 0 ? 50 : size, 100);
-        int currentPage = Math.max(page, 0);
+        int currentPage = cursor == null ? Math.max(page, 0) : 0;
         int offset = currentPage * limit;
 
-        MapSqlParameterSource params = buildParams(userId, type, debtDirection, from, to)
+        MapSqlParameterSource params = buildParams(userId, filter)
                 .addValue("offset", offset)
-                .addValue("limit", limit);
-
-        addOptionalFilterValues(params, "walletIds", walletIds);
-        addOptionalFilterValues(params, "categoryIds", categoryIds);
-        addOptionalFilterValues(params, "debtCounterpartyIds", debtCounterpartyIds);
+                .addValue("limit", limit + 1);
+
+        String filters = buildAdditionalFilters(filter);
+        String rowSql;
+        if (cursor == null) {
+            rowSql = ROW_SQL_PREFIX + filters + ORDER_BY + OFFSET_LIMIT;
+        } else {
+            params.addValue("cursorOccurredAt", toTimestamp(cursor.occurredAt()), Types.TIMESTAMP)
+                    .addValue("cursorSource", cursor.entrySource(), Types.VARCHAR)
+                    .addValue("cursorId", cursor.entryId(), Types.BIGINT);
+            rowSql = ROW_SQL_PREFIX + filters + KEYSET_FILTER + ORDER_BY + KEYSET_LIMIT;
+        }
 
-        String filters = buildAdditionalFilters(walletIds, categoryIds, debtCounterpartyIds, debtDirection);
-        String rowSql = ROW_SQL_PREFIX + filters + ORDER_LIMIT;
-        String countSql = COUNT_SQL_PREFIX + filters;
+        List<TransactionFeedItem> rows = jdbcTemplate.query(rowSql, params, new TransactionFeedRowMapper());
+        boolean hasNext = rows.size() > limit;
+        List<TransactionFeedItem> items = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? TransactionFeedCursor.from(items.get(items.size() - 1)).encode() : null;
+        return new PagedFeedResult(currentPage, limit, items, hasNext, nextCursor);
+    }
 
-        Long total = jdbcTemplate.queryForObject(countSql, params, Long.class);
-        long totalCount = total == null ? 0 : total;
-        List<TransactionFeedItem> items = jdbcTemplate.query(rowSql, params, new TransactionFeedRowMapper());
-        return new PagedFeedResult(totalCount, currentPage, limit, items);
+    public long count(Long userId, TransactionFeedFilter filter) {
+        String countSql = COUNT_SQL_PREFIX + buildAdditionalFilters(filter);
+        Long total = jdbcTemplate.queryForObject(countSql, buildParams(userId, filter), Long.class);
+        return total == null ? 0 : total;
     }
 
-    private MapSqlParameterSource buildParams(Long userId,
-                                              TransactionFeedType type,
-                                              DebtTransactionDirection debtDirection,
-                                              OffsetDateTime from,
-                                              OffsetDateTime to) {
-        return new MapSqlParameterSource()
+    private MapSqlParameterSource buildParams(Long userId, TransactionFeedFilter filter) {
+        DebtTransactionDirection debtDirection = filter.debtDirection();
+        MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("userId", userId, Types.BIGINT)
-                .addValue("type", type == null ? "ALL" : type.name(), Types.VARCHAR)
+                .addValue("type", filter.type() == null ? "ALL" : filter.type().name(), Types.VARCHAR)
                 .addValue("debtDirection", debtDirection == null ? null : debtDirection.name(), Types.VARCHAR)
-                .addValue("fromDate", toTimestamp(from), Types.TIMESTAMP)
-                .addValue("toDate", toTimestamp(to), Types.TIMESTAMP);
+                .addValue("fromDate", toTimestamp(filter.from()), Types.TIMESTAMP)
+                .addValue("toDate", toTimestamp(filter.to()), Types.TIMESTAMP);
+
+        addOptionalFilterValues(params, "walletIds", filter.walletIds());
+        addOptionalFilterValues(params, "categoryIds", filter.categoryIds());
+        addOptionalFilterValues(params, "debtCounterpartyIds", filter.debtCounterpartyIds());
+        return params;
     }
 
     private void addOptionalFilterValues(MapSqlParameterSource params, String name, List<Long> values) {
@@ -113,18 +133,15 @@ public class TransactionFeedRepository {
         }
     }
 
-    private String buildAdditionalFilters(List<Long> walletIds,
-                                          List<Long> categoryIds,
-                                          List<Long> debtCounterpartyIds,
-                                          DebtTransactionDirection debtDirection) {
+    private String buildAdditionalFilters(TransactionFeedFilter filter) {
+        List<Long> walletIds = filter.walletIds();
+        List<Long> categoryIds = filter.categoryIds();
+        List<Long> debtCounterpartyIds = filter.debtCounterpartyIds();
+        DebtTransactionDirection debtDirection = filter.debtDirection();
         StringBuilder builder = new StringBuilder();
         if (walletIds != null && !walletIds.isEmpty()) {
             builder.append("""
-                    AND EXISTS (
-                        SELECT 1
-                        FROM unnest(wallet_ids) AS wallet_filter(wallet_id)
-                        WHERE wallet_id IN (:walletIds)
-                    )
+                    AND (wallet_id IN (:walletIds) OR counterparty_wallet_id IN (:walletIds))
                     """);
         }
         if (categoryIds != null && !categoryIds.isEmpty()) {
@@ -179,6 +196,10 @@ public class TransactionFeedRepository {
         }
     }
 
-    public record PagedFeedResult(long totalCount, int page, int size, List<TransactionFeedItem> items) {
+    public record PagedFeedResult(int page,
+                                  int size,
+                                  List<TransactionFeedItem> items,
+                                  boolean hasNext,
+                                  String nextCursor) {
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
@@ -13,9 +14,12 @@ import java.util.List;
 public class TransactionFeedService {
     
     private final TransactionFeedRepository repository;
+    private final TransactionFeedCountCache countCache;
     
-    public TransactionFeedService(TransactionFeedRepository repository) {
+    public TransactionFeedService(TransactionFeedRepository repository,
+                                  TransactionFeedCountCache countCache) {
         this.repository = repository;
+        this.countCache = countCache;
     }
     
     public PageResponse<TransactionFeedItem> getFeed(Long userId,
@@ -28,7 +32,9 @@ public class TransactionFeedService {
                                                      OffsetDateTime to,
                                                      TransactionFeedPeriod period,
                                                      int page,
-                                                     int size) {
+                                                     int size,
+                                                     String cursor,
+                                                     boolean withTotal) {
         OffsetDateTime fromDate = from;
         OffsetDateTime toDate = to;
         
@@ -38,8 +44,40 @@ public class TransactionFeedService {
             toDate = range.to();
         }
         
-        TransactionFeedRepository.PagedFeedResult result = repository.fetch(userId, type, walletIds, categoryIds,
-                debtCounterpartyIds, debtDirection, fromDate, toDate, page, size);
-        return PageResponse.of(result.totalCount(), result.page(), result.size(), result.items());
+        TransactionFeedFilter filter = new TransactionFeedFilter(type, walletIds, categoryIds, debtCounterpartyIds,
+                debtDirection, fromDate, toDate);
+        TransactionFeedCursor feedCursor = cursor == null || cursor.isBlank() ? null : TransactionFeedCursor.decode(cursor);
+        TransactionFeedRepository.PagedFeedResult result = repository.fetch(userId, filter, page, size, feedCursor);
+        Long total = withTotal
+                ? countCache.get(userId, cacheKey(filter, period), () -> repository.count(userId, filter))
+                : null;
+        
+        if (feedCursor != null) {
+            return PageResponse.ofCursor(total, result.hasNext(), result.nextCursor(), result.items());
+        }
+        return PageResponse.of(total, result.page(), result.hasNext(), result.nextCursor(), result.items());
+    }
+    
+    // Relative periods move with the clock, so they are keyed by their resolved bounds; to the minute, as a
+    // rolling window ends at the current instant.
+    private String cacheKey(TransactionFeedFilter filter, TransactionFeedPeriod period) {
+        String range = period != null
+                ? period.name() + "@" + filter.from().truncatedTo(ChronoUnit.MINUTES) + ".."
+                        + filter.to().truncatedTo(ChronoUnit.MINUTES)
+                : filter.from() + ".." + filter.to();
+        return String.join("|",
+                String.valueOf(filter.type()),
+                sortedIds(filter.walletIds()),
+                sortedIds(filter.categoryIds()),
+                sortedIds(filter.debtCounterpartyIds()),
+                String.valueOf(filter.debtDirection()),
+                range);
+    }
+    
+    private String sortedIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return "";
+        }
+        return ids.stream().distinct().sorted().toList().toString();
     }
 }
@@ -0,0 +1,162 @@
+package com.shmoney.transaction.feed;
+
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.debt.entity.DebtTransaction;
+import com.shmoney.debt.entity.DebtTransactionKind;
+import com.shmoney.transaction.category.entity.CategoryTransaction;
+import com.shmoney.wallet.transaction.entity.WalletTransaction;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Component
+public class TransactionFeedWriter {
+
+    static final String SOURCE_CATEGORY = "CATEGORY";
+    static final String SOURCE_TRANSFER = "TRANSFER";
+    static final String SOURCE_DEBT = "DEBT";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO transaction_feed_entries (
+                entry_source, entry_id, user_id, wallet_id, counterparty_wallet_id, category_id,
+                category_transaction_type, debt_counterparty_id, debt_direction, amount, currency_code,
+                description, occurred_at, created_at
+            ) VALUES (
+                :entrySource, :entryId, :userId, :walletId, :counterpartyWalletId, :categoryId,
+                :categoryType, :debtCounterpartyId, :debtDirection, :amount, :currencyCode,
+                :description, :occurredAt, :createdAt
+            )
+            ON CONFLICT (entry_source, entry_id) DO UPDATE SET
+                user_id = EXCLUDED.user_id,
+                wallet_id = EXCLUDED.wallet_id,
+                counterparty_wallet_id = EXCLUDED.counterparty_wallet_id,
+                category_id = EXCLUDED.category_id,
+                category_transaction_type = EXCLUDED.category_transaction_type,
+                debt_counterparty_id = EXCLUDED.debt_counterparty_id,
+                debt_direction = EXCLUDED.debt_direction,
+                amount = EXCLUDED.amount,
+                currency_code = EXCLUDED.currency_code,
+                description = EXCLUDED.description,
+                occurred_at = EXCLUDED.occurred_at,
+                created_at = EXCLUDED.created_at
+            """;
+
+    private static final String DELETE_SQL = """
+            DELETE FROM transaction_feed_entries
+            WHERE entry_source = :entrySource AND entry_id = :entryId
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TransactionFeedWriter(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void upsert(CategoryTransaction transaction) {
+        jdbcTemplate.update(UPSERT_SQL, categoryParams(transaction,
+                EncryptedBigDecimalConverter.encryptValue(transaction.getAmount())));
+    }
+
+    /**
+     * Writes feed entries for many category transactions in one batch.
+     *
+     * @param encryptedAmounts amounts of the transactions in the same order, already encrypted
+     */
+    public void upsertAll(List<CategoryTransaction> transactions, String[] encryptedAmounts) {
+        SqlParameterSource[] rows = new SqlParameterSource[transactions.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = categoryParams(transactions.get(i), encryptedAmounts[i]);
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    public void upsert(WalletTransaction transaction) {
+        MapSqlParameterSource params = baseParams(SOURCE_TRANSFER, transaction.getId())
+                .addValue("userId", transaction.getFromWallet().getOwner().getId(), Types.BIGINT)
+                .addValue("walletId", transaction.getFromWallet().getId(), Types.BIGINT)
+                .addValue("counterpartyWalletId", transaction.getToWallet().getId(), Types.BIGINT)
+                .addValue("categoryId", null, Types.BIGINT)
+                .addValue("categoryType", SOURCE_TRANSFER, Types.VARCHAR)
+                .addValue("debtCounterpartyId", null, Types.BIGINT)
+                .addValue("debtDirection", null, Types.VARCHAR)
+                .addValue("amount", EncryptedBigDecimalConverter.encryptValue(transaction.getSourceAmount()),
+                        Types.VARCHAR)
+                .addValue("currencyCode", transaction.getSourceCurrency().getCode(), Types.VARCHAR)
+                .addValue("description", transaction.getDescription(), Types.VARCHAR)
+                .addValue("occurredAt", toTimestamp(transaction.getExecutedAt()), Types.TIMESTAMP)
+                .addValue("createdAt", toTimestamp(transaction.getCreatedAt()), Types.TIMESTAMP);
+        jdbcTemplate.update(UPSERT_SQL, params);
+    }
+
+    public void upsert(DebtTransaction transaction) {
+        if (transaction.getKind() != DebtTransactionKind.CASH_FLOW) {
+            delete(SOURCE_DEBT, transaction.getId());
+            return;
+        }
+        MapSqlParameterSource params = baseParams(SOURCE_DEBT, transaction.getId())
+                .addValue("userId", transaction.getUser().getId(), Types.BIGINT)
+                .addValue("walletId", transaction.getWallet() == null ? null : transaction.getWallet().getId(),
+                        Types.BIGINT)
+                .addValue("counterpartyWalletId", null, Types.BIGINT)
+                .addValue("categoryId", null, Types.BIGINT)
+                .addValue("categoryType", null, Types.VARCHAR)
+                .addValue("debtCounterpartyId", transaction.getCounterparty().getId(), Types.BIGINT)
+                .addValue("debtDirection", transaction.getDirection().name(), Types.VARCHAR)
+                .addValue("amount", EncryptedBigDecimalConverter.encryptValue(transaction.getAmount()), Types.VARCHAR)
+                .addValue("currencyCode", transaction.getCurrency().getCode(), Types.VARCHAR)
+                .addValue("description", transaction.getDescription(), Types.VARCHAR)
+                .addValue("occurredAt", toTimestamp(transaction.getOccurredAt()), Types.TIMESTAMP)
+                .addValue("createdAt", toTimestamp(transaction.getCreatedAt()), Types.TIMESTAMP);
+        jdbcTemplate.update(UPSERT_SQL, params);
+    }
+
+    public void delete(CategoryTransaction transaction) {
+        delete(SOURCE_CATEGORY, transaction.getId());
+    }
+
+    public void delete(WalletTransaction transaction) {
+        delete(SOURCE_TRANSFER, transaction.getId());
+    }
+
+    public void delete(DebtTransaction transaction) {
+        delete(SOURCE_DEBT, transaction.getId());
+    }
+
+    private void delete(String entrySource, Long entryId) {
+        jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource()
+                .addValue("entrySource", entrySource, Types.VARCHAR)
+                .addValue("entryId", entryId, Types.BIGINT));
+    }
+
+    private MapSqlParameterSource categoryParams(CategoryTransaction transaction, String encryptedAmount) {
+        return baseParams(SOURCE_CATEGORY, transaction.getId())
+                .addValue("userId", transaction.getUser().getId(), Types.BIGINT)
+                .addValue("walletId", transaction.getWallet().getId(), Types.BIGINT)
+                .addValue("counterpartyWalletId", null, Types.BIGINT)
+                .addValue("categoryId", transaction.getCategory().getId(), Types.BIGINT)
+                .addValue("categoryType", transaction.getType().name(), Types.VARCHAR)
+                .addValue("debtCounterpartyId", null, Types.BIGINT)
+                .addValue("debtDirection", null, Types.VARCHAR)
+                .addValue("amount", encryptedAmount, Types.VARCHAR)
+                .addValue("currencyCode", transaction.getCurrency().getCode(), Types.VARCHAR)
+                .addValue("description", transaction.getDescription(), Types.VARCHAR)
+                .addValue("occurredAt", toTimestamp(transaction.getOccurredAt()), Types.TIMESTAMP)
+                .addValue("createdAt", toTimestamp(transaction.getCreatedAt()), Types.TIMESTAMP);
+    }
+
+    private MapSqlParameterSource baseParams(String entrySource, Long entryId) {
+        return new MapSqlParameterSource()
+                .addValue("entrySource", entrySource, Types.VARCHAR)
+                .addValue("entryId", entryId, Types.BIGINT);
+    }
+
+    private Timestamp toTimestamp(OffsetDateTime dateTime) {
+        return Timestamp.from((dateTime == null ? OffsetDateTime.now() : dateTime).toInstant());
+    }
+}
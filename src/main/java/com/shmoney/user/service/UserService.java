@@ -1,5 +1,6 @@
 package com.shmoney.user.service;
 
+import com.shmoney.auth.security.AuthenticatedUserCache;
 import com.shmoney.user.dto.TelegramUserData;
 import com.shmoney.user.entity.User;
 import com.shmoney.user.exception.UserNotFoundException;
@@ -13,9 +14,11 @@ import org.springframework.util.StringUtils;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final AuthenticatedUserCache authenticatedUserCache;
     
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, AuthenticatedUserCache authenticatedUserCache) {
         this.userRepository = userRepository;
+        this.authenticatedUserCache = authenticatedUserCache;
     }
     
     @Transactional(readOnly = true)
@@ -30,13 +33,17 @@ public class UserService {
             throw new IllegalArgumentException("Telegram user data is incomplete");
         }
         
-        return userRepository.findByTelegramUserId(data.id())
+        User user = userRepository.findByTelegramUserId(data.id())
                 .map(existing -> updateTelegramUser(existing, data))
                 .orElseGet(() -> createTelegramUser(data));
+        authenticatedUserCache.evict(user.getId());
+        return user;
     }
     
     public User update(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        authenticatedUserCache.evict(saved.getId());
+        return saved;
     }
     
     public void delete(Long id) {
@@ -45,6 +52,7 @@ public class UserService {
         }
         
         userRepository.deleteById(id);
+        authenticatedUserCache.evict(id);
     }
     
     private User createTelegramUser(TelegramUserData data) {
@@ -10,11 +10,13 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Tag(name = "Wallets")
@@ -58,6 +60,23 @@ public class WalletController {
         return walletMapper.toResponse(wallet);
     }
     
+    @Operation(summary = "Баланс кошелька на момент времени",
+            description = "Баланс по времени записи операций, а не по их дате: задним числом внесенная операция "
+                    + "учитывается с момента записи. История начинается с первой контрольной точки кошелька, "
+                    + "для более раннего момента возвращается 400")
+    @GetMapping("/{id}/balance")
+    public WalletBalanceAtResponse getBalanceAt(@PathVariable Long id,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                OffsetDateTime at) {
+        Wallet wallet = walletService.getById(id);
+        ensureCanAccess(wallet);
+        OffsetDateTime resolvedAt = at == null ? OffsetDateTime.now() : at;
+        
+        return new WalletBalanceAtResponse(wallet.getId(), wallet.getCurrency().getCode(),
+                walletService.getBalanceAt(id, resolvedAt), resolvedAt);
+    }
+    
     @Operation(summary = "Список кошельков (только свои)")
     @GetMapping
     public List<WalletResponse> getAll() {
@@ -0,0 +1,12 @@
+package com.shmoney.wallet.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+public record WalletBalanceAtResponse(
+        Long walletId,
+        String currencyCode,
+        BigDecimal balance,
+        OffsetDateTime at
+) {
+}
@@ -4,12 +4,14 @@ import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
 import com.shmoney.currency.entity.Currency;
 import com.shmoney.user.entity.User;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.OffsetDateTime;
 
 @Entity
+@DynamicUpdate
 @Table(name = "wallets")
 public class Wallet {
 
@@ -33,7 +35,7 @@ public class Wallet {
     private Currency currency;
 
     @Convert(converter = EncryptedBigDecimalConverter.class)
-    @Column(name = "balance", nullable = false)
+    @Column(name = "balance", nullable = false, updatable = false)
     private BigDecimal balance;
 
     @Column(name = "color", nullable = false, length = 16)
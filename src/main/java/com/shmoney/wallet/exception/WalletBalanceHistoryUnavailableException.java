@@ -0,0 +1,12 @@
+package com.shmoney.wallet.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class WalletBalanceHistoryUnavailableException extends RuntimeException {
+
+    public WalletBalanceHistoryUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,244 @@
+package com.shmoney.wallet.ledger;
+
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.wallet.exception.WalletBalanceHistoryUnavailableException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wallet balances are the latest checkpoint plus the ledger entries not yet folded into a checkpoint.
+ * Writers only insert entries. Compaction marks the entries it folds with the new checkpoint id, so
+ * entries committed late are never skipped.
+ */
+@Component
+public class WalletLedger {
+
+    private static final int FOLD_CHUNK_SIZE = 1_000;
+
+    private static final String APPEND_SQL = """
+            INSERT INTO wallet_ledger_entries (wallet_id, delta, source, source_id)
+            VALUES (:walletId, :delta, :source, :sourceId)
+            """;
+
+    private static final String CHECKPOINT_SQL = """
+            INSERT INTO wallet_balance_checkpoints (wallet_id, balance, entry_count, created_at)
+            VALUES (:walletId, :balance, :entryCount, clock_timestamp())
+            RETURNING id
+            """;
+
+    private static final String CURRENT_BALANCES_SQL = """
+            SELECT w.id AS wallet_id, cp.balance AS base, e.delta
+            FROM wallets w
+            LEFT JOIN LATERAL (
+                SELECT c.balance
+                FROM wallet_balance_checkpoints c
+                WHERE c.wallet_id = w.id
+                ORDER BY c.id DESC
+                LIMIT 1
+            ) cp ON TRUE
+            LEFT JOIN wallet_ledger_entries e ON e.wallet_id = w.id AND e.checkpoint_id IS NULL
+            WHERE w.id IN (:walletIds)
+            """;
+
+    private static final String CHECKPOINT_AT_SQL = """
+            SELECT id, balance
+            FROM wallet_balance_checkpoints
+            WHERE wallet_id = :walletId AND created_at <= :at
+            ORDER BY id DESC
+            LIMIT 1
+            """;
+
+    private static final String HISTORY_START_SQL = """
+            SELECT MIN(created_at)
+            FROM wallet_balance_checkpoints
+            WHERE wallet_id = :walletId
+            """;
+
+    private static final String ENTRIES_AT_SQL = """
+            SELECT delta
+            FROM wallet_ledger_entries
+            WHERE wallet_id = :walletId
+              AND created_at <= :at
+              AND (checkpoint_id IS NULL OR checkpoint_id > :checkpointId)
+            """;
+
+    private static final String LOCK_WALLET_SQL = "SELECT id FROM wallets WHERE id = :walletId FOR NO KEY UPDATE";
+
+    private static final String LOCK_WALLET_FOR_ADJUSTMENT_SQL =
+            "SELECT id FROM wallets WHERE id = :walletId FOR UPDATE";
+
+    private static final String LATEST_CHECKPOINT_SQL = """
+            SELECT balance
+            FROM wallet_balance_checkpoints
+            WHERE wallet_id = :walletId
+            ORDER BY id DESC
+            LIMIT 1
+            """;
+
+    private static final String PENDING_ENTRIES_SQL = """
+            SELECT id, delta
+            FROM wallet_ledger_entries
+            WHERE wallet_id = :walletId AND checkpoint_id IS NULL
+            """;
+
+    private static final String FOLD_SQL = """
+            UPDATE wallet_ledger_entries
+            SET checkpoint_id = :checkpointId
+            WHERE id IN (:entryIds)
+            """;
+
+    private static final String SYNC_WALLET_SQL = "UPDATE wallets SET balance = :balance WHERE id = :walletId";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public WalletLedger(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(Long walletId, BigDecimal delta, WalletLedgerEntrySource source, Long sourceId) {
+        if (delta == null || delta.signum() == 0) {
+            return;
+        }
+        jdbcTemplate.update(APPEND_SQL, new MapSqlParameterSource()
+                .addValue("walletId", walletId, Types.BIGINT)
+                .addValue("delta", EncryptedBigDecimalConverter.encryptValue(delta), Types.VARCHAR)
+                .addValue("source", source.name(), Types.VARCHAR)
+                .addValue("sourceId", sourceId, Types.BIGINT));
+    }
+
+    public void openCheckpoint(Long walletId, BigDecimal balance) {
+        insertCheckpoint(walletId, balance, 0);
+    }
+
+    public BigDecimal currentBalance(Long walletId) {
+        return currentBalances(List.of(walletId)).getOrDefault(walletId, BigDecimal.ZERO);
+    }
+
+    /**
+     * Current balance with the wallet row locked until the caller's transaction ends. The lock conflicts with
+     * the key-share lock every append takes through its foreign key, so appends still open commit before the
+     * read and new ones wait, and an adjustment computed from this balance is exact.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public BigDecimal lockedBalance(Long walletId) {
+        jdbcTemplate.queryForList(LOCK_WALLET_FOR_ADJUSTMENT_SQL, new MapSqlParameterSource("walletId", walletId),
+                Long.class);
+        return currentBalance(walletId);
+    }
+
+    public Map<Long, BigDecimal> currentBalances(Collection<Long> walletIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        if (walletIds.isEmpty()) {
+            return balances;
+        }
+        jdbcTemplate.query(CURRENT_BALANCES_SQL, new MapSqlParameterSource("walletIds", walletIds),
+                (RowCallbackHandler) rs -> {
+                    Long walletId = rs.getLong("wallet_id");
+                    // The checkpoint is repeated on every entry row, so it only seeds the first one.
+                    BigDecimal base = balances.containsKey(walletId)
+                            ? balances.get(walletId)
+                            : valueOrZero(EncryptedBigDecimalConverter.decryptValue(rs.getString("base")));
+                    balances.put(walletId, base.add(valueOrZero(
+                            EncryptedBigDecimalConverter.decryptValue(rs.getString("delta")))));
+                });
+        return balances;
+    }
+
+    /**
+     * Balance as recorded at the given moment: entries count from the time they were written to the ledger, not
+     * from the date of the operation that produced them. History starts at the wallet's first checkpoint, which
+     * is the wallet creation or the ledger migration, and earlier moments are rejected.
+     */
+    public BigDecimal balanceAt(Long walletId, OffsetDateTime at) {
+        Timestamp timestamp = Timestamp.from(at.toInstant());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("walletId", walletId, Types.BIGINT)
+                .addValue("at", timestamp, Types.TIMESTAMP);
+        List<Checkpoint> checkpoints = jdbcTemplate.query(CHECKPOINT_AT_SQL, params, (rs, rowNum) -> new Checkpoint(
+                rs.getLong("id"),
+                valueOrZero(EncryptedBigDecimalConverter.decryptValue(rs.getString("balance")))));
+        if (checkpoints.isEmpty()) {
+            throw historyUnavailable(walletId);
+        }
+        Checkpoint checkpoint = checkpoints.get(0);
+
+        params.addValue("checkpointId", checkpoint.id(), Types.BIGINT);
+        BigDecimal[] balance = {checkpoint.balance()};
+        jdbcTemplate.query(ENTRIES_AT_SQL, params, (RowCallbackHandler) rs -> balance[0] = balance[0].add(
+                valueOrZero(EncryptedBigDecimalConverter.decryptValue(rs.getString("delta")))));
+        return balance[0];
+    }
+
+    private WalletBalanceHistoryUnavailableException historyUnavailable(Long walletId) {
+        Timestamp start = jdbcTemplate.queryForObject(HISTORY_START_SQL,
+                new MapSqlParameterSource("walletId", walletId), Timestamp.class);
+        return new WalletBalanceHistoryUnavailableException(start == null
+                ? "История баланса кошелька недоступна"
+                : "История баланса кошелька доступна начиная с " + start.toInstant());
+    }
+
+    @Transactional
+    public int compact(Long walletId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("walletId", walletId);
+        if (jdbcTemplate.queryForList(LOCK_WALLET_SQL, params, Long.class).isEmpty()) {
+            return 0;
+        }
+
+        List<String> latest = jdbcTemplate.queryForList(LATEST_CHECKPOINT_SQL, params, String.class);
+        BigDecimal balance = latest.isEmpty()
+                ? BigDecimal.ZERO
+                : valueOrZero(EncryptedBigDecimalConverter.decryptValue(latest.get(0)));
+        List<Long> entryIds = new ArrayList<>();
+        for (PendingEntry entry : jdbcTemplate.query(PENDING_ENTRIES_SQL, params, (rs, rowNum) -> new PendingEntry(
+                rs.getLong("id"),
+                valueOrZero(EncryptedBigDecimalConverter.decryptValue(rs.getString("delta")))))) {
+            entryIds.add(entry.id());
+            balance = balance.add(entry.delta());
+        }
+        if (entryIds.isEmpty()) {
+            return 0;
+        }
+
+        Long checkpointId = insertCheckpoint(walletId, balance, entryIds.size());
+        for (int from = 0; from < entryIds.size(); from += FOLD_CHUNK_SIZE) {
+            jdbcTemplate.update(FOLD_SQL, new MapSqlParameterSource()
+                    .addValue("checkpointId", checkpointId, Types.BIGINT)
+                    .addValue("entryIds", entryIds.subList(from, Math.min(from + FOLD_CHUNK_SIZE, entryIds.size()))));
+        }
+        jdbcTemplate.update(SYNC_WALLET_SQL, new MapSqlParameterSource()
+                .addValue("walletId", walletId, Types.BIGINT)
+                .addValue("balance", EncryptedBigDecimalConverter.encryptValue(balance), Types.VARCHAR));
+        return entryIds.size();
+    }
+
+    private Long insertCheckpoint(Long walletId, BigDecimal balance, int entryCount) {
+        return jdbcTemplate.queryForObject(CHECKPOINT_SQL, new MapSqlParameterSource()
+                .addValue("walletId", walletId, Types.BIGINT)
+                .addValue("balance", EncryptedBigDecimalConverter.encryptValue(valueOrZero(balance)), Types.VARCHAR)
+                .addValue("entryCount", entryCount, Types.INTEGER), Long.class);
+    }
+
+    private BigDecimal valueOrZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    private record Checkpoint(Long id, BigDecimal balance) {
+    }
+
+    private record PendingEntry(Long id, BigDecimal delta) {
+    }
+}
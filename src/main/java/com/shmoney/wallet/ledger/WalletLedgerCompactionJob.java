@@ -0,0 +1,68 @@
+package com.shmoney.wallet.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class WalletLedgerCompactionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletLedgerCompactionJob.class);
+
+    private static final int PENDING_ENTRIES_THRESHOLD = 50;
+    private static final Duration MAX_PENDING_AGE = Duration.ofDays(1);
+
+    private static final String WALLETS_TO_COMPACT_SQL = """
+            SELECT wallet_id
+            FROM wallet_ledger_entries
+            WHERE checkpoint_id IS NULL
+            GROUP BY wallet_id
+            HAVING COUNT(*) >= :threshold OR MIN(created_at) < :staleBefore
+            ORDER BY wallet_id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final WalletLedger walletLedger;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public WalletLedgerCompactionJob(NamedParameterJdbcTemplate jdbcTemplate, WalletLedger walletLedger) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletLedger = walletLedger;
+    }
+
+    @Scheduled(cron = "0 */15 * * * *")
+    public void compactLedgers() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Long> walletIds = jdbcTemplate.queryForList(WALLETS_TO_COMPACT_SQL, new MapSqlParameterSource()
+                    .addValue("threshold", PENDING_ENTRIES_THRESHOLD, Types.INTEGER)
+                    .addValue("staleBefore", Timestamp.from(Instant.now().minus(MAX_PENDING_AGE)), Types.TIMESTAMP),
+                    Long.class);
+            int folded = 0;
+            for (Long walletId : walletIds) {
+                try {
+                    folded += walletLedger.compact(walletId);
+                } catch (RuntimeException ex) {
+                    log.error("Wallet ledger compaction failed for wallet={}", walletId, ex);
+                }
+            }
+            if (folded > 0) {
+                log.info("Folded {} ledger entries into checkpoints for {} wallets", folded, walletIds.size());
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.shmoney.wallet.ledger;
+
+public enum WalletLedgerEntrySource {
+    CATEGORY_TRANSACTION,
+    WALLET_TRANSFER,
+    DEBT_TRANSACTION,
+    ADJUSTMENT
+}
@@ -0,0 +1,35 @@
+package com.shmoney.wallet.service;
+
+import com.shmoney.wallet.entity.Wallet;
+import com.shmoney.wallet.ledger.WalletLedger;
+import com.shmoney.wallet.ledger.WalletLedgerEntrySource;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Records balance changes as wallet ledger entries, so concurrent writers only insert rows and never
+ * contend on the wallet row. Read balances through {@link WalletService}, which resolves them from the ledger.
+ */
+@Component
+public class WalletBalanceUpdater {
+
+    private final WalletLedger walletLedger;
+
+    public WalletBalanceUpdater(WalletLedger walletLedger) {
+        this.walletLedger = walletLedger;
+    }
+
+    public void applyDelta(Wallet wallet, BigDecimal delta, WalletLedgerEntrySource source, Long sourceId) {
+        if (wallet == null || delta == null) {
+            return;
+        }
+        walletLedger.append(wallet.getId(), delta, source, sourceId);
+    }
+
+    public void setBalance(Wallet wallet, BigDecimal balance) {
+        BigDecimal current = walletLedger.lockedBalance(wallet.getId());
+        walletLedger.append(wallet.getId(), balance.subtract(current), WalletLedgerEntrySource.ADJUSTMENT, null);
+        wallet.setBalance(balance);
+    }
+}
@@ -8,12 +8,14 @@ import com.shmoney.wallet.entity.Wallet;
 import com.shmoney.wallet.entity.WalletStatus;
 import com.shmoney.wallet.entity.WalletType;
 import com.shmoney.wallet.exception.WalletNotFoundException;
+import com.shmoney.wallet.ledger.WalletLedger;
 import com.shmoney.wallet.repository.WalletRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.OffsetDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,13 +27,19 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final UserService userService;
     private final CurrencyService currencyService;
+    private final WalletBalanceUpdater balanceUpdater;
+    private final WalletLedger walletLedger;
     
     public WalletService(WalletRepository walletRepository,
                          UserService userService,
-                         CurrencyService currencyService) {
+                         CurrencyService currencyService,
+                         WalletBalanceUpdater balanceUpdater,
+                         WalletLedger walletLedger) {
         this.walletRepository = walletRepository;
         this.userService = userService;
         this.currencyService = currencyService;
+        this.balanceUpdater = balanceUpdater;
+        this.walletLedger = walletLedger;
     }
     
     public Wallet create(Long ownerId, Wallet wallet, String currencyCode, BigDecimal initialBalance) {
@@ -43,24 +51,33 @@ public class WalletService {
         
         if (wallet.getType() == null) wallet.setType(WalletType.CASH);
         
-        return walletRepository.save(wallet);
+        Wallet saved = walletRepository.save(wallet);
+        walletLedger.openCheckpoint(saved.getId(), saved.getBalance());
+        return saved;
     }
     
     @Transactional(readOnly = true)
     public Wallet getById(Long id) {
-        return walletRepository
+        Wallet wallet = walletRepository
                 .findById(id)
                 .orElseThrow(() -> new WalletNotFoundException(id));
+        return withLedgerBalances(List.of(wallet)).get(0);
     }
     
     @Transactional(readOnly = true)
     public List<Wallet> getByOwner(Long ownerId) {
-        return walletRepository.findAllByOwnerIdOrderByIdAsc(ownerId);
+        return withLedgerBalances(walletRepository.findAllByOwnerIdOrderByIdAsc(ownerId));
     }
     
     @Transactional(readOnly = true)
     public List<CurrencyBalance> getCurrencyBalancesForOwner(Long ownerId) {
-        return aggregateBalances(walletRepository.findAllByOwnerIdAndStatusOrderByIdAsc(ownerId, WalletStatus.ACTIVE));
+        return aggregateBalances(withLedgerBalances(
+                walletRepository.findAllByOwnerIdAndStatusOrderByIdAsc(ownerId, WalletStatus.ACTIVE)));
+    }
+    
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAt(Long walletId, OffsetDateTime at) {
+        return walletLedger.balanceAt(walletId, at).setScale(2, RoundingMode.HALF_UP);
     }
     
     public Wallet update(Wallet wallet,
@@ -77,20 +94,20 @@ public class WalletService {
         
         if (type != null) wallet.setType(type);
         
+        if (color != null) wallet.setColor(color);
+        
         if (balance != null) {
-            wallet.setBalance(normalizeBalance(balance));
+            balanceUpdater.setBalance(wallet, normalizeBalance(balance));
         }
         
-        if (color != null) wallet.setColor(color);
-        
-        return walletRepository.save(wallet);
+        return withLedgerBalances(List.of(walletRepository.save(wallet))).get(0);
     }
     
     public Wallet updateStatus(Long walletId, WalletStatus status) {
         Wallet wallet = getById(walletId);
         if (status == null) return wallet;
         wallet.setStatus(status);
-        return walletRepository.save(wallet);
+        return withLedgerBalances(List.of(walletRepository.save(wallet))).get(0);
     }
     
     private User resolveOwner(Long ownerId) {
@@ -106,6 +123,14 @@ public class WalletService {
         return value.setScale(2, RoundingMode.HALF_UP);
     }
     
+    private List<Wallet> withLedgerBalances(List<Wallet> wallets) {
+        Map<Long, BigDecimal> balances = walletLedger.currentBalances(wallets.stream().map(Wallet::getId).toList());
+        for (Wallet wallet : wallets) {
+            wallet.setBalance(normalizeBalance(balances.get(wallet.getId())));
+        }
+        return wallets;
+    }
+    
     private List<CurrencyBalance> aggregateBalances(List<Wallet> wallets) {
         Map<String, BigDecimal> totals = new HashMap<>();
         for (Wallet wallet : wallets) {
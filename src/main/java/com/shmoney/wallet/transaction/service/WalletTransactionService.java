@@ -2,8 +2,11 @@ package com.shmoney.wallet.transaction.service;
 
 import com.shmoney.currency.entity.Currency;
 import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.transaction.feed.TransactionFeedCountCache;
+import com.shmoney.transaction.feed.TransactionFeedWriter;
 import com.shmoney.wallet.entity.Wallet;
-import com.shmoney.wallet.repository.WalletRepository;
+import com.shmoney.wallet.ledger.WalletLedgerEntrySource;
+import com.shmoney.wallet.service.WalletBalanceUpdater;
 import com.shmoney.wallet.transaction.dto.WalletTransactionUpdateRequest;
 import com.shmoney.wallet.transaction.entity.WalletTransaction;
 import com.shmoney.wallet.transaction.exception.WalletTransactionNotFoundException;
@@ -24,15 +27,21 @@ public class WalletTransactionService {
     private static final int RATE_SCALE = 6;
     
     private final WalletTransactionRepository walletTransactionRepository;
-    private final WalletRepository walletRepository;
+    private final WalletBalanceUpdater balanceUpdater;
     private final ExchangeRateService exchangeRateService;
+    private final TransactionFeedCountCache feedCountCache;
+    private final TransactionFeedWriter feedWriter;
     
     public WalletTransactionService(WalletTransactionRepository walletTransactionRepository,
-                                    WalletRepository walletRepository,
-                                    ExchangeRateService exchangeRateService) {
+                                    WalletBalanceUpdater balanceUpdater,
+                                    ExchangeRateService exchangeRateService,
+                                    TransactionFeedCountCache feedCountCache,
+                                    TransactionFeedWriter feedWriter) {
         this.walletTransactionRepository = walletTransactionRepository;
-        this.walletRepository = walletRepository;
+        this.balanceUpdater = balanceUpdater;
         this.exchangeRateService = exchangeRateService;
+        this.feedCountCache = feedCountCache;
+        this.feedWriter = feedWriter;
     }
     
     public WalletTransaction create(Wallet fromWallet,
@@ -61,23 +70,20 @@ public class WalletTransactionService {
         transaction.setDescription(description);
         transaction.setExecutedAt(enrichExecutedAt(executedAt));
 
-        updateBalances(fromWallet, toWallet, computation.sourceAmount(), computation.targetAmount());
-
-        return walletTransactionRepository.save(transaction);
+        WalletTransaction saved = walletTransactionRepository.save(transaction);
+        updateBalances(fromWallet, toWallet, computation.sourceAmount(), computation.targetAmount(), saved.getId());
+        feedCountCache.evict(fromWallet.getOwner().getId());
+        feedWriter.upsert(saved);
+        return saved;
     }
 
     private void updateBalances(Wallet fromWallet,
                                 Wallet toWallet,
                                 BigDecimal sourceAmount,
-                                BigDecimal targetAmount) {
-        BigDecimal sourceBalance = fromWallet.getBalance() == null ? BigDecimal.ZERO : fromWallet.getBalance();
-        BigDecimal targetBalance = toWallet.getBalance() == null ? BigDecimal.ZERO : toWallet.getBalance();
-
-        fromWallet.setBalance(sourceBalance.subtract(sourceAmount));
-        toWallet.setBalance(targetBalance.add(targetAmount));
-
-        walletRepository.save(fromWallet);
-        walletRepository.save(toWallet);
+                                BigDecimal targetAmount,
+                                Long transactionId) {
+        balanceUpdater.applyDelta(fromWallet, sourceAmount.negate(), WalletLedgerEntrySource.WALLET_TRANSFER, transactionId);
+        balanceUpdater.applyDelta(toWallet, targetAmount, WalletLedgerEntrySource.WALLET_TRANSFER, transactionId);
     }
     
     @Transactional(readOnly = true)
@@ -104,8 +110,10 @@ public class WalletTransactionService {
 
     public void delete(WalletTransaction transaction) {
         revertBalances(transaction.getFromWallet(), transaction.getToWallet(),
-                transaction.getSourceAmount(), transaction.getTargetAmount());
+                transaction.getSourceAmount(), transaction.getTargetAmount(), transaction.getId());
+        feedCountCache.evict(transaction.getFromWallet().getOwner().getId());
         walletTransactionRepository.delete(transaction);
+        feedWriter.delete(transaction);
     }
 
     public WalletTransaction update(WalletTransaction transaction,
@@ -130,7 +138,8 @@ public class WalletTransactionService {
         String description = request.description() == null ? transaction.getDescription() : request.description();
 
         revertBalances(transaction.getFromWallet(), transaction.getToWallet(),
-                transaction.getSourceAmount(), transaction.getTargetAmount());
+                transaction.getSourceAmount(), transaction.getTargetAmount(), transaction.getId());
+        feedCountCache.evict(transaction.getFromWallet().getOwner().getId());
 
         AmountComputation computation = computeAmounts(resolvedFrom.getCurrency(), resolvedTo.getCurrency(), sourceAmount);
 
@@ -144,22 +153,21 @@ public class WalletTransactionService {
         transaction.setDescription(description);
         transaction.setExecutedAt(executedAt);
 
-        updateBalances(resolvedFrom, resolvedTo, computation.sourceAmount(), computation.targetAmount());
-        return walletTransactionRepository.save(transaction);
+        updateBalances(resolvedFrom, resolvedTo, computation.sourceAmount(), computation.targetAmount(),
+                transaction.getId());
+        feedCountCache.evict(resolvedFrom.getOwner().getId());
+        WalletTransaction saved = walletTransactionRepository.save(transaction);
+        feedWriter.upsert(saved);
+        return saved;
     }
 
     private void revertBalances(Wallet fromWallet,
                                 Wallet toWallet,
                                 BigDecimal sourceAmount,
-                                BigDecimal targetAmount) {
-        BigDecimal sourceBalance = fromWallet.getBalance() == null ? BigDecimal.ZERO : fromWallet.getBalance();
-        BigDecimal targetBalance = toWallet.getBalance() == null ? BigDecimal.ZERO : toWallet.getBalance();
-
-        fromWallet.setBalance(sourceBalance.add(sourceAmount));
-        toWallet.setBalance(targetBalance.subtract(targetAmount));
-
-        walletRepository.save(fromWallet);
-        walletRepository.save(toWallet);
+                                BigDecimal targetAmount,
+                                Long transactionId) {
+        balanceUpdater.applyDelta(fromWallet, sourceAmount, WalletLedgerEntrySource.WALLET_TRANSFER, transactionId);
+        balanceUpdater.applyDelta(toWallet, targetAmount.negate(), WalletLedgerEntrySource.WALLET_TRANSFER, transactionId);
     }
 
     private AmountComputation computeAmounts(Currency sourceCurrency,
@@ -0,0 +1,56 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Monthly summaries used to be keyed by the month start in the request offset. They are keyed in the server
+ * zone now, so any row whose period_start is not a server-zone month start is dropped; the month is
+ * recomputed from transactions on the next read.
+ */
+public class V33__drop_offset_keyed_monthly_summaries extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        ZoneId zone = ZoneId.systemDefault();
+
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, period_start FROM analytics_monthly_summary");
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM analytics_monthly_summary WHERE id = ?")) {
+            ResultSet rs = select.executeQuery();
+            int batchSize = 0;
+            while (rs.next()) {
+                Instant periodStart = rs.getTimestamp("period_start").toInstant();
+                if (periodStart.equals(monthStart(periodStart, zone))) {
+                    continue;
+                }
+                delete.setLong(1, rs.getLong("id"));
+                delete.addBatch();
+                batchSize++;
+                if (batchSize >= 500) {
+                    delete.executeBatch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                delete.executeBatch();
+            }
+        }
+    }
+
+    private Instant monthStart(Instant instant, ZoneId zone) {
+        return instant.atZone(zone)
+                .withDayOfMonth(1)
+                .truncatedTo(ChronoUnit.DAYS)
+                .toInstant();
+    }
+}
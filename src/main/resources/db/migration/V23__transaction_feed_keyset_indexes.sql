@@ -0,0 +1,8 @@
+CREATE INDEX IF NOT EXISTS idx_category_transactions_user_occurred_id
+    ON category_transactions (user_id, occurred_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_debt_transactions_user_occurred_id
+    ON debt_transactions (user_id, occurred_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_wallet_transactions_from_executed_id
+    ON wallet_transactions (from_wallet_id, executed_at DESC, id DESC);
@@ -0,0 +1,38 @@
+CREATE TABLE IF NOT EXISTS transaction_feed_entries (
+    entry_source VARCHAR(16) NOT NULL,
+    entry_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    wallet_id BIGINT,
+    counterparty_wallet_id BIGINT,
+    category_id BIGINT,
+    category_transaction_type VARCHAR(16),
+    debt_counterparty_id BIGINT,
+    debt_direction VARCHAR(16),
+    amount TEXT NOT NULL,
+    currency_code VARCHAR(10) NOT NULL,
+    description VARCHAR(255),
+    occurred_at TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (entry_source, entry_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_transaction_feed_entries_user_occurred
+    ON transaction_feed_entries (user_id, occurred_at DESC, entry_source DESC, entry_id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_transaction_feed_entries_wallet
+    ON transaction_feed_entries (wallet_id);
+
+CREATE INDEX IF NOT EXISTS idx_transaction_feed_entries_counterparty_wallet
+    ON transaction_feed_entries (counterparty_wallet_id)
+    WHERE counterparty_wallet_id IS NOT NULL;
+
+INSERT INTO transaction_feed_entries (
+    entry_source, entry_id, user_id, wallet_id, counterparty_wallet_id, category_id,
+    category_transaction_type, debt_counterparty_id, debt_direction, amount, currency_code,
+    description, occurred_at, created_at
+)
+SELECT entry_source, entry_id, user_id, wallet_id, counterparty_wallet_id, category_id,
+       category_transaction_type, debt_counterparty_id, debt_direction, amount, currency_code,
+       description, occurred_at, created_at
+FROM user_transaction_feed
+ON CONFLICT (entry_source, entry_id) DO NOTHING;
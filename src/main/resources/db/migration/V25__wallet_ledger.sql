@@ -0,0 +1,37 @@
+CREATE TABLE IF NOT EXISTS wallet_balance_checkpoints (
+    id BIGSERIAL PRIMARY KEY,
+    wallet_id BIGINT NOT NULL REFERENCES wallets (id) ON DELETE CASCADE,
+    balance TEXT NOT NULL,
+    entry_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_wallet_balance_checkpoints_wallet
+    ON wallet_balance_checkpoints (wallet_id, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_wallet_balance_checkpoints_wallet_created
+    ON wallet_balance_checkpoints (wallet_id, created_at DESC);
+
+CREATE TABLE IF NOT EXISTS wallet_ledger_entries (
+    id BIGSERIAL PRIMARY KEY,
+    wallet_id BIGINT NOT NULL REFERENCES wallets (id) ON DELETE CASCADE,
+    delta TEXT NOT NULL,
+    source VARCHAR(32) NOT NULL,
+    source_id BIGINT,
+    checkpoint_id BIGINT REFERENCES wallet_balance_checkpoints (id) ON DELETE SET NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_entries_pending
+    ON wallet_ledger_entries (wallet_id)
+    WHERE checkpoint_id IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_entries_wallet_created
+    ON wallet_ledger_entries (wallet_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_wallet_ledger_entries_source
+    ON wallet_ledger_entries (source, source_id);
+
+INSERT INTO wallet_balance_checkpoints (wallet_id, balance, created_at)
+SELECT id, balance, NOW()
+FROM wallets;
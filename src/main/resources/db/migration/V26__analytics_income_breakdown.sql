@@ -0,0 +1,2 @@
+ALTER TABLE analytics_monthly_summary
+    ADD COLUMN IF NOT EXISTS income_breakdown TEXT;
@@ -0,0 +1,19 @@
+CREATE TABLE IF NOT EXISTS analytics_daily_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    day DATE NOT NULL,
+    category_id BIGINT NOT NULL REFERENCES categories (id) ON DELETE CASCADE,
+    type VARCHAR(20) NOT NULL,
+    currency_code VARCHAR(10) NOT NULL,
+    amount TEXT NOT NULL,
+    transaction_count BIGINT NOT NULL,
+    CONSTRAINT uq_analytics_daily_rollup UNIQUE (user_id, day, category_id, type, currency_code)
+);
+
+CREATE INDEX IF NOT EXISTS idx_analytics_daily_rollup_category ON analytics_daily_rollup (category_id);
+
+-- Users whose rollup has been built from their transactions; rows are only maintained incrementally after that.
+CREATE TABLE IF NOT EXISTS analytics_daily_rollup_state (
+    user_id BIGINT PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    built_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS analytics_snapshot_runs (
+    period_start TIMESTAMPTZ PRIMARY KEY,
+    period_end TIMESTAMPTZ NOT NULL,
+    last_user_id BIGINT NOT NULL DEFAULT 0,
+    processed_users INTEGER NOT NULL DEFAULT 0,
+    created_summaries INTEGER NOT NULL DEFAULT 0,
+    started_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    completed_at TIMESTAMPTZ
+);
@@ -0,0 +1,22 @@
+ALTER TABLE app_settings
+    ADD COLUMN IF NOT EXISTS pending_main_currency VARCHAR(10);
+
+CREATE TABLE IF NOT EXISTS currency_change_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    source_currency VARCHAR(10) NOT NULL,
+    target_currency VARCHAR(10) NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    total_rows INTEGER,
+    processed_rows INTEGER NOT NULL DEFAULT 0,
+    last_summary_id BIGINT NOT NULL DEFAULT 0,
+    last_counterparty_id BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    completed_at TIMESTAMPTZ
+);
+
+-- At most one currency change can be queued or running at a time.
+CREATE UNIQUE INDEX IF NOT EXISTS uq_currency_change_jobs_active
+    ON currency_change_jobs ((TRUE))
+    WHERE status IN ('PENDING', 'RUNNING');
@@ -0,0 +1,7 @@
+-- Every rate lookup filters on the currency pair and reads the newest rows first; carrying the rate in the
+-- index lets them be answered from the index alone.
+CREATE INDEX IF NOT EXISTS idx_exchange_rates_pair_fetched_rate
+    ON exchange_rates (base_currency_id, target_currency_id, fetched_at DESC)
+    INCLUDE (rate);
+
+DROP INDEX IF EXISTS idx_exchange_rates_base_target;
@@ -0,0 +1,4 @@
+-- The rollover job scans active budgets whose period has ended, across all users, in (period_end, id) order.
+CREATE INDEX IF NOT EXISTS idx_budgets_active_period_end
+    ON budgets (period_end, id)
+    WHERE status = 'ACTIVE';
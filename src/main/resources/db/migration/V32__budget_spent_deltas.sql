@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS budget_spent_deltas (
+    id BIGSERIAL PRIMARY KEY,
+    budget_id BIGINT NOT NULL REFERENCES budgets (id) ON DELETE CASCADE,
+    delta TEXT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_budget_spent_deltas_budget
+    ON budget_spent_deltas (budget_id);
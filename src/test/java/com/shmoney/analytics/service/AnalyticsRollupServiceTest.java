@@ -0,0 +1,197 @@
+package com.shmoney.analytics.service;
+
+import com.shmoney.analytics.dto.AnalyticsTimeseriesPoint;
+import com.shmoney.analytics.dto.AnalyticsTimeseriesResponse;
+import com.shmoney.analytics.entity.DailyAnalytics;
+import com.shmoney.analytics.model.AnalyticsGranularity;
+import com.shmoney.analytics.repository.DailyAnalyticsRepository;
+import com.shmoney.analytics.repository.MonthlyAnalyticsRepository;
+import com.shmoney.budget.service.BudgetSpendingService.TransactionSnapshot;
+import com.shmoney.common.aggregation.AmountRow;
+import com.shmoney.common.aggregation.AmountTotal;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.currency.service.RateTable;
+import com.shmoney.settings.entity.AppSettings;
+import com.shmoney.settings.service.AppSettingsProvider;
+import com.shmoney.transaction.category.entity.CategoryTransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsRollupServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 4);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 17);
+
+    @Mock
+    private DailyAnalyticsRepository dailyAnalyticsRepository;
+    @Mock
+    private MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+    @Mock
+    private EncryptedAmountAggregator amountAggregator;
+    @Mock
+    private ExchangeRateService exchangeRateService;
+    @Mock
+    private AppSettingsProvider appSettingsProvider;
+
+    private AnalyticsRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnalyticsRollupService(
+                dailyAnalyticsRepository,
+                monthlyAnalyticsRepository,
+                amountAggregator,
+                exchangeRateService,
+                appSettingsProvider
+        );
+        AppSettings settings = new AppSettings();
+        settings.setMainCurrency("KZT");
+        lenient().when(appSettingsProvider.getOrCreate()).thenReturn(settings);
+    }
+
+    @Test
+    void weeklySeriesShouldBeBuiltFromRollupRows() {
+        when(dailyAnalyticsRepository.isBuilt(1L)).thenReturn(true);
+        when(dailyAnalyticsRepository.findAllByUserIdAndDayBetween(1L, FROM, TO)).thenReturn(List.of(
+                row(LocalDate.of(2026, 3, 4), CategoryTransactionType.EXPENSE, "KZT", "100.00", 2),
+                row(LocalDate.of(2026, 3, 8), CategoryTransactionType.EXPENSE, "USD", "10.00", 1),
+                row(LocalDate.of(2026, 3, 10), CategoryTransactionType.INCOME, "KZT", "900.00", 1)));
+        when(exchangeRateService.snapshotAsOf(LocalDate.of(2026, 3, 8))).thenReturn(rates());
+
+        AnalyticsTimeseriesResponse response = service.getTimeseries(1L, FROM, TO, AnalyticsGranularity.WEEK, null);
+
+        assertThat(response.points()).extracting(AnalyticsTimeseriesPoint::bucketStart)
+                .containsExactly(FROM, LocalDate.of(2026, 3, 9), LocalDate.of(2026, 3, 16));
+        assertThat(response.points().get(0).bucketEnd()).isEqualTo(LocalDate.of(2026, 3, 8));
+        assertThat(response.points().get(0).totalExpense()).isEqualByComparingTo("5100.00");
+        assertThat(response.points().get(0).transactionCount()).isEqualTo(3);
+        assertThat(response.points().get(1).totalIncome()).isEqualByComparingTo("900.00");
+        assertThat(response.points().get(2).bucketEnd()).isEqualTo(TO);
+        assertThat(response.points().get(2).totalExpense()).isEqualByComparingTo("0.00");
+        verify(amountAggregator, never()).aggregateCategoryTransactions(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void firstRequestShouldBuildRollupFromTransactions() {
+        OffsetDateTime occurredAt = LocalDate.of(2026, 3, 5).atTime(10, 0).atZone(ZoneId.systemDefault())
+                .toOffsetDateTime();
+        when(dailyAnalyticsRepository.isBuilt(1L)).thenReturn(false);
+        when(amountAggregator.aggregateCategoryTransactions(eq(1L), isNull(), isNull(), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    Function<AmountRow, Object> keyExtractor = invocation.getArgument(4);
+                    Object key = keyExtractor.apply(new AmountRow(7L, "EXPENSE", 3L, "KZT", occurredAt));
+                    return Map.of(key, new AmountTotal(12_500, 2));
+                });
+
+        service.getTimeseries(1L, FROM, TO, AnalyticsGranularity.DAY, null);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DailyAnalytics>> rows = ArgumentCaptor.forClass(List.class);
+        verify(monthlyAnalyticsRepository).lockUserSummaries(1L);
+        verify(dailyAnalyticsRepository).saveAll(rows.capture());
+        assertThat(rows.getValue()).singleElement().satisfies(row -> {
+            assertThat(row.getDay()).isEqualTo(LocalDate.of(2026, 3, 5));
+            assertThat(row.getCategoryId()).isEqualTo(3L);
+            assertThat(row.getAmount()).isEqualByComparingTo("125.00");
+            assertThat(row.getTransactionCount()).isEqualTo(2);
+        });
+        verify(dailyAnalyticsRepository).markBuilt(1L);
+    }
+
+    @Test
+    void deletingTransactionShouldDecrementRow() {
+        OffsetDateTime occurredAt = LocalDate.of(2026, 3, 5).atTime(10, 0).atZone(ZoneId.systemDefault())
+                .toOffsetDateTime();
+        DailyAnalytics row = row(LocalDate.of(2026, 3, 5), CategoryTransactionType.EXPENSE, "KZT", "100.00", 2);
+        when(dailyAnalyticsRepository.isBuilt(1L)).thenReturn(true);
+        when(dailyAnalyticsRepository.findByUserIdAndDayAndCategoryIdAndTypeAndCurrencyCode(
+                1L, LocalDate.of(2026, 3, 5), 3L, CategoryTransactionType.EXPENSE, "KZT")).thenReturn(Optional.of(row));
+
+        service.apply(new TransactionSnapshot(1L, 3L, new BigDecimal("40.00"), "KZT", occurredAt,
+                CategoryTransactionType.EXPENSE), -1);
+
+        assertThat(row.getAmount()).isEqualByComparingTo("60.00");
+        assertThat(row.getTransactionCount()).isEqualTo(1);
+        verify(dailyAnalyticsRepository).save(row);
+    }
+
+    @Test
+    void revertWithoutRowShouldDropRollupForRebuild() {
+        OffsetDateTime occurredAt = LocalDate.of(2026, 3, 5).atTime(10, 0).atZone(ZoneId.systemDefault())
+                .toOffsetDateTime();
+        when(dailyAnalyticsRepository.isBuilt(1L)).thenReturn(true);
+        when(dailyAnalyticsRepository.findByUserIdAndDayAndCategoryIdAndTypeAndCurrencyCode(
+                any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        service.apply(new TransactionSnapshot(1L, 3L, new BigDecimal("40.00"), "KZT", occurredAt,
+                CategoryTransactionType.EXPENSE), -1);
+
+        verify(dailyAnalyticsRepository).deleteAllForUser(1L);
+        verify(dailyAnalyticsRepository).clearBuilt(1L);
+        verify(dailyAnalyticsRepository, never()).save(any());
+    }
+
+    @Test
+    void importShouldUpdateEachRowOnce() {
+        OffsetDateTime occurredAt = LocalDate.of(2026, 3, 5).atTime(10, 0).atZone(ZoneId.systemDefault())
+                .toOffsetDateTime();
+        DailyAnalytics row = row(LocalDate.of(2026, 3, 5), CategoryTransactionType.EXPENSE, "KZT", "100.00", 2);
+        when(dailyAnalyticsRepository.isBuilt(1L)).thenReturn(true);
+        when(dailyAnalyticsRepository.findByUserIdAndDayAndCategoryIdAndTypeAndCurrencyCode(
+                1L, LocalDate.of(2026, 3, 5), 3L, CategoryTransactionType.EXPENSE, "KZT")).thenReturn(Optional.of(row));
+
+        service.applyCreated(1L, List.of(
+                new TransactionSnapshot(1L, 3L, new BigDecimal("40.00"), "KZT", occurredAt,
+                        CategoryTransactionType.EXPENSE),
+                new TransactionSnapshot(1L, 3L, new BigDecimal("10.00"), "KZT", occurredAt.plusHours(1),
+                        CategoryTransactionType.EXPENSE),
+                new TransactionSnapshot(1L, 3L, new BigDecimal("5.50"), "KZT", occurredAt.plusHours(2),
+                        CategoryTransactionType.EXPENSE)));
+
+        assertThat(row.getAmount()).isEqualByComparingTo("155.50");
+        assertThat(row.getTransactionCount()).isEqualTo(5);
+        verify(dailyAnalyticsRepository).findByUserIdAndDayAndCategoryIdAndTypeAndCurrencyCode(
+                any(), any(), any(), any(), any());
+        verify(dailyAnalyticsRepository).save(row);
+    }
+
+    private DailyAnalytics row(LocalDate day, CategoryTransactionType type, String currency, String amount, long count) {
+        DailyAnalytics row = new DailyAnalytics();
+        row.setUserId(1L);
+        row.setDay(day);
+        row.setCategoryId(3L);
+        row.setType(type);
+        row.setCurrencyCode(currency);
+        row.setAmount(new BigDecimal(amount));
+        row.setTransactionCount(count);
+        return row;
+    }
+
+    private RateTable rates() {
+        return new RateTable(Map.of("USD", BigDecimal.ONE, "KZT", new BigDecimal("500.000000")), null);
+    }
+}
@@ -0,0 +1,214 @@
+package com.shmoney.analytics.service;
+
+import com.shmoney.analytics.entity.MonthlyAnalytics;
+import com.shmoney.analytics.model.CategoryBreakdown;
+import com.shmoney.analytics.repository.MonthlyAnalyticsRepository;
+import com.shmoney.budget.service.BudgetSpendingService.TransactionSnapshot;
+import com.shmoney.category.entity.Category;
+import com.shmoney.category.repository.CategoryRepository;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
+import com.shmoney.currency.entity.Currency;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.currency.service.RateTable;
+import com.shmoney.settings.entity.AppSettings;
+import com.shmoney.settings.service.AppSettingsProvider;
+import com.shmoney.transaction.category.entity.CategoryTransaction;
+import com.shmoney.transaction.category.entity.CategoryTransactionType;
+import com.shmoney.user.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsServiceIncrementalTest {
+
+    private static final OffsetDateTime OCCURRED_AT = OffsetDateTime.parse("2026-04-10T12:00:00+05:00");
+
+    @Mock
+    private MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+    @Mock
+    private ExchangeRateService exchangeRateService;
+    @Mock
+    private AppSettingsProvider appSettingsProvider;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private EncryptedAmountAggregator amountAggregator;
+    @Mock
+    private AnalyticsRollupService analyticsRollupService;
+
+    private AnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnalyticsService(
+                monthlyAnalyticsRepository,
+                exchangeRateService,
+                appSettingsProvider,
+                categoryRepository,
+                amountAggregator,
+                analyticsRollupService
+        );
+        AppSettings settings = new AppSettings();
+        settings.setMainCurrency("KZT");
+        lenient().when(appSettingsProvider.getOrCreate()).thenReturn(settings);
+    }
+
+    @Test
+    void createdExpenseShouldBeAddedToStoredSummaryInPlace() {
+        MonthlyAnalytics summary = summary(new BigDecimal("100.00"), new BigDecimal("500.00"),
+                List.of(new CategoryBreakdown(3L, "Food", "#fff", "food", new BigDecimal("100.00"), 2)));
+        stubSummary(summary);
+        when(exchangeRateService.snapshotAsOf(any())).thenReturn(rates());
+        when(categoryRepository.findById(4L)).thenReturn(Optional.of(category(4L, "Taxi")));
+
+        service.handleTransactionCreated(transaction(4L, "USD", new BigDecimal("10.00"), CategoryTransactionType.EXPENSE));
+
+        assertThat(summary.getTotalExpense()).isEqualByComparingTo("5100.00");
+        assertThat(summary.getTotalIncome()).isEqualByComparingTo("500.00");
+        assertThat(summary.getCashFlowAmount()).isEqualByComparingTo("-4600.00");
+        assertThat(summary.getExpenseBreakdown()).extracting(CategoryBreakdown::categoryId).containsExactly(4L, 3L);
+        assertThat(summary.getExpenseBreakdown().get(0).transactionCount()).isEqualTo(1);
+        verify(monthlyAnalyticsRepository).lockUserSummaries(1L);
+        verify(monthlyAnalyticsRepository).save(summary);
+    }
+
+    @Test
+    void updateShouldMoveAmountBetweenCategoriesAndDropEmptyEntries() {
+        MonthlyAnalytics summary = summary(new BigDecimal("300.00"), BigDecimal.ZERO, List.of(
+                new CategoryBreakdown(3L, "Food", "#fff", "food", new BigDecimal("100.00"), 1),
+                new CategoryBreakdown(5L, "Rent", "#000", "home", new BigDecimal("200.00"), 1)));
+        stubSummary(summary);
+
+        service.handleTransactionUpdated(
+                new TransactionSnapshot(1L, 3L, new BigDecimal("100.00"), "KZT", OCCURRED_AT, CategoryTransactionType.EXPENSE),
+                new TransactionSnapshot(1L, 5L, new BigDecimal("150.00"), "KZT", OCCURRED_AT, CategoryTransactionType.EXPENSE));
+
+        assertThat(summary.getTotalExpense()).isEqualByComparingTo("350.00");
+        assertThat(summary.getExpenseBreakdown()).singleElement().satisfies(entry -> {
+            assertThat(entry.categoryId()).isEqualTo(5L);
+            assertThat(entry.amount()).isEqualByComparingTo("350.00");
+            assertThat(entry.transactionCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void inconsistentRevertShouldDropSummaryForRecompute() {
+        MonthlyAnalytics summary = summary(new BigDecimal("50.00"), BigDecimal.ZERO,
+                List.of(new CategoryBreakdown(3L, "Food", "#fff", "food", new BigDecimal("50.00"), 1)));
+        stubSummary(summary);
+
+        service.handleTransactionDeleted(transaction(3L, "KZT", new BigDecimal("80.00"), CategoryTransactionType.EXPENSE));
+
+        verify(monthlyAnalyticsRepository).delete(summary);
+        verify(monthlyAnalyticsRepository, never()).save(any());
+    }
+
+    @Test
+    void unknownCategoryShouldDropSummaryForRecompute() {
+        MonthlyAnalytics summary = summary(new BigDecimal("100.00"), BigDecimal.ZERO,
+                List.of(new CategoryBreakdown(3L, "Food", "#fff", "food", new BigDecimal("100.00"), 2)));
+        stubSummary(summary);
+        when(categoryRepository.findById(4L)).thenReturn(Optional.empty());
+
+        service.handleTransactionCreated(transaction(4L, "KZT", new BigDecimal("10.00"), CategoryTransactionType.EXPENSE));
+
+        verify(monthlyAnalyticsRepository).delete(summary);
+        verify(monthlyAnalyticsRepository, never()).save(any());
+        assertThat(summary.getTotalExpense()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void missingSummaryShouldBeLeftForLazyComputation() {
+        when(monthlyAnalyticsRepository.findFirstByUserIdAndPeriodStartLessThanEqualAndPeriodEndGreaterThanEqual(
+                eq(1L), any(), any())).thenReturn(Optional.empty());
+
+        service.handleTransactionCreated(transaction(3L, "KZT", new BigDecimal("80.00"), CategoryTransactionType.INCOME));
+
+        verify(monthlyAnalyticsRepository, never()).save(any());
+    }
+
+    @Test
+    void importShouldDropEveryOverlappingSummaryOncePerMonth() {
+        service.handleTransactionsCreated(1L, List.of(
+                new TransactionSnapshot(1L, 3L, new BigDecimal("10.00"), "KZT", OCCURRED_AT,
+                        CategoryTransactionType.EXPENSE),
+                new TransactionSnapshot(1L, 4L, new BigDecimal("20.00"), "KZT", OCCURRED_AT.plusDays(2),
+                        CategoryTransactionType.EXPENSE),
+                new TransactionSnapshot(1L, 3L, new BigDecimal("30.00"), "KZT", OCCURRED_AT.plusMonths(1),
+                        CategoryTransactionType.INCOME)));
+
+        OffsetDateTime april = OCCURRED_AT.atZoneSameInstant(ZoneId.systemDefault()).withDayOfMonth(1)
+                .truncatedTo(ChronoUnit.DAYS).toOffsetDateTime();
+        verify(monthlyAnalyticsRepository).lockUserSummaries(1L);
+        verify(analyticsRollupService).applyCreated(eq(1L), any());
+        verify(monthlyAnalyticsRepository).deleteOverlapping(1L, april,
+                april.atZoneSameInstant(ZoneId.systemDefault()).plusMonths(1).toOffsetDateTime().minusNanos(1));
+        verify(monthlyAnalyticsRepository, times(2)).deleteOverlapping(eq(1L), any(), any());
+    }
+
+    private void stubSummary(MonthlyAnalytics summary) {
+        when(monthlyAnalyticsRepository.findFirstByUserIdAndPeriodStartLessThanEqualAndPeriodEndGreaterThanEqual(
+                1L, OCCURRED_AT, OCCURRED_AT)).thenReturn(Optional.of(summary));
+    }
+
+    private MonthlyAnalytics summary(BigDecimal expense, BigDecimal income, List<CategoryBreakdown> breakdown) {
+        MonthlyAnalytics summary = new MonthlyAnalytics();
+        summary.setUserId(1L);
+        summary.setPeriodStart(OffsetDateTime.parse("2026-04-01T00:00:00+05:00"));
+        summary.setPeriodEnd(OffsetDateTime.parse("2026-04-30T23:59:59.999999999+05:00"));
+        summary.setCurrencyCode("KZT");
+        summary.setTotalExpense(expense);
+        summary.setTotalIncome(income);
+        summary.setCashFlowAmount(income.subtract(expense));
+        summary.setCashFlowPercent(BigDecimal.ZERO);
+        summary.setExpenseBreakdown(breakdown);
+        return summary;
+    }
+
+    private CategoryTransaction transaction(Long categoryId, String currencyCode, BigDecimal amount,
+                                            CategoryTransactionType type) {
+        User user = new User();
+        user.setId(1L);
+        Currency currency = new Currency();
+        currency.setCode(currencyCode);
+        CategoryTransaction transaction = new CategoryTransaction();
+        transaction.setUser(user);
+        transaction.setCategory(category(categoryId, "Category " + categoryId));
+        transaction.setCurrency(currency);
+        transaction.setAmount(amount);
+        transaction.setType(type);
+        transaction.setOccurredAt(OCCURRED_AT);
+        return transaction;
+    }
+
+    private Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    private RateTable rates() {
+        return new RateTable(Map.of("USD", BigDecimal.ONE, "KZT", new BigDecimal("500.000000")), null);
+    }
+}
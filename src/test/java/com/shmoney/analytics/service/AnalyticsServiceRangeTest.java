@@ -0,0 +1,184 @@
+package com.shmoney.analytics.service;
+
+import com.shmoney.analytics.dto.AnalyticsResponse;
+import com.shmoney.analytics.dto.CategoryAnalyticsItem;
+import com.shmoney.analytics.entity.MonthlyAnalytics;
+import com.shmoney.analytics.model.CategoryBreakdown;
+import com.shmoney.analytics.repository.MonthlyAnalyticsRepository;
+import com.shmoney.category.entity.Category;
+import com.shmoney.category.repository.CategoryRepository;
+import com.shmoney.common.aggregation.AmountRow;
+import com.shmoney.common.aggregation.AmountTotal;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.settings.entity.AppSettings;
+import com.shmoney.settings.service.AppSettingsProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsServiceRangeTest {
+
+    private static final OffsetDateTime FROM = at(2026, 1, 15);
+    private static final OffsetDateTime TO = at(2026, 4, 11).minusNanos(1);
+    private static final OffsetDateTime FEBRUARY = at(2026, 2, 1);
+    private static final OffsetDateTime MARCH = at(2026, 3, 1);
+
+    @Mock
+    private MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+    @Mock
+    private ExchangeRateService exchangeRateService;
+    @Mock
+    private AppSettingsProvider appSettingsProvider;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private EncryptedAmountAggregator amountAggregator;
+    @Mock
+    private AnalyticsRollupService analyticsRollupService;
+
+    private AnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnalyticsService(
+                monthlyAnalyticsRepository,
+                exchangeRateService,
+                appSettingsProvider,
+                categoryRepository,
+                amountAggregator,
+                analyticsRollupService
+        );
+        AppSettings settings = new AppSettings();
+        settings.setMainCurrency("KZT");
+        lenient().when(appSettingsProvider.getOrCreate()).thenReturn(settings);
+        lenient().when(categoryRepository.findAllById(anyCollection())).thenReturn(List.of(category(3L, "Food")));
+    }
+
+    @Test
+    void rangeShouldUseStoredWholeMonthsAndScanOnlyEdges() {
+        stubStored(FEBRUARY, summary(FEBRUARY, "200.00", "1000.00",
+                List.of(breakdown(3L, "200.00", 2)), List.of(breakdown(9L, "1000.00", 1))));
+        stubStored(MARCH, summary(MARCH, "300.00", "0.00",
+                List.of(breakdown(3L, "100.00", 1), breakdown(5L, "200.00", 1)), List.of()));
+        stubEdgeScans();
+
+        AnalyticsResponse response = service.getAnalytics(1L, FROM, TO, null);
+
+        assertThat(response.totalExpense()).isEqualByComparingTo("620.00");
+        assertThat(response.totalIncome()).isEqualByComparingTo("1000.00");
+        assertThat(response.totalExpenseTransactions()).isEqualTo(6);
+        assertThat(response.categories()).extracting(CategoryAnalyticsItem::categoryId).containsExactly(3L, 5L);
+        assertThat(response.categories().get(0).amount()).isEqualByComparingTo("420.00");
+        verify(amountAggregator).aggregateCategoryTransactions(eq(1L), isNull(), eq(FROM),
+                eq(at(2026, 2, 1).minusNanos(1)), any());
+        verify(amountAggregator).aggregateCategoryTransactions(eq(1L), isNull(), eq(at(2026, 4, 1)), eq(TO), any());
+        verify(amountAggregator, times(2)).aggregateCategoryTransactions(any(), any(), any(), any(), any());
+        verify(monthlyAnalyticsRepository, never()).save(any());
+    }
+
+    @Test
+    void categoryFilterShouldBeAppliedToStoredBreakdowns() {
+        stubStored(FEBRUARY, summary(FEBRUARY, "200.00", "1000.00",
+                List.of(breakdown(3L, "150.00", 1), breakdown(5L, "50.00", 1)), List.of(breakdown(9L, "1000.00", 1))));
+        stubStored(MARCH, summary(MARCH, "100.00", "0.00", List.of(breakdown(5L, "100.00", 1)), List.of()));
+        stubEdgeScans();
+
+        AnalyticsResponse response = service.getAnalytics(1L, FROM, TO, List.of(3L));
+
+        assertThat(response.totalExpense()).isEqualByComparingTo("270.00");
+        assertThat(response.totalIncome()).isEqualByComparingTo("0.00");
+        verify(amountAggregator, times(2)).aggregateCategoryTransactions(eq(1L), eq(List.of(3L)), any(), any(), any());
+        assertThat(response.categories()).singleElement().satisfies(item -> {
+            assertThat(item.categoryId()).isEqualTo(3L);
+            assertThat(item.transactionCount()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void missingWholeMonthShouldBeComputedOnceAndStored() {
+        stubStored(FEBRUARY, summary(FEBRUARY, "200.00", "0.00", List.of(breakdown(3L, "200.00", 2)), List.of()));
+        when(monthlyAnalyticsRepository.findByUserIdAndPeriodStart(1L, MARCH)).thenReturn(Optional.empty());
+        stubEdgeScans();
+
+        service.getAnalytics(1L, FROM, TO, null);
+
+        verify(amountAggregator).aggregateCategoryTransactions(eq(1L), isNull(), eq(MARCH),
+                eq(at(2026, 4, 1).minusNanos(1)), any());
+        verify(monthlyAnalyticsRepository).save(any(MonthlyAnalytics.class));
+    }
+
+    private void stubStored(OffsetDateTime periodStart, MonthlyAnalytics summary) {
+        when(monthlyAnalyticsRepository.findByUserIdAndPeriodStart(1L, periodStart)).thenReturn(Optional.of(summary));
+    }
+
+    private void stubEdgeScans() {
+        when(amountAggregator.aggregateCategoryTransactions(eq(1L), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Function<AmountRow, Object> keyExtractor = invocation.getArgument(4);
+                    Object key = keyExtractor.apply(new AmountRow(1L, "EXPENSE", 3L, "KZT", invocation.getArgument(2)));
+                    return Map.of(key, new AmountTotal(6_000, 1));
+                });
+    }
+
+    private MonthlyAnalytics summary(OffsetDateTime periodStart,
+                                     String expense,
+                                     String income,
+                                     List<CategoryBreakdown> expenseBreakdown,
+                                     List<CategoryBreakdown> incomeBreakdown) {
+        MonthlyAnalytics summary = new MonthlyAnalytics();
+        summary.setUserId(1L);
+        summary.setPeriodStart(periodStart);
+        summary.setPeriodEnd(periodStart.atZoneSameInstant(ZoneId.systemDefault())
+                .plusMonths(1)
+                .toOffsetDateTime()
+                .minusNanos(1));
+        summary.setCurrencyCode("KZT");
+        summary.setTotalExpense(new BigDecimal(expense));
+        summary.setTotalIncome(new BigDecimal(income));
+        summary.setCashFlowAmount(new BigDecimal(income).subtract(new BigDecimal(expense)));
+        summary.setCashFlowPercent(BigDecimal.ZERO);
+        summary.setExpenseBreakdown(expenseBreakdown);
+        summary.setIncomeBreakdown(incomeBreakdown);
+        return summary;
+    }
+
+    private CategoryBreakdown breakdown(Long categoryId, String amount, long count) {
+        return new CategoryBreakdown(categoryId, "Category " + categoryId, "#fff", "icon",
+                new BigDecimal(amount), count);
+    }
+
+    private Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    private static OffsetDateTime at(int year, int month, int day) {
+        return LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+}
@@ -0,0 +1,110 @@
+package com.shmoney.analytics.service;
+
+import com.shmoney.analytics.dto.AnalyticsPeriod;
+import com.shmoney.analytics.entity.MonthlyAnalytics;
+import com.shmoney.common.crypto.EncryptionContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MonthlySnapshotJobTest {
+
+    private static final AnalyticsPeriod MONTH = new AnalyticsPeriod(
+            OffsetDateTime.parse("2026-03-01T00:00:00+05:00"),
+            OffsetDateTime.parse("2026-03-31T23:59:59.999999999+05:00")
+    );
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private AnalyticsService analyticsService;
+
+    private MonthlySnapshotJob job;
+
+    @BeforeEach
+    void setUp() {
+        EncryptionContext.initialize("snapshot-job-secret");
+        job = new MonthlySnapshotJob(jdbcTemplate, transactionTemplate, analyticsService);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jdbcTemplate.queryForList(contains("last_user_id"), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(40L));
+    }
+
+    @Test
+    void runShouldResumeAfterRecordedUserInChunksAndComplete() {
+        List<Long> users = LongStream.rangeClosed(41, 150).boxed().toList();
+        when(jdbcTemplate.queryForList(contains("FROM category_transactions"), any(SqlParameterSource.class),
+                eq(Long.class))).thenReturn(users);
+        when(analyticsService.buildMissingSummaries(anyList(), eq(MONTH))).thenAnswer(invocation -> {
+            List<Long> chunk = invocation.getArgument(0);
+            return chunk.contains(41L) ? List.of(summary(41L)) : List.of();
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class))).thenReturn(new int[]{1});
+
+        job.run(MONTH);
+
+        verify(analyticsService).buildMissingSummaries(users.subList(0, 100), MONTH);
+        verify(analyticsService).buildMissingSummaries(users.subList(100, 110), MONTH);
+        ArgumentCaptor<SqlParameterSource> next = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).queryForList(contains("FROM category_transactions"), next.capture(), eq(Long.class));
+        assertThat(next.getValue().getValue("afterUserId")).isEqualTo(40L);
+        ArgumentCaptor<SqlParameterSource> progress = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(contains("SET last_user_id"), progress.capture());
+        assertThat(progress.getValue().getValue("lastUserId")).isEqualTo(150L);
+        assertThat(progress.getValue().getValue("createdSummaries")).isEqualTo(1);
+        verify(jdbcTemplate).update(contains("SET completed_at"), any(SqlParameterSource.class));
+    }
+
+    @Test
+    void failedChunkShouldLeaveRunForResume() {
+        when(jdbcTemplate.queryForList(contains("FROM category_transactions"), any(SqlParameterSource.class),
+                eq(Long.class))).thenReturn(List.of(41L, 42L));
+        when(analyticsService.buildMissingSummaries(anyList(), eq(MONTH)))
+                .thenThrow(new IllegalStateException("boom"));
+
+        job.run(MONTH);
+
+        verify(jdbcTemplate, never()).update(contains("SET last_user_id"), any(SqlParameterSource.class));
+        verify(jdbcTemplate, never()).update(contains("SET completed_at"), any(SqlParameterSource.class));
+    }
+
+    private MonthlyAnalytics summary(Long userId) {
+        MonthlyAnalytics summary = new MonthlyAnalytics();
+        summary.setUserId(userId);
+        summary.setPeriodStart(MONTH.from());
+        summary.setPeriodEnd(MONTH.to());
+        summary.setCurrencyCode("KZT");
+        summary.setTotalExpense(new BigDecimal("100.00"));
+        summary.setTotalIncome(BigDecimal.ZERO);
+        summary.setCashFlowAmount(new BigDecimal("-100.00"));
+        summary.setCashFlowPercent(new BigDecimal("-100.00"));
+        return summary;
+    }
+}
@@ -0,0 +1,89 @@
+package com.shmoney.auth.security;
+
+import com.shmoney.auth.service.JwtTokenService;
+import com.shmoney.config.JwtProperties;
+import com.shmoney.user.entity.User;
+import com.shmoney.user.service.UserService;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Authenticates one bearer request through the filter with the {@code accessTokens} cache emptied before each
+ * call (cold: the token is parsed and its signature checked) or kept (warm: a hash and a cache hit). The
+ * principal cache stays warm in both, so the difference is the token cache alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private JwtTokenService jwtTokenService;
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        jwtTokenService = new JwtTokenService(new JwtProperties("benchmark-secret-benchmark-secret-benchmark",
+                Duration.ofMinutes(15), Duration.ofDays(30)));
+        User user = new User();
+        user.setId(7L);
+        user.setTelegramUsername("alice");
+        UserService userService = mock(UserService.class, withSettings().stubOnly());
+        when(userService.getById(7L)).thenReturn(user);
+        filter = new JwtAuthenticationFilter(jwtTokenService, userService,
+                mock(TokenCookieService.class, withSettings().stubOnly()), new AuthenticatedUserCache());
+
+        request = new MockHttpServletRequest("GET", "/api/wallets");
+        request.addHeader(HttpHeaders.AUTHORIZATION,
+                "Bearer " + jwtTokenService.generateTokenPair(user).accessToken());
+        response = new MockHttpServletResponse();
+        if (authenticate() == null) {
+            throw new IllegalStateException("Benchmark token was rejected");
+        }
+    }
+
+    @Benchmark
+    public Authentication coldTokenCache() throws Exception {
+        jwtTokenService.accessTokenCache().invalidateAll();
+        return authenticate();
+    }
+
+    @Benchmark
+    public Authentication warmTokenCache() throws Exception {
+        return authenticate();
+    }
+
+    private Authentication authenticate() throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,93 @@
+package com.shmoney.auth.security;
+
+import com.shmoney.auth.service.JwtTokenService;
+import com.shmoney.auth.token.JwtTokenDetails;
+import com.shmoney.user.entity.User;
+import com.shmoney.user.exception.UserNotFoundException;
+import com.shmoney.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    private static final String TOKEN = "access-token";
+
+    @Mock
+    private JwtTokenService jwtTokenService;
+    @Mock
+    private UserService userService;
+    @Mock
+    private TokenCookieService tokenCookieService;
+
+    private final AuthenticatedUserCache authenticatedUserCache = new AuthenticatedUserCache();
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthenticationFilter(jwtTokenService, userService, tokenCookieService, authenticatedUserCache);
+        when(jwtTokenService.parseAccessToken(TOKEN))
+                .thenReturn(new JwtTokenDetails(7L, "alice", OffsetDateTime.now().plusMinutes(15)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedRequestsShouldLoadUserOnce() throws Exception {
+        when(userService.getById(7L)).thenReturn(user(7L, "alice"));
+
+        Authentication first = authenticate();
+        Authentication second = authenticate();
+
+        assertThat(first.getPrincipal()).isEqualTo(new AuthenticatedUser(7L, "alice"));
+        assertThat(second.getPrincipal()).isEqualTo(first.getPrincipal());
+        verify(userService, times(1)).getById(7L);
+    }
+
+    @Test
+    void evictedUserShouldBeLoadedAgain() throws Exception {
+        when(userService.getById(7L)).thenReturn(user(7L, "alice"))
+                .thenThrow(new UserNotFoundException(7L));
+
+        authenticate();
+        authenticatedUserCache.evict(7L);
+
+        assertThat(authenticate()).isNull();
+        verify(userService, times(2)).getById(7L);
+    }
+
+    private Authentication authenticate() throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/wallets");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setTelegramUsername(username);
+        return user;
+    }
+}
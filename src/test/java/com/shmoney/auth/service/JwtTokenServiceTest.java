@@ -0,0 +1,48 @@
+package com.shmoney.auth.service;
+
+import com.shmoney.auth.exception.InvalidTokenException;
+import com.shmoney.auth.token.JwtTokenDetails;
+import com.shmoney.config.JwtProperties;
+import com.shmoney.user.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenServiceTest {
+
+    private final JwtTokenService service = new JwtTokenService(new JwtProperties(
+            "test-secret-test-secret-test-secret-test-secret", Duration.ofMinutes(15), Duration.ofDays(30)));
+
+    @Test
+    void repeatedAccessTokenShouldBeParsedOnce() {
+        String token = service.generateTokenPair(user()).accessToken();
+
+        JwtTokenDetails first = service.parseAccessToken(token);
+        JwtTokenDetails second = service.parseAccessToken(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.userId()).isEqualTo(7L);
+        assertThat(service.accessTokenCache().stats().hitCount()).isEqualTo(1);
+        assertThat(service.accessTokenCache().asMap()).doesNotContainKey(token);
+    }
+
+    @Test
+    void rejectedTokensShouldNotBeCached() {
+        String refresh = service.generateTokenPair(user()).refreshToken();
+
+        assertThatThrownBy(() -> service.parseAccessToken(refresh)).isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> service.parseAccessToken(refresh + "x")).isInstanceOf(InvalidTokenException.class);
+
+        assertThat(service.accessTokenCache().estimatedSize()).isZero();
+    }
+
+    private User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setTelegramUsername("alice");
+        return user;
+    }
+}
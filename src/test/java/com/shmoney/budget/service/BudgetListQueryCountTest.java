@@ -0,0 +1,167 @@
+package com.shmoney.budget.service;
+
+import com.shmoney.budget.dto.BudgetCreateRequest;
+import com.shmoney.budget.dto.BudgetFilter;
+import com.shmoney.budget.dto.BudgetResponse;
+import com.shmoney.budget.entity.BudgetPeriodType;
+import com.shmoney.budget.entity.BudgetStatus;
+import com.shmoney.budget.entity.BudgetType;
+import com.shmoney.category.entity.Category;
+import com.shmoney.category.service.CategoryService;
+import com.shmoney.user.entity.User;
+import com.shmoney.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class BudgetListQueryCountTest {
+
+    private static final int BUDGETS = 100;
+    private static final StatementCounter STATEMENTS = new StatementCounter();
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("app.encryption.key", () -> "budget-list-test-key");
+    }
+
+    @Autowired
+    private BudgetService budgetService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void hundredBudgetsShouldBeListedWithConstantStatementCount() {
+        User owner = new User();
+        owner.setTelegramUserId(System.nanoTime());
+        owner.setTelegramUsername("budgets");
+        Long ownerId = userRepository.save(owner).getId();
+        Long food = createCategory(ownerId, "Еда");
+        Long transport = createCategory(ownerId, "Транспорт");
+        for (int i = 0; i < BUDGETS; i++) {
+            budgetService.create(ownerId, new BudgetCreateRequest("Бюджет " + i, BudgetPeriodType.MONTH, null,
+                    null, BudgetType.RECURRING, List.of(food, transport), "KZT", new BigDecimal("1000.00")));
+        }
+
+        List<BudgetResponse> budgets = STATEMENTS.count(() -> budgetService.list(ownerId,
+                new BudgetFilter(BudgetStatus.ACTIVE, null, null, null, null)));
+
+        assertThat(budgets).hasSize(BUDGETS)
+                .allSatisfy(budget -> assertThat(budget.categoryIds()).containsExactly(food, transport));
+        // One statement for the budgets with their pending deltas and one for their categories. A lazy
+        // getCategories() or a pending-delta lookup per budget would add BUDGETS more.
+        assertThat(STATEMENTS.executed()).isEqualTo(2);
+    }
+
+    private Long createCategory(Long ownerId, String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setColor("#4CAF50");
+        category.setIcon("tag");
+        return categoryService.create(ownerId, category).getId();
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfiguration {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counting(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static DataSource counting(DataSource dataSource) {
+        return wrap(DataSource.class, dataSource, (method, result) -> result instanceof Connection connection
+                ? wrap(Connection.class, connection, BudgetListQueryCountTest::countingStatement)
+                : result);
+    }
+
+    private static Object countingStatement(Method method, Object result) {
+        if (!(result instanceof Statement statement)) {
+            return result;
+        }
+        Class<?> type = method.getReturnType();
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, call, args) -> {
+            if (call.getName().startsWith("execute")) {
+                STATEMENTS.record();
+            }
+            return invoke(statement, call, args);
+        });
+    }
+
+    private static <T> T wrap(Class<T> type, T target, BiFunction<Method, Object, Object> results) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> results.apply(method, invoke(target, method, args))));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // Only statements run on the counting thread are recorded, so scheduled jobs don't skew the result.
+    private static final class StatementCounter {
+
+        private final ThreadLocal<Boolean> counting = ThreadLocal.withInitial(() -> false);
+        private final AtomicInteger executed = new AtomicInteger();
+
+        <T> T count(Supplier<T> action) {
+            executed.set(0);
+            counting.set(true);
+            try {
+                return action.get();
+            } finally {
+                counting.set(false);
+            }
+        }
+
+        void record() {
+            if (counting.get()) {
+                executed.incrementAndGet();
+            }
+        }
+
+        int executed() {
+            return executed.get();
+        }
+    }
+}
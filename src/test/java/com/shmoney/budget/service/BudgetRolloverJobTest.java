@@ -0,0 +1,80 @@
+package com.shmoney.budget.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BudgetRolloverJobTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.parse("2026-04-01T00:10:00+05:00");
+    private static final OffsetDateTime MARCH_END = OffsetDateTime.parse("2026-03-31T23:59:59+05:00");
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private BudgetService budgetService;
+
+    private BudgetRolloverJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new BudgetRolloverJob(jdbcTemplate, transactionTemplate, budgetService);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void runShouldPageByPeriodEndAndIsolateBrokenBudgets() throws Exception {
+        List<SqlParameterSource> queries = new ArrayList<>();
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(1L, 2L);
+        when(rs.getObject("period_end", OffsetDateTime.class)).thenReturn(MARCH_END);
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> {
+                    queries.add(invocation.getArgument(1));
+                    if (queries.size() > 1) {
+                        return List.of();
+                    }
+                    RowMapper<?> mapper = invocation.getArgument(2);
+                    return List.of(mapper.mapRow(rs, 0), mapper.mapRow(rs, 1));
+                });
+        when(budgetService.rollOver(List.of(1L, 2L), NOW)).thenThrow(new IllegalStateException("broken"));
+        when(budgetService.rollOver(List.of(1L), NOW)).thenReturn(1);
+        when(budgetService.rollOver(List.of(2L), NOW)).thenThrow(new IllegalStateException("broken"));
+
+        job.run(NOW);
+
+        verify(budgetService, times(1)).rollOver(List.of(1L), NOW);
+        verify(budgetService, times(1)).rollOver(List.of(2L), NOW);
+        assertThat(queries).hasSize(2);
+        assertThat(queries.get(0).getValue("now")).isEqualTo(Timestamp.from(NOW.toInstant()));
+        assertThat(queries.get(1).getValue("afterId")).isEqualTo(2L);
+        assertThat(queries.get(1).getValue("afterPeriodEnd")).isEqualTo(Timestamp.from(MARCH_END.toInstant()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.shmoney.budget.service;
+
+import com.shmoney.budget.entity.Budget;
+import com.shmoney.budget.repository.BudgetRepository;
+import com.shmoney.budget.service.BudgetSpendingService.TransactionSnapshot;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.transaction.category.entity.CategoryTransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BudgetSpendingServiceTest {
+
+    private static final OffsetDateTime MARCH_8 = OffsetDateTime.parse("2026-03-08T12:00:00+05:00");
+    private static final ActiveBudgetIndex.BudgetWindow MARCH_BUDGET = new ActiveBudgetIndex.BudgetWindow(
+            11L, "KZT", OffsetDateTime.parse("2026-03-01T00:00:00+05:00"),
+            OffsetDateTime.parse("2026-03-31T23:59:59+05:00"));
+
+    @Mock
+    private BudgetRepository budgetRepository;
+    @Mock
+    private ExchangeRateService exchangeRateService;
+    @Mock
+    private EncryptedAmountAggregator amountAggregator;
+    @Mock
+    private ActiveBudgetIndex activeBudgetIndex;
+    @Mock
+    private BudgetSpentBuffer budgetSpentBuffer;
+
+    private BudgetSpendingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BudgetSpendingService(budgetRepository, exchangeRateService, amountAggregator,
+                activeBudgetIndex, budgetSpentBuffer);
+    }
+
+    @Test
+    void updateShouldBufferNetDeltaPerBudget() {
+        when(activeBudgetIndex.find(5L, 3L, MARCH_8)).thenReturn(List.of(MARCH_BUDGET));
+
+        service.handleTransactionUpdated(expense("100.00"), expense("150.00"));
+
+        ArgumentCaptor<Map<Long, BigDecimal>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(budgetSpentBuffer).append(deltas.capture());
+        assertThat(deltas.getValue()).containsOnlyKeys(11L);
+        assertThat(deltas.getValue().get(11L)).isEqualByComparingTo("50.00");
+        verifyNoInteractions(budgetRepository);
+    }
+
+    @Test
+    void updateShouldNetRevertBeforeZeroClampLikeRecalculation() {
+        when(activeBudgetIndex.find(5L, 3L, MARCH_8)).thenReturn(List.of(MARCH_BUDGET));
+
+        // Spent 20.00 is an expense of 50.00 less an income of 30.00; the expense is lowered to 30.00.
+        service.handleTransactionUpdated(expense("50.00"), expense("30.00"));
+
+        ArgumentCaptor<Map<Long, BigDecimal>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(budgetSpentBuffer).append(deltas.capture());
+        assertThat(deltas.getValue().get(11L)).isEqualByComparingTo("-20.00");
+        // A recalculation gives 30.00 - 30.00 = 0; clamping the revert first would have left 30.00.
+        assertThat(Budget.spentWithDelta(new BigDecimal("20.00"), deltas.getValue().get(11L)))
+                .isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void writeOutsideAnyBudgetShouldBufferNothing() {
+        when(activeBudgetIndex.find(5L, 3L, MARCH_8)).thenReturn(List.of());
+
+        service.handleTransactionUpdated(expense("100.00"), expense("150.00"));
+
+        verify(budgetSpentBuffer).append(Map.of());
+    }
+
+    private TransactionSnapshot expense(String amount) {
+        return new TransactionSnapshot(5L, 3L, new BigDecimal(amount), "KZT", MARCH_8,
+                CategoryTransactionType.EXPENSE);
+    }
+}
@@ -0,0 +1,141 @@
+package com.shmoney.budget.service;
+
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.common.crypto.EncryptionContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BudgetSpentBufferTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private BudgetSpentBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        EncryptionContext.initialize("budget-buffer-secret");
+        buffer = new BudgetSpentBuffer(jdbcTemplate, transactionTemplate);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void flushShouldFoldPendingDeltasIntoOneUpdatePerBudget() throws Exception {
+        ResultSet deltaRow = mock(ResultSet.class);
+        when(deltaRow.getLong("id")).thenReturn(1L, 2L, 3L);
+        when(deltaRow.getLong("budget_id")).thenReturn(11L);
+        when(deltaRow.getString("delta")).thenReturn(
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("50.00")),
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("-20.00")),
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("100.00")));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(deltaRow);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("SKIP LOCKED"), any(SqlParameterSource.class),
+                any(RowCallbackHandler.class));
+        ResultSet budgetRow = mock(ResultSet.class);
+        when(budgetRow.getLong("id")).thenReturn(11L);
+        when(budgetRow.getString("amount_limit"))
+                .thenReturn(EncryptedBigDecimalConverter.encryptValue(new BigDecimal("1000.00")));
+        when(budgetRow.getString("spent_amount"))
+                .thenReturn(EncryptedBigDecimalConverter.encryptValue(new BigDecimal("400.00")));
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(2).mapRow(budgetRow, 0)));
+
+        buffer.flush();
+
+        ArgumentCaptor<SqlParameterSource[]> updates = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE budgets"), updates.capture());
+        assertThat(updates.getValue()).hasSize(1);
+        assertThat(EncryptedBigDecimalConverter.decryptValue((String) updates.getValue()[0].getValue("spentAmount")))
+                .isEqualByComparingTo("530.00");
+        assertThat(updates.getValue()[0].getValue("percentSpent")).isEqualTo(new BigDecimal("53.00"));
+        ArgumentCaptor<SqlParameterSource> deleted = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(contains("DELETE FROM budget_spent_deltas"), deleted.capture());
+        assertThat(deleted.getValue().getValue("ids")).isEqualTo(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void flushShouldKeepDeltasOfBudgetsItCouldNotLock() throws Exception {
+        ResultSet deltaRow = mock(ResultSet.class);
+        when(deltaRow.getLong("id")).thenReturn(1L, 2L, 3L);
+        when(deltaRow.getLong("budget_id")).thenReturn(11L, 12L, 11L);
+        when(deltaRow.getString("delta")).thenReturn(
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("50.00")),
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("70.00")),
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("10.00")));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(deltaRow);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM budget_spent_deltas"), any(SqlParameterSource.class),
+                any(RowCallbackHandler.class));
+        ResultSet budgetRow = mock(ResultSet.class);
+        when(budgetRow.getLong("id")).thenReturn(11L);
+        when(budgetRow.getString("amount_limit"))
+                .thenReturn(EncryptedBigDecimalConverter.encryptValue(new BigDecimal("1000.00")));
+        when(budgetRow.getString("spent_amount"))
+                .thenReturn(EncryptedBigDecimalConverter.encryptValue(new BigDecimal("400.00")));
+        when(jdbcTemplate.query(contains("FOR NO KEY UPDATE SKIP LOCKED"), any(SqlParameterSource.class),
+                any(RowMapper.class)))
+                .thenAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(2).mapRow(budgetRow, 0)));
+
+        buffer.flush();
+
+        ArgumentCaptor<SqlParameterSource[]> updates = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE budgets"), updates.capture());
+        assertThat(updates.getValue()).singleElement().satisfies(update -> assertThat(
+                EncryptedBigDecimalConverter.decryptValue((String) update.getValue("spentAmount")))
+                .isEqualByComparingTo("460.00"));
+        ArgumentCaptor<SqlParameterSource> deleted = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(contains("DELETE FROM budget_spent_deltas"), deleted.capture());
+        assertThat(deleted.getValue().getValue("ids")).isEqualTo(List.of(1L, 3L));
+    }
+
+    @Test
+    void discardShouldLockBudgetBeforeDroppingItsDeltas() {
+        buffer.discard(11L);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).queryForList(contains("FROM budgets WHERE id = :budgetId FOR UPDATE"),
+                any(SqlParameterSource.class), eq(Long.class));
+        order.verify(jdbcTemplate).update(contains("DELETE FROM budget_spent_deltas WHERE budget_id"),
+                any(SqlParameterSource.class));
+    }
+}
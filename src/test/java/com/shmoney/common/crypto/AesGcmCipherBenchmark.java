@@ -0,0 +1,50 @@
+package com.shmoney.common.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AesGcmCipherBenchmark {
+
+    private AesGcmCipher cipher;
+    private String encrypted;
+    private String compactAmount;
+
+    @Setup
+    public void setUp() {
+        cipher = new AesGcmCipher(EncryptionKeyUtils.deriveKey("benchmark-secret"));
+        encrypted = cipher.encrypt("1250.75");
+        compactAmount = cipher.encryptAmount(new BigDecimal("1250.75"));
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return cipher.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public BigDecimal decryptAmount() {
+        return cipher.decryptAmount(compactAmount);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return cipher.encrypt("1250.75");
+    }
+}
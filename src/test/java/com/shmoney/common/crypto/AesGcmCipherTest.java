@@ -0,0 +1,102 @@
+package com.shmoney.common.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AesGcmCipherTest {
+
+    private final AesGcmCipher cipher = new AesGcmCipher(EncryptionKeyUtils.deriveKey("test-secret"));
+
+    @Test
+    void reusedCipherShouldRoundTripWithFreshIvs() {
+        String first = cipher.encrypt("1250.75");
+        String second = cipher.encrypt("1250.75");
+
+        assertThat(first).startsWith(AesGcmCipher.PREFIX).isNotEqualTo(second);
+        for (int i = 0; i < 100; i++) {
+            assertThat(cipher.decrypt(first)).isEqualTo("1250.75");
+            assertThat(cipher.decrypt(cipher.encrypt("value-" + i))).isEqualTo("value-" + i);
+        }
+    }
+
+    @Test
+    void compactFormatShouldRoundTripAmountsWithScale() {
+        for (String value : new String[]{"0.00", "1250.75", "-42.5", "92233720368547758.07", "7"}) {
+            BigDecimal amount = new BigDecimal(value);
+            String encrypted = cipher.encryptAmount(amount);
+
+            assertThat(cipher.isCompact(encrypted)).isTrue();
+            assertThat(encrypted).hasSize(51);
+            assertThat(cipher.decryptAmount(encrypted)).isEqualTo(amount);
+        }
+        assertThat(AesGcmCipher.supportsCompact(new BigDecimal("92233720368547758.08"))).isFalse();
+    }
+
+    @Test
+    void cipherShouldRecoverAfterTamperedInput() {
+        String encrypted = cipher.encrypt("42.00");
+        int position = AesGcmCipher.PREFIX.length() + 20;
+        char replacement = encrypted.charAt(position) == 'A' ? 'B' : 'A';
+        String tampered = encrypted.substring(0, position) + replacement + encrypted.substring(position + 1);
+
+        assertThatThrownBy(() -> cipher.decrypt(tampered)).isInstanceOf(IllegalStateException.class);
+        assertThat(cipher.decrypt(encrypted)).isEqualTo("42.00");
+    }
+
+    @Test
+    void reusedPayloadBufferShouldHandleValuesOfAnyLength() {
+        String small = cipher.encrypt("7");
+        String medium = cipher.encrypt("x".repeat(1_000));
+        String large = cipher.encrypt("y".repeat(10_000));
+
+        assertThat(cipher.decrypt(medium)).isEqualTo("x".repeat(1_000));
+        assertThat(cipher.decrypt(small)).isEqualTo("7");
+        assertThat(cipher.decrypt(large)).isEqualTo("y".repeat(10_000));
+        assertThat(cipher.decrypt(small)).isEqualTo("7");
+    }
+
+    @Test
+    void truncatedPayloadShouldNotReadStaleBufferContents() {
+        cipher.decrypt(cipher.encrypt("1250.75"));
+        cipher.decryptAmount(cipher.encryptAmount(new BigDecimal("1250.75")));
+
+        assertThatThrownBy(() -> cipher.decrypt(AesGcmCipher.PREFIX + "AAAA"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cipher.decryptAmount(AesGcmCipher.COMPACT_PREFIX + "IA"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void cipherShouldBeSafeAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String value = thread + "." + i;
+                        if (!value.equals(cipher.decrypt(cipher.encrypt(value)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
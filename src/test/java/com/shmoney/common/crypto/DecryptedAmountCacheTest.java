@@ -0,0 +1,55 @@
+package com.shmoney.common.crypto;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecryptedAmountCacheTest {
+
+    @BeforeEach
+    void setUp() {
+        EncryptionContext.initialize("cache-test-secret");
+    }
+
+    @AfterEach
+    void tearDown() {
+        DecryptedAmountCache.invalidateAll();
+    }
+
+    @Test
+    void repeatedDecryptionShouldBeServedFromCache() {
+        String ciphertext = EncryptedBigDecimalConverter.encryptValue(new BigDecimal("1250.75"));
+        long hitsBefore = DecryptedAmountCache.cache().stats().hitCount();
+
+        BigDecimal first = EncryptedBigDecimalConverter.decryptValue(ciphertext);
+        BigDecimal second = EncryptedBigDecimalConverter.decryptValue(ciphertext);
+
+        assertThat(first).isEqualByComparingTo("1250.75");
+        assertThat(second).isSameAs(first);
+        assertThat(DecryptedAmountCache.cache().stats().hitCount() - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void plaintextValuesShouldBypassCache() {
+        long sizeBefore = DecryptedAmountCache.cache().estimatedSize();
+
+        assertThat(EncryptedBigDecimalConverter.decryptValue("42.10")).isEqualByComparingTo("42.10");
+        assertThat(DecryptedAmountCache.cache().estimatedSize()).isEqualTo(sizeBefore);
+    }
+
+    @Test
+    void reinitializingKeyShouldDropCachedAmounts() {
+        String ciphertext = EncryptedBigDecimalConverter.encryptValue(new BigDecimal("7.00"));
+        EncryptedBigDecimalConverter.decryptValue(ciphertext);
+        DecryptedAmountCache.cache().cleanUp();
+        assertThat(DecryptedAmountCache.cache().getIfPresent(ciphertext)).isNotNull();
+
+        EncryptionContext.initialize("another-secret");
+
+        assertThat(DecryptedAmountCache.cache().getIfPresent(ciphertext)).isNull();
+    }
+}
@@ -0,0 +1,73 @@
+package com.shmoney.currency.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateCompactionJobTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ExchangeRateCompactionJob job;
+
+    @Test
+    void compactionShouldDeleteInBatchesUntilOnePartialBatch() {
+        ZoneId zone = ZoneId.of("Asia/Almaty");
+        when(jdbcTemplate.update(anyString(), any(SqlParameterSource.class)))
+                .thenReturn(5_000, 5_000, 120);
+
+        job.compactRates(zone);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, times(3)).update(sql.capture(), params.capture());
+        assertThat(sql.getValue()).contains("AT TIME ZONE :zone");
+        assertThat(params.getValue().getValue("zone")).isEqualTo("Asia/Almaty");
+        assertThat(params.getValue().getValue("cutoff")).isEqualTo(Timestamp.from(
+                LocalDate.now(zone).minusDays(30).atStartOfDay(zone).toInstant()));
+    }
+
+    @Test
+    void fixedOffsetShouldBePassedAsInterval() {
+        when(jdbcTemplate.update(anyString(), any(SqlParameterSource.class))).thenReturn(0);
+
+        job.compactRates(ZoneOffset.ofHours(5));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(sql.capture(), params.capture());
+        assertThat(sql.getValue()).contains("AT TIME ZONE CAST(:zone AS INTERVAL)");
+        assertThat(params.getValue().getValue("zone")).isEqualTo("18000 seconds");
+    }
+
+    @Test
+    void offsetRegionIdShouldBeNormalizedToInterval() {
+        when(jdbcTemplate.update(anyString(), any(SqlParameterSource.class))).thenReturn(0);
+
+        job.compactRates(ZoneId.of("UTC-03:00"));
+
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(anyString(), params.capture());
+        assertThat(params.getValue().getValue("zone")).isEqualTo("-10800 seconds");
+    }
+}
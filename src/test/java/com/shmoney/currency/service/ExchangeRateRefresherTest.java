@@ -0,0 +1,160 @@
+package com.shmoney.currency.service;
+
+import com.shmoney.currency.client.ExchangeRateClient;
+import com.shmoney.currency.entity.Currency;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateRefresherTest {
+
+    private static final String RATES_JSON = """
+            {"success": true, "base": "USD", "date": "2026-03-01", "rates": {"KZT": 500.12, "EUR": 0.91}}
+            """;
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private CurrencyService currencyService;
+
+    private HttpServer provider;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private ExchangeRateRefresher refresher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/latest", exchange -> {
+            requests.incrementAndGet();
+            sleep();
+            byte[] body = RATES_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        provider.start();
+
+        ExchangeRateClient client = new ExchangeRateClient(new RestTemplateBuilder(),
+                "http://localhost:" + provider.getAddress().getPort() + "/latest", "test-key");
+        refresher = new ExchangeRateRefresher(jdbcTemplate, transactionManager, currencyService, client);
+        lenient().when(currencyService.getActiveCurrencies())
+                .thenReturn(List.of(currency(1L, "EUR"), currency(2L, "KZT"), currency(3L, "USD")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.stop(0);
+    }
+
+    @Test
+    void concurrentRefreshesShouldShareOneProviderCall() throws Exception {
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ExchangeRateRefresher.RefreshedRates>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return refresher.refresh();
+                }));
+            }
+            start.countDown();
+            for (Future<ExchangeRateRefresher.RefreshedRates> result : results) {
+                assertThat(result.get().rates()).containsKeys("KZT", "EUR");
+            }
+        }
+
+        assertThat(requests).hasValue(1);
+        assertThat(refresher.generation()).isEqualTo(1);
+        ArgumentCaptor<SqlParameterSource[]> rows = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).hasSize(2);
+        assertThat(rows.getValue()[0].getValue("baseCurrencyId")).isEqualTo(3L);
+    }
+
+    @Test
+    void failedRefreshShouldNotBeReused() {
+        status = 500;
+
+        assertThatThrownBy(refresher::refresh).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(refresher::refresh).isInstanceOf(RuntimeException.class);
+
+        assertThat(requests).hasValue(2);
+        assertThat(refresher.generation()).isZero();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(SqlParameterSource[].class));
+    }
+
+    @Test
+    void prewarmShouldSkipWhileRatesAreFarFromExpiry() {
+        when(jdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class), eq(OffsetDateTime.class)))
+                .thenReturn(OffsetDateTime.now().minusHours(2));
+
+        refresher.prewarm();
+
+        assertThat(requests).hasValue(0);
+    }
+
+    @Test
+    void prewarmShouldRefreshShortlyBeforeExpiry() {
+        when(jdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class), eq(OffsetDateTime.class)))
+                .thenReturn(OffsetDateTime.now().minusHours(11).minusMinutes(30));
+
+        refresher.prewarm();
+
+        assertThat(requests).hasValue(1);
+    }
+
+    private Currency currency(Long id, String code) {
+        Currency currency = new Currency();
+        currency.setId(id);
+        currency.setCode(code);
+        currency.setActive(true);
+        return currency;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
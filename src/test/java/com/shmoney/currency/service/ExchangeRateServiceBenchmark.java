@@ -0,0 +1,119 @@
+package com.shmoney.currency.service;
+
+import com.shmoney.currency.client.ExchangeRateClient;
+import com.shmoney.currency.entity.Currency;
+import com.shmoney.currency.entity.ExchangeRate;
+import com.shmoney.currency.repository.ExchangeRateRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares converting through one {@link RateTable} snapshot with the old {@code convert -> getRate} path.
+ * The old path called getRate on itself, past the cache proxy, so every conversion resolved three currencies
+ * and two stored rates. Here mocks answer those lookups in memory, so its figure leaves out the database
+ * round trips and is a lower bound. The mocks are stub-only so they don't record the calls made while measuring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeRateServiceBenchmark {
+
+    private static final String[] CODES = {"USD", "EUR", "RUB", "KZT", "GBP", "CNY", "TRY", "GEL", "AMD", "UZS",
+            "JPY", "CHF", "AED", "THB", "BYN", "KGS", "PLN", "CZK", "SEK", "INR"};
+
+    private final BigDecimal amount = new BigDecimal("1250.75");
+    private ExchangeRateService service;
+    private RateTable table;
+
+    @Setup
+    public void setUp() {
+        ExchangeRateRepository exchangeRateRepository = stub(ExchangeRateRepository.class);
+        CurrencyService currencyService = stub(CurrencyService.class);
+        NamedParameterJdbcTemplate jdbcTemplate = stub(NamedParameterJdbcTemplate.class);
+        ExchangeRateRefresher exchangeRateRefresher = new ExchangeRateRefresher(jdbcTemplate,
+                stub(PlatformTransactionManager.class), currencyService, stub(ExchangeRateClient.class));
+        service = new ExchangeRateService(exchangeRateRepository, currencyService, exchangeRateRefresher,
+                jdbcTemplate);
+
+        Currency pivot = currency("USD");
+        List<Currency> currencies = new ArrayList<>();
+        List<ExchangeRate> rates = new ArrayList<>();
+        OffsetDateTime fetchedAt = OffsetDateTime.now();
+        for (int i = 0; i < CODES.length; i++) {
+            Currency currency = i == 0 ? pivot : currency(CODES[i]);
+            currencies.add(currency);
+            when(currencyService.getActiveByCode(CODES[i])).thenReturn(currency);
+            if (i == 0) {
+                continue;
+            }
+            ExchangeRate rate = new ExchangeRate();
+            rate.setBaseCurrency(pivot);
+            rate.setTargetCurrency(currency);
+            rate.setRate(BigDecimal.valueOf(i * 37L + 1, 2));
+            rate.setFetchedAt(fetchedAt);
+            rates.add(rate);
+            when(exchangeRateRepository
+                    .findTopByBaseCurrencyCodeIgnoreCaseAndTargetCurrencyCodeIgnoreCaseAndFetchedAtAfter(
+                            eq("USD"), eq(CODES[i]), any(OffsetDateTime.class)))
+                    .thenReturn(Optional.of(rate));
+        }
+        when(currencyService.getActiveCurrencies()).thenReturn(currencies);
+        when(exchangeRateRepository.findAllByBaseCurrencyCodeIgnoreCaseAndFetchedAtAfterOrderByFetchedAtDesc(
+                anyString(), any(OffsetDateTime.class))).thenReturn(rates);
+        table = service.snapshot();
+    }
+
+    @Benchmark
+    public BigDecimal snapshotConvert() {
+        return service.snapshot().convert(amount, "EUR", "KZT");
+    }
+
+    @Benchmark
+    public BigDecimal heldSnapshotConvert() {
+        return table.convert(amount, "EUR", "KZT");
+    }
+
+    @Benchmark
+    public BigDecimal getRateConvert() {
+        return amount.multiply(service.getRate("EUR", "KZT")).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    private static Currency currency(String code) {
+        Currency currency = new Currency();
+        currency.setCode(code);
+        currency.setActive(true);
+        return currency;
+    }
+}
@@ -0,0 +1,184 @@
+package com.shmoney.currency.service;
+
+import com.shmoney.currency.entity.Currency;
+import com.shmoney.currency.entity.ExchangeRate;
+import com.shmoney.currency.repository.ExchangeRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateServiceHistoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 11, 3);
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+    @Mock
+    private CurrencyService currencyService;
+    @Mock
+    private ExchangeRateRefresher exchangeRateRefresher;
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private ExchangeRateService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ExchangeRateService(exchangeRateRepository, currencyService, exchangeRateRefresher,
+                jdbcTemplate);
+    }
+
+    @Test
+    void pastDayShouldUseRatesStoredBeforeItStartedAndBeLoadedOnce() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("code")).thenReturn("KZT", "EUR");
+        when(rs.getBigDecimal("rate")).thenReturn(new BigDecimal("470.000000"), new BigDecimal("0.900000"));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(rs);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+        when(currencyService.getActiveCurrencies()).thenReturn(List.of(currency("EUR"), currency("KZT"),
+                currency("USD")));
+
+        RateTable first = service.snapshotAsOf(DAY);
+        RateTable second = service.snapshotAsOf(DAY);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.rate("USD", "KZT")).isEqualByComparingTo("470.000000");
+        assertThat(first.rate("EUR", "KZT")).isEqualByComparingTo("522.222222");
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, times(1)).query(anyString(), params.capture(), any(RowCallbackHandler.class));
+        assertThat(params.getValue().getValue("before")).isEqualTo(Timestamp.from(
+                DAY.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    }
+
+    @Test
+    void todayShouldNotFollowRefreshesDuringTheDay() throws Exception {
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        stubRates(Map.of("KZT", new BigDecimal("470.000000")), Map.of());
+        when(currencyService.getActiveCurrencies()).thenReturn(List.of(currency("KZT"), currency("USD")));
+
+        RateTable table = service.snapshotAsOf(today);
+
+        assertThat(service.snapshotAsOf(today)).isSameAs(table);
+        assertThat(table.rate("USD", "KZT")).isEqualByComparingTo("470.000000");
+        verify(exchangeRateRepository, never())
+                .findAllByBaseCurrencyCodeIgnoreCaseAndFetchedAtAfterOrderByFetchedAtDesc(any(), any());
+    }
+
+    @Test
+    void currencyFirstFetchedLaterShouldTakeClosingRateOfItsFirstDay() throws Exception {
+        LocalDate firstDay = DAY.plusDays(3);
+        Timestamp firstFetch = Timestamp.from(firstDay.atTime(9, 0).atZone(ZoneId.systemDefault()).toInstant());
+        Timestamp firstDayEnd = Timestamp.from(firstDay.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        stubRates(Map.of("KZT", new BigDecimal("470.000000")), Map.of("EUR", firstFetch));
+        when(currencyService.getActiveCurrencies()).thenReturn(List.of(currency("EUR"), currency("KZT"),
+                currency("USD")));
+        ResultSet closingRate = rateRow("EUR", new BigDecimal("0.900000"));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(closingRate);
+            return null;
+        }).when(jdbcTemplate).query(anyString(),
+                argThat((SqlParameterSource params) -> params != null && params.hasValue("before")
+                        && firstDayEnd.equals(params.getValue("before"))),
+                any(RowCallbackHandler.class));
+
+        RateTable table = service.snapshotAsOf(DAY);
+
+        assertThat(table.rate("USD", "EUR")).isEqualByComparingTo("0.900000");
+        assertThat(service.snapshotAsOf(DAY)).isSameAs(table);
+    }
+
+    @Test
+    void currencyNeverFetchedShouldFallBackToCurrentRate() throws Exception {
+        stubRates(Map.of("KZT", new BigDecimal("470.000000")), Map.of());
+        when(currencyService.getActiveByCode("USD")).thenReturn(currency("USD"));
+        when(currencyService.getActiveCurrencies()).thenReturn(List.of(currency("EUR"), currency("KZT"),
+                currency("USD")));
+        when(exchangeRateRepository.findAllByBaseCurrencyCodeIgnoreCaseAndFetchedAtAfterOrderByFetchedAtDesc(
+                eq("USD"), any())).thenReturn(List.of(rate("EUR", "0.800000"), rate("KZT", "470.000000")));
+
+        RateTable table = service.snapshotAsOf(DAY);
+
+        assertThat(table.rate("USD", "EUR")).isEqualByComparingTo("0.800000");
+        assertThat(table.rate("USD", "KZT")).isEqualByComparingTo("470.000000");
+    }
+
+    // Rates stored before a moment are answered by the first query, first fetches by the second.
+    private void stubRates(Map<String, BigDecimal> rates, Map<String, Timestamp> firstFetches) throws SQLException {
+        List<ResultSet> rateRows = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> entry : rates.entrySet()) {
+            rateRows.add(rateRow(entry.getKey(), entry.getValue()));
+        }
+        List<ResultSet> firstFetchRows = new ArrayList<>();
+        for (Map.Entry<String, Timestamp> entry : firstFetches.entrySet()) {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("code")).thenReturn(entry.getKey());
+            when(rs.getTimestamp("first_fetched_at")).thenReturn(entry.getValue());
+            firstFetchRows.add(rs);
+        }
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (ResultSet rs : sql.contains("first_fetched_at") ? firstFetchRows : rateRows) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    }
+
+    private ResultSet rateRow(String code, BigDecimal rate) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("code")).thenReturn(code);
+        when(rs.getBigDecimal("rate")).thenReturn(rate);
+        return rs;
+    }
+
+    private ExchangeRate rate(String targetCode, String value) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setTargetCurrency(currency(targetCode));
+        rate.setRate(new BigDecimal(value));
+        rate.setFetchedAt(OffsetDateTime.now());
+        return rate;
+    }
+
+    private Currency currency(String code) {
+        Currency currency = new Currency();
+        currency.setCode(code);
+        currency.setActive(true);
+        return currency;
+    }
+}
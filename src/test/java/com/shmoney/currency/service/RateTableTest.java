@@ -0,0 +1,47 @@
+package com.shmoney.currency.service;
+
+import com.shmoney.currency.exception.CurrencyNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateTableTest {
+
+    private static final OffsetDateTime VALID_UNTIL = OffsetDateTime.parse("2026-03-01T12:00:00Z");
+
+    private final RateTable table = new RateTable(Map.of(
+            "USD", new BigDecimal("1.000000"),
+            "KZT", new BigDecimal("500.000000"),
+            "EUR", new BigDecimal("0.800000")
+    ), VALID_UNTIL);
+
+    @Test
+    void crossRatesShouldMatchPivotDivision() {
+        assertThat(table.rate("USD", "KZT")).isEqualByComparingTo("500.000000");
+        assertThat(table.rate("KZT", "USD")).isEqualByComparingTo("0.002000");
+        assertThat(table.rate("EUR", "KZT")).isEqualByComparingTo("625.000000");
+        assertThat(table.rate("kzt", "kzt")).isEqualByComparingTo("1.000000");
+    }
+
+    @Test
+    void convertShouldRoundToAmountScale() {
+        assertThat(table.convert(new BigDecimal("10.005"), "EUR", "USD")).isEqualTo(new BigDecimal("12.51"));
+    }
+
+    @Test
+    void unknownCurrencyShouldBeRejected() {
+        assertThat(table.contains("GBP")).isFalse();
+        assertThatThrownBy(() -> table.rate("GBP", "USD")).isInstanceOf(CurrencyNotFoundException.class);
+    }
+
+    @Test
+    void tableShouldExpireAtValidUntil() {
+        assertThat(table.isExpired(VALID_UNTIL.minusSeconds(1))).isFalse();
+        assertThat(table.isExpired(VALID_UNTIL)).isTrue();
+    }
+}
@@ -1,6 +1,7 @@
 package com.shmoney.debt.service;
 
 import com.shmoney.auth.security.AuthenticatedUser;
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
 import com.shmoney.currency.entity.Currency;
 import com.shmoney.debt.dto.DebtForgiveRequest;
 import com.shmoney.debt.entity.DebtCounterparty;
@@ -10,7 +11,9 @@ import com.shmoney.debt.entity.DebtTransactionKind;
 import com.shmoney.debt.exception.InvalidDebtTransactionException;
 import com.shmoney.debt.repository.DebtCounterpartyRepository;
 import com.shmoney.debt.repository.DebtTransactionRepository;
-import com.shmoney.wallet.repository.WalletRepository;
+import com.shmoney.transaction.feed.TransactionFeedCountCache;
+import com.shmoney.transaction.feed.TransactionFeedWriter;
+import com.shmoney.wallet.service.WalletBalanceUpdater;
 import com.shmoney.wallet.service.WalletService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -40,9 +43,15 @@ class DebtTransactionServiceForgiveTest {
     @Mock
     private WalletService walletService;
     @Mock
-    private WalletRepository walletRepository;
+    private WalletBalanceUpdater balanceUpdater;
     @Mock
     private com.shmoney.currency.service.ExchangeRateService exchangeRateService;
+    @Mock
+    private TransactionFeedCountCache feedCountCache;
+    @Mock
+    private TransactionFeedWriter feedWriter;
+    @Mock
+    private EncryptedAmountAggregator amountAggregator;
 
     private DebtTransactionService service;
 
@@ -52,8 +61,11 @@ class DebtTransactionServiceForgiveTest {
                 transactionRepository,
                 counterpartyRepository,
                 walletService,
-                walletRepository,
-                exchangeRateService
+                balanceUpdater,
+                exchangeRateService,
+                feedCountCache,
+                feedWriter,
+                amountAggregator
         );
     }
 
@@ -83,7 +95,7 @@ class DebtTransactionServiceForgiveTest {
 
         assertThat(counterparty.getOwedToMe()).isEqualByComparingTo("0.00");
         assertThat(counterparty.getIOwe()).isEqualByComparingTo("0.00");
-        verify(walletRepository, never()).save(any());
+        verify(balanceUpdater, never()).applyDelta(any(), any(), any(), any());
     }
 
     @Test
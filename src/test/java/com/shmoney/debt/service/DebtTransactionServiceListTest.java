@@ -1,11 +1,14 @@
 package com.shmoney.debt.service;
 
+import com.shmoney.common.aggregation.EncryptedAmountAggregator;
 import com.shmoney.debt.dto.DebtTransactionFilter;
 import com.shmoney.debt.entity.DebtTransaction;
 import com.shmoney.debt.entity.DebtTransactionKind;
 import com.shmoney.debt.repository.DebtCounterpartyRepository;
 import com.shmoney.debt.repository.DebtTransactionRepository;
-import com.shmoney.wallet.repository.WalletRepository;
+import com.shmoney.transaction.feed.TransactionFeedCountCache;
+import com.shmoney.transaction.feed.TransactionFeedWriter;
+import com.shmoney.wallet.service.WalletBalanceUpdater;
 import com.shmoney.wallet.service.WalletService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -33,9 +36,15 @@ class DebtTransactionServiceListTest {
     @Mock
     private WalletService walletService;
     @Mock
-    private WalletRepository walletRepository;
+    private WalletBalanceUpdater balanceUpdater;
     @Mock
     private com.shmoney.currency.service.ExchangeRateService exchangeRateService;
+    @Mock
+    private TransactionFeedCountCache feedCountCache;
+    @Mock
+    private TransactionFeedWriter feedWriter;
+    @Mock
+    private EncryptedAmountAggregator amountAggregator;
 
     private DebtTransactionService service;
 
@@ -45,8 +54,11 @@ class DebtTransactionServiceListTest {
                 transactionRepository,
                 counterpartyRepository,
                 walletService,
-                walletRepository,
-                exchangeRateService
+                balanceUpdater,
+                exchangeRateService,
+                feedCountCache,
+                feedWriter,
+                amountAggregator
         );
     }
 
@@ -0,0 +1,223 @@
+package com.shmoney.settings.service;
+
+import com.shmoney.analytics.converter.CategoryBreakdownConverter;
+import com.shmoney.analytics.model.CategoryBreakdown;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.common.crypto.EncryptionContext;
+import com.shmoney.currency.service.ExchangeRateService;
+import com.shmoney.currency.service.RateTable;
+import com.shmoney.settings.entity.CurrencyChangeStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CurrencyChangeJobTest {
+
+    private static final LocalDate REQUEST_DAY = LocalDate.of(2026, 4, 10);
+    private static final LocalDate SUMMARY_DAY = LocalDate.of(2026, 3, 31);
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    private CurrencyChangeJob job;
+    private final CategoryBreakdownConverter breakdownConverter = new CategoryBreakdownConverter();
+
+    @BeforeEach
+    void setUp() {
+        EncryptionContext.initialize("currency-change-secret");
+        job = new CurrencyChangeJob(jdbcTemplate, transactionTemplate, exchangeRateService);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(jdbcTemplate.queryForObject(contains("FROM currencies"), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(2L);
+        lenient().when(exchangeRateService.snapshotAsOf(SUMMARY_DAY)).thenReturn(rates("500.000000"));
+        lenient().when(exchangeRateService.snapshotAsOf(REQUEST_DAY)).thenReturn(rates("520.000000"));
+    }
+
+    @Test
+    void changeShouldConvertEachRowAtItsDayRatesAndSwitchCurrency() throws Exception {
+        answerPages("FROM analytics_monthly_summary", summaryRow(7L), 1);
+        answerPages("FROM debt_counterparties", counterpartyRow(3L, "USD"), 1);
+
+        job.run(job(0L, 0L));
+
+        ArgumentCaptor<SqlParameterSource[]> summaries = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE analytics_monthly_summary"), summaries.capture());
+        SqlParameterSource summary = summaries.getValue()[0];
+        assertThat(summary.getValue("id")).isEqualTo(7L);
+        assertThat(decrypt(summary.getValue("totalExpense"))).isEqualByComparingTo("5000.00");
+        assertThat(decrypt(summary.getValue("totalIncome"))).isEqualByComparingTo("2000.00");
+        assertThat(decrypt(summary.getValue("cashFlowAmount"))).isEqualByComparingTo("-3000.00");
+        assertThat(breakdownConverter.convertToEntityAttribute((String) summary.getValue("expenseBreakdown")))
+                .singleElement()
+                .satisfies(entry -> assertThat(entry.amount()).isEqualByComparingTo("5000.00"));
+
+        ArgumentCaptor<SqlParameterSource[]> counterparties = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE debt_counterparties"), counterparties.capture());
+        assertThat(decrypt(counterparties.getValue()[0].getValue("owedToMe"))).isEqualByComparingTo("520.00");
+        assertThat(counterparties.getValue()[0].getValue("targetCurrencyId")).isEqualTo(2L);
+
+        verify(jdbcTemplate).update(contains("SET last_summary_id"), any(SqlParameterSource.class));
+        verify(jdbcTemplate).update(contains("SET last_counterparty_id"), any(SqlParameterSource.class));
+        verify(jdbcTemplate).update(contains("SET main_currency"), any(SqlParameterSource.class));
+        assertFinished(CurrencyChangeStatus.COMPLETED);
+    }
+
+    @Test
+    void failureAfterConvertedPagesShouldKeepJobRunningForResume() throws Exception {
+        answerPages("FROM analytics_monthly_summary", summaryRow(7L), 1);
+        answerPages("FROM debt_counterparties", counterpartyRow(3L, "EUR"), 1);
+        when(jdbcTemplate.queryForObject(contains("SELECT processed_rows"), any(SqlParameterSource.class),
+                eq(Integer.class))).thenReturn(1);
+
+        job.run(job(0L, 0L));
+
+        verify(jdbcTemplate).update(contains("SET last_summary_id"), any(SqlParameterSource.class));
+        ArgumentCaptor<SqlParameterSource> error = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(contains("SET error"), error.capture());
+        assertThat(error.getValue().getValue("jobId")).isEqualTo(5L);
+        assertThat((String) error.getValue().getValue("error")).contains("EUR");
+        verify(jdbcTemplate, never()).update(contains("pending_main_currency = NULL"), any(SqlParameterSource.class));
+        verify(jdbcTemplate, never()).update(contains("SET status = :status"), any(SqlParameterSource.class));
+    }
+
+    @Test
+    void failureBeforeAnyConversionShouldFailAndKeepMainCurrency() throws Exception {
+        answerPages("FROM analytics_monthly_summary", summaryRow(7L), 0);
+        answerPages("FROM debt_counterparties", counterpartyRow(3L, "EUR"), 1);
+        when(jdbcTemplate.queryForObject(contains("SELECT processed_rows"), any(SqlParameterSource.class),
+                eq(Integer.class))).thenReturn(0);
+
+        job.run(job(0L, 0L));
+
+        verify(jdbcTemplate, never()).update(contains("SET main_currency"), any(SqlParameterSource.class));
+        verify(jdbcTemplate).update(contains("pending_main_currency = NULL"), any(SqlParameterSource.class));
+        assertFinished(CurrencyChangeStatus.FAILED);
+    }
+
+    @Test
+    void resumedJobShouldContinueFromRecordedPositionAtRequestDayRates() throws Exception {
+        answerPages("FROM analytics_monthly_summary", summaryRow(7L), 0);
+        answerPages("FROM debt_counterparties", counterpartyRow(12L, "USD"), 1);
+
+        job.run(job(7L, 11L));
+
+        ArgumentCaptor<SqlParameterSource> summaryPages = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, times(2)).query(contains("FROM analytics_monthly_summary"), summaryPages.capture(),
+                any(RowCallbackHandler.class));
+        assertThat(summaryPages.getAllValues()).extracting(params -> params.getValue("afterId"))
+                .containsExactly(7L, 0L);
+        ArgumentCaptor<SqlParameterSource> counterpartyPages = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, times(3)).query(contains("FROM debt_counterparties"), counterpartyPages.capture(),
+                any(RowCallbackHandler.class));
+        assertThat(counterpartyPages.getAllValues()).extracting(params -> params.getValue("afterId"))
+                .containsExactly(11L, 12L, 0L);
+
+        ArgumentCaptor<SqlParameterSource[]> counterparties = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE debt_counterparties"), counterparties.capture());
+        assertThat(decrypt(counterparties.getValue()[0].getValue("owedToMe"))).isEqualByComparingTo("520.00");
+        verify(jdbcTemplate, never()).batchUpdate(contains("UPDATE analytics_monthly_summary"),
+                any(SqlParameterSource[].class));
+        verify(exchangeRateService, never()).snapshot();
+        assertFinished(CurrencyChangeStatus.COMPLETED);
+    }
+
+    private CurrencyChangeJob.JobState job(long lastSummaryId, long lastCounterpartyId) {
+        OffsetDateTime createdAt = REQUEST_DAY.atTime(9, 0).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+        return new CurrencyChangeJob.JobState(5L, "USD", "KZT", CurrencyChangeStatus.RUNNING, 2, 0, lastSummaryId,
+                lastCounterpartyId, createdAt, null, null);
+    }
+
+    // The first call for the table returns the given number of rows, every later call an empty page.
+    private void answerPages(String table, ResultSet row, int firstPageRows) {
+        AtomicInteger calls = new AtomicInteger();
+        lenient().doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            int rows = calls.getAndIncrement() == 0 ? firstPageRows : 0;
+            for (int i = 0; i < rows; i++) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains(table), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    }
+
+    private ResultSet summaryRow(long id) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        lenient().when(rs.getLong("id")).thenReturn(id);
+        lenient().when(rs.getObject("period_end", OffsetDateTime.class)).thenReturn(
+                SUMMARY_DAY.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toOffsetDateTime());
+        lenient().when(rs.getString("currency_code")).thenReturn("USD");
+        lenient().when(rs.getString("total_expense")).thenReturn(encrypt("10.00"));
+        lenient().when(rs.getString("total_income")).thenReturn(encrypt("4.00"));
+        lenient().when(rs.getString("expense_breakdown")).thenReturn(breakdownConverter.convertToDatabaseColumn(
+                List.of(new CategoryBreakdown(3L, "Food", null, null, new BigDecimal("10.00"), 2))));
+        return rs;
+    }
+
+    private ResultSet counterpartyRow(long id, String currency) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        lenient().when(rs.getLong("id")).thenReturn(id);
+        lenient().when(rs.getString("currency_code")).thenReturn(currency);
+        lenient().when(rs.getString("owed_to_me")).thenReturn(encrypt("1.00"));
+        lenient().when(rs.getString("i_owe")).thenReturn(encrypt("0.00"));
+        return rs;
+    }
+
+    private void assertFinished(CurrencyChangeStatus status) {
+        ArgumentCaptor<SqlParameterSource> finish = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).update(contains("SET status = :status"), finish.capture());
+        assertThat(finish.getValue().getValue("status")).isEqualTo(status.name());
+    }
+
+    private RateTable rates(String kztPerUsd) {
+        return new RateTable(Map.of("USD", BigDecimal.ONE, "KZT", new BigDecimal(kztPerUsd)), null);
+    }
+
+    private String encrypt(String amount) {
+        return EncryptedBigDecimalConverter.encryptValue(new BigDecimal(amount));
+    }
+
+    private BigDecimal decrypt(Object value) {
+        return EncryptedBigDecimalConverter.decryptValue((String) value);
+    }
+}
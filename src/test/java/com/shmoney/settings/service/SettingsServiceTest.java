@@ -0,0 +1,98 @@
+package com.shmoney.settings.service;
+
+import com.shmoney.currency.entity.Currency;
+import com.shmoney.currency.service.CurrencyService;
+import com.shmoney.settings.dto.AppSettingsResponse;
+import com.shmoney.settings.dto.CurrencyChangeProgressResponse;
+import com.shmoney.settings.dto.UpdateAppSettingsRequest;
+import com.shmoney.settings.entity.AppSettings;
+import com.shmoney.settings.entity.CurrencyChangeStatus;
+import com.shmoney.settings.repository.AppSettingsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SettingsServiceTest {
+
+    @Mock
+    private AppSettingsRepository appSettingsRepository;
+    @Mock
+    private CurrencyService currencyService;
+    @Mock
+    private AppSettingsProvider appSettingsProvider;
+    @Mock
+    private CurrencyChangeJob currencyChangeJob;
+
+    private SettingsService service;
+    private AppSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        service = new SettingsService(appSettingsRepository, currencyService, appSettingsProvider, currencyChangeJob);
+        settings = new AppSettings();
+        settings.setDefaultLanguage("ru");
+        settings.setMainCurrency("KZT");
+        lenient().when(appSettingsProvider.getOrCreate()).thenReturn(settings);
+        lenient().when(currencyService.getActiveCurrencies()).thenReturn(List.of());
+        Currency usd = new Currency();
+        usd.setCode("USD");
+        lenient().when(currencyService.getActiveByCode("USD")).thenReturn(usd);
+    }
+
+    @Test
+    void currencyChangeShouldBeScheduledAndKeepCurrentCurrency() {
+        when(currencyChangeJob.findActive()).thenReturn(Optional.empty());
+
+        AppSettingsResponse response = service.updateSettings(new UpdateAppSettingsRequest(null, "usd"));
+
+        verify(currencyChangeJob).schedule("KZT", "USD");
+        verify(appSettingsRepository).save(settings);
+        assertThat(response.mainCurrency()).isEqualTo("KZT");
+        assertThat(response.pendingMainCurrency()).isEqualTo("USD");
+    }
+
+    @Test
+    void currencyChangeShouldBeRejectedWhileAnotherIsRunning() {
+        when(currencyChangeJob.findActive()).thenReturn(Optional.of(progress(CurrencyChangeStatus.RUNNING)));
+
+        assertThatThrownBy(() -> service.updateSettings(new UpdateAppSettingsRequest(null, "USD")))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.CONFLICT));
+        verify(currencyChangeJob, never()).schedule(any(), any());
+        verify(appSettingsRepository, never()).save(any());
+    }
+
+    @Test
+    void sameCurrencyShouldNotScheduleChange() {
+        Currency kzt = new Currency();
+        kzt.setCode("KZT");
+        when(currencyService.getActiveByCode("KZT")).thenReturn(kzt);
+
+        service.updateSettings(new UpdateAppSettingsRequest(null, "kzt"));
+
+        verify(currencyChangeJob, never()).schedule(any(), any());
+        assertThat(settings.getPendingMainCurrency()).isNull();
+    }
+
+    private CurrencyChangeProgressResponse progress(CurrencyChangeStatus status) {
+        return new CurrencyChangeProgressResponse(1L, "KZT", "EUR", status, 10, 4, OffsetDateTime.now(), null, null);
+    }
+}
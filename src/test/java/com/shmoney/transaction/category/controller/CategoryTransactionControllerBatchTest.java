@@ -0,0 +1,95 @@
+package com.shmoney.transaction.category.controller;
+
+import com.shmoney.auth.security.AuthenticatedUser;
+import com.shmoney.auth.security.CurrentUserProvider;
+import com.shmoney.transaction.category.dto.CategoryTransactionMapper;
+import com.shmoney.transaction.category.entity.CategoryTransaction;
+import com.shmoney.transaction.category.service.CategoryTransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryTransactionControllerBatchTest {
+
+    private static final String ITEM = """
+            {"walletId": 10, "categoryId": 3, "type": "EXPENSE", "amount": 12.50,
+             "occurredAt": "2026-04-10T12:30:15+05:00", "description": "Coffee"}
+            """;
+
+    @Mock
+    private CategoryTransactionService transactionService;
+    @Mock
+    private CategoryTransactionMapper mapper;
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new CategoryTransactionController(transactionService, mapper, currentUserProvider)).build();
+    }
+
+    @Test
+    void importShouldReturnCreatedIds() throws Exception {
+        AuthenticatedUser user = new AuthenticatedUser(1L, "user");
+        when(currentUserProvider.requireCurrentUser()).thenReturn(user);
+        when(transactionService.createBatch(any(), anyList())).thenReturn(List.of(transaction(101L), transaction(102L)));
+
+        mockMvc.perform(post("/api/category-transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(2)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.ids[1]").value(102));
+    }
+
+    @Test
+    void emptyImportShouldBeRejected() throws Exception {
+        mockMvc.perform(post("/api/category-transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(0)))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).createBatch(any(), any());
+    }
+
+    @Test
+    void importAboveLimitShouldBeRejected() throws Exception {
+        mockMvc.perform(post("/api/category-transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(2001)))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).createBatch(any(), any());
+    }
+
+    private String body(int items) {
+        return "{\"transactions\": [" + String.join(",", Collections.nCopies(items, ITEM)) + "]}";
+    }
+
+    private CategoryTransaction transaction(Long id) {
+        CategoryTransaction transaction = new CategoryTransaction();
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,178 @@
+package com.shmoney.transaction.category.service;
+
+import com.shmoney.analytics.service.AnalyticsService;
+import com.shmoney.auth.security.AuthenticatedUser;
+import com.shmoney.budget.service.BudgetSpendingService;
+import com.shmoney.category.entity.Category;
+import com.shmoney.category.exception.CategoryNotFoundException;
+import com.shmoney.category.service.CategoryService;
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.common.crypto.EncryptionContext;
+import com.shmoney.currency.entity.Currency;
+import com.shmoney.transaction.category.dto.CategoryTransactionCreateRequest;
+import com.shmoney.transaction.category.entity.CategoryTransaction;
+import com.shmoney.transaction.category.entity.CategoryTransactionType;
+import com.shmoney.transaction.category.exception.InvalidCategoryTransactionException;
+import com.shmoney.transaction.category.repository.CategoryTransactionBatchRepository;
+import com.shmoney.transaction.category.repository.CategoryTransactionRepository;
+import com.shmoney.transaction.feed.TransactionFeedCountCache;
+import com.shmoney.transaction.feed.TransactionFeedWriter;
+import com.shmoney.user.entity.User;
+import com.shmoney.wallet.entity.Wallet;
+import com.shmoney.wallet.ledger.WalletLedgerEntrySource;
+import com.shmoney.wallet.service.WalletBalanceUpdater;
+import com.shmoney.wallet.service.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryTransactionServiceBatchTest {
+
+    private static final AuthenticatedUser CURRENT_USER = new AuthenticatedUser(1L, "user");
+    private static final OffsetDateTime OCCURRED_AT = OffsetDateTime.parse("2026-04-10T12:30:15.5+05:00");
+
+    @Mock
+    private CategoryTransactionRepository transactionRepository;
+    @Mock
+    private CategoryTransactionBatchRepository batchRepository;
+    @Mock
+    private WalletService walletService;
+    @Mock
+    private WalletBalanceUpdater balanceUpdater;
+    @Mock
+    private CategoryService categoryService;
+    @Mock
+    private BudgetSpendingService budgetSpendingService;
+    @Mock
+    private AnalyticsService analyticsService;
+    @Mock
+    private TransactionFeedCountCache feedCountCache;
+    @Mock
+    private TransactionFeedWriter feedWriter;
+
+    private CategoryTransactionService service;
+    private final Wallet cash = wallet(10L, 1L);
+    private final Wallet card = wallet(11L, 1L);
+
+    @BeforeEach
+    void setUp() {
+        EncryptionContext.initialize("category-batch-secret");
+        service = new CategoryTransactionService(transactionRepository, batchRepository, walletService, balanceUpdater,
+                categoryService, budgetSpendingService, analyticsService, feedCountCache, feedWriter);
+        lenient().when(walletService.getById(10L)).thenReturn(cash);
+        lenient().when(walletService.getById(11L)).thenReturn(card);
+        lenient().when(categoryService.getOwnedCategories(Set.of(3L, 4L), 1L))
+                .thenReturn(Map.of(3L, category(3L), 4L, category(4L)));
+    }
+
+    @Test
+    void importShouldInsertRowsWithAllocatedIdsAndApplySideEffectsOnce() {
+        when(batchRepository.allocateIds(3)).thenReturn(List.of(101L, 102L, 103L));
+
+        List<CategoryTransaction> created = service.createBatch(CURRENT_USER, List.of(
+                request(10L, 3L, CategoryTransactionType.EXPENSE, "100.00", "  Coffee "),
+                request(11L, 4L, CategoryTransactionType.EXPENSE, "5.00", null),
+                request(10L, 4L, CategoryTransactionType.INCOME, "30.005", null)));
+
+        assertThat(created).extracting(CategoryTransaction::getId).containsExactly(101L, 102L, 103L);
+        assertThat(created).extracting(transaction -> transaction.getWallet().getId()).containsExactly(10L, 11L, 10L);
+        assertThat(created.get(0).getDescription()).isEqualTo("Coffee");
+        assertThat(created.get(2).getAmount()).isEqualTo(new BigDecimal("30.01"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CategoryTransaction>> inserted = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<String[]> rowAmounts = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<String[]> feedAmounts = ArgumentCaptor.forClass(String[].class);
+        verify(batchRepository).insertAll(inserted.capture(), rowAmounts.capture());
+        verify(feedWriter).upsertAll(eq(created), feedAmounts.capture());
+        assertThat(inserted.getValue()).isEqualTo(created);
+        assertThat(feedAmounts.getValue()).isSameAs(rowAmounts.getValue());
+        assertThat(rowAmounts.getValue()).extracting(EncryptedBigDecimalConverter::decryptValue)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("5.00"), new BigDecimal("30.01"));
+
+        verify(balanceUpdater).applyDelta(cash, new BigDecimal("-69.99"), WalletLedgerEntrySource.CATEGORY_TRANSACTION,
+                null);
+        verify(balanceUpdater).applyDelta(card, new BigDecimal("-5.00"), WalletLedgerEntrySource.CATEGORY_TRANSACTION,
+                null);
+        verify(balanceUpdater, times(2)).applyDelta(any(), any(), any(), any());
+        verify(budgetSpendingService).handleTransactionsCreated(anyList());
+        verify(budgetSpendingService, never()).handleTransactionCreated(any());
+        verify(analyticsService).handleTransactionsCreated(eq(1L), anyList());
+        verify(feedCountCache).evict(1L);
+    }
+
+    @Test
+    void foreignWalletAnywhereInBatchShouldRejectWholeImport() {
+        when(walletService.getById(12L)).thenReturn(wallet(12L, 2L));
+
+        assertThatThrownBy(() -> service.createBatch(CURRENT_USER, List.of(
+                request(10L, 3L, CategoryTransactionType.EXPENSE, "100.00", null),
+                request(12L, 3L, CategoryTransactionType.EXPENSE, "5.00", null))))
+                .isInstanceOf(InvalidCategoryTransactionException.class);
+
+        verify(batchRepository, never()).allocateIds(anyInt());
+        verify(batchRepository, never()).insertAll(any(), any());
+        verify(balanceUpdater, never()).applyDelta(any(), any(), any(), any());
+    }
+
+    @Test
+    void foreignCategoryAnywhereInBatchShouldRejectWholeImport() {
+        when(categoryService.getOwnedCategories(Set.of(3L, 9L), 1L)).thenThrow(new CategoryNotFoundException(9L));
+
+        assertThatThrownBy(() -> service.createBatch(CURRENT_USER, List.of(
+                request(10L, 3L, CategoryTransactionType.EXPENSE, "100.00", null),
+                request(10L, 9L, CategoryTransactionType.EXPENSE, "5.00", null))))
+                .isInstanceOf(CategoryNotFoundException.class);
+
+        verify(batchRepository, never()).insertAll(any(), any());
+        verify(feedWriter, never()).upsertAll(any(), any());
+        verify(budgetSpendingService, never()).handleTransactionsCreated(any());
+    }
+
+    private CategoryTransactionCreateRequest request(Long walletId, Long categoryId, CategoryTransactionType type,
+                                                     String amount, String description) {
+        return new CategoryTransactionCreateRequest(walletId, categoryId, type, new BigDecimal(amount), OCCURRED_AT,
+                description);
+    }
+
+    private Wallet wallet(Long id, Long ownerId) {
+        User owner = new User();
+        owner.setId(ownerId);
+        Currency currency = new Currency();
+        currency.setId(1L);
+        currency.setCode("KZT");
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setOwner(owner);
+        wallet.setCurrency(currency);
+        return wallet;
+    }
+
+    private Category category(Long id) {
+        Category category = new Category();
+        category.setId(id);
+        return category;
+    }
+}
@@ -0,0 +1,100 @@
+package com.shmoney.transaction.feed;
+
+import com.shmoney.common.crypto.EncryptedBigDecimalConverter;
+import com.shmoney.common.crypto.EncryptionContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionFeedConsistencyCheckerTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private TransactionFeedConsistencyChecker checker;
+
+    @BeforeEach
+    void setUp() {
+        EncryptionContext.initialize("feed-consistency-secret");
+        checker = new TransactionFeedConsistencyChecker(jdbcTemplate);
+    }
+
+    @Test
+    void reconcileShouldInsertDeleteAndRepairDriftedRows() throws Exception {
+        when(jdbcTemplate.update(argThat((String sql) -> sql != null && sql.startsWith("INSERT")),
+                any(SqlParameterSource.class))).thenReturn(2);
+        when(jdbcTemplate.update(contains("DELETE FROM transaction_feed_entries"), any(SqlParameterSource.class)))
+                .thenReturn(1);
+        String amount = EncryptedBigDecimalConverter.encryptValue(new BigDecimal("10.00"));
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBoolean("columns_match")).thenReturn(true, true, false);
+        when(rs.getString("entry_source")).thenReturn("CATEGORY", "DEBT");
+        when(rs.getLong("entry_id")).thenReturn(2L, 3L);
+        when(rs.getString("source_amount")).thenReturn(amount,
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("10.50")));
+        when(rs.getString("entry_amount")).thenReturn(
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("10.00")), amount);
+        answerCompareRows(rs, 3);
+
+        TransactionFeedConsistencyChecker.ReconcileResult result = checker.reconcileUser(1L);
+
+        assertThat(result).isEqualTo(new TransactionFeedConsistencyChecker.ReconcileResult(2, 1, 2));
+        ArgumentCaptor<SqlParameterSource[]> repaired = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (entry_source, entry_id) DO UPDATE"),
+                repaired.capture());
+        assertThat(repaired.getValue()).hasSize(2);
+        assertThat(repaired.getValue()[0].getValue("entrySource")).isEqualTo("CATEGORY");
+        assertThat(repaired.getValue()[0].getValue("entryId")).isEqualTo(2L);
+        assertThat(repaired.getValue()[1].getValue("entrySource")).isEqualTo("DEBT");
+        assertThat(repaired.getValue()[1].getValue("entryId")).isEqualTo(3L);
+    }
+
+    @Test
+    void consistentFeedShouldNotBeRewritten() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBoolean("columns_match")).thenReturn(true);
+        when(rs.getString("source_amount")).thenReturn("25.00");
+        when(rs.getString("entry_amount")).thenReturn(
+                EncryptedBigDecimalConverter.encryptValue(new BigDecimal("25.00")));
+        answerCompareRows(rs, 1);
+
+        TransactionFeedConsistencyChecker.ReconcileResult result = checker.reconcileUser(1L);
+
+        assertThat(result).isEqualTo(new TransactionFeedConsistencyChecker.ReconcileResult(0, 0, 0));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(SqlParameterSource[].class));
+    }
+
+    private void answerCompareRows(ResultSet rs, int rows) {
+        doAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(2);
+            List<Object> mapped = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                mapped.add(mapper.mapRow(rs, i));
+            }
+            return mapped;
+        }).when(jdbcTemplate).query(contains("columns_match"), any(SqlParameterSource.class), any(RowMapper.class));
+    }
+}
@@ -0,0 +1,33 @@
+package com.shmoney.transaction.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionFeedCountCacheTest {
+
+    private final TransactionFeedCountCache cache = new TransactionFeedCountCache();
+
+    @Test
+    void countShouldBeServedFromCacheUntilEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get(1L, "key", () -> 10L + loads.incrementAndGet())).isEqualTo(11L);
+        assertThat(cache.get(1L, "key", () -> 10L + loads.incrementAndGet())).isEqualTo(11L);
+        cache.evict(1L);
+        assertThat(cache.get(1L, "key", () -> 10L + loads.incrementAndGet())).isEqualTo(12L);
+    }
+
+    @Test
+    void countLoadedAcrossAnEvictionShouldNotBeCached() {
+        long stale = cache.get(1L, "key", () -> {
+            cache.evict(1L);
+            return 5L;
+        });
+
+        assertThat(stale).isEqualTo(5L);
+        assertThat(cache.get(1L, "key", () -> 6L)).isEqualTo(6L);
+    }
+}
@@ -0,0 +1,66 @@
+package com.shmoney.transaction.feed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionFeedServiceTest {
+
+    @Mock
+    private TransactionFeedRepository repository;
+    @Mock
+    private TransactionFeedCountCache countCache;
+
+    private TransactionFeedService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionFeedService(repository, countCache);
+        when(repository.fetch(eq(1L), any(), anyInt(), anyInt(), isNull()))
+                .thenReturn(new TransactionFeedRepository.PagedFeedResult(0, 20, List.of(), false, null));
+        when(countCache.get(eq(1L), anyString(), any())).thenReturn(0L);
+    }
+
+    @Test
+    void relativePeriodShouldBeCountedUnderItsResolvedRange() {
+        service.getFeed(1L, null, null, null, null, null, null, null, TransactionFeedPeriod.TODAY, 0, 20, null, true);
+
+        ArgumentCaptor<TransactionFeedFilter> filter = ArgumentCaptor.forClass(TransactionFeedFilter.class);
+        verify(repository).fetch(eq(1L), filter.capture(), anyInt(), anyInt(), isNull());
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(countCache).get(eq(1L), key.capture(), any());
+        OffsetDateTime from = filter.getValue().from();
+        assertThat(from).isEqualTo(from.truncatedTo(ChronoUnit.DAYS));
+        assertThat(key.getValue()).endsWith("TODAY@" + from + ".."
+                + filter.getValue().to().truncatedTo(ChronoUnit.MINUTES));
+    }
+
+    @Test
+    void explicitRangeShouldBeCountedUnderExactBounds() {
+        OffsetDateTime from = OffsetDateTime.parse("2026-04-01T00:00:00+05:00");
+        OffsetDateTime to = OffsetDateTime.parse("2026-04-10T12:30:15.5+05:00");
+
+        service.getFeed(1L, null, List.of(7L, 3L, 7L), null, null, null, from, to, null, 0, 20, null, true);
+
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(countCache).get(eq(1L), key.capture(), any());
+        assertThat(key.getValue()).contains("[3, 7]").endsWith(from + ".." + to);
+    }
+}
@@ -0,0 +1,51 @@
+package com.shmoney.wallet.ledger;
+
+import com.shmoney.wallet.exception.WalletBalanceHistoryUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletLedgerTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private WalletLedger walletLedger;
+
+    @Test
+    void balanceBeforeFirstCheckpointShouldBeRejectedWithHistoryStart() {
+        Instant historyStart = Instant.parse("2026-03-01T10:15:30Z");
+        when(jdbcTemplate.query(contains("created_at <= :at"), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(contains("MIN(created_at)"), any(SqlParameterSource.class),
+                eq(Timestamp.class))).thenReturn(Timestamp.from(historyStart));
+
+        assertThatThrownBy(() -> walletLedger.balanceAt(7L, OffsetDateTime.parse("2026-02-01T00:00:00Z")))
+                .isInstanceOf(WalletBalanceHistoryUnavailableException.class)
+                .hasMessage("История баланса кошелька доступна начиная с 2026-03-01T10:15:30Z");
+        verify(jdbcTemplate, never()).query(anyString(), any(SqlParameterSource.class),
+                any(RowCallbackHandler.class));
+    }
+}
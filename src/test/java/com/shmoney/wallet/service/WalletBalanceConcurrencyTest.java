@@ -0,0 +1,201 @@
+package com.shmoney.wallet.service;
+
+import com.shmoney.currency.entity.Currency;
+import com.shmoney.currency.repository.CurrencyRepository;
+import com.shmoney.user.entity.User;
+import com.shmoney.user.repository.UserRepository;
+import com.shmoney.wallet.entity.Wallet;
+import com.shmoney.wallet.exception.WalletBalanceHistoryUnavailableException;
+import com.shmoney.wallet.ledger.WalletLedger;
+import com.shmoney.wallet.ledger.WalletLedgerEntrySource;
+import com.shmoney.wallet.repository.WalletRepository;
+import com.shmoney.wallet.transaction.service.WalletTransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class WalletBalanceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 40;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("app.encryption.key", () -> "wallet-concurrency-test-key");
+    }
+
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CurrencyRepository currencyRepository;
+    @Autowired
+    private WalletTransactionService walletTransactionService;
+    @Autowired
+    private WalletService walletService;
+    @Autowired
+    private WalletBalanceUpdater balanceUpdater;
+    @Autowired
+    private WalletLedger walletLedger;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentWritesAndCompactionShouldKeepBalancesExact() throws Exception {
+        User owner = new User();
+        owner.setTelegramUserId(System.nanoTime());
+        owner.setTelegramUsername("concurrency");
+        owner = userRepository.save(owner);
+        Currency usd = currencyRepository.findByCodeIgnoreCase("USD").orElseThrow();
+        Long first = createWallet(owner, usd, "First").getId();
+        Long second = createWallet(owner, usd, "Second").getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            Future<?> compactor = executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    walletLedger.compact(first);
+                    walletLedger.compact(second);
+                }
+                return null;
+            });
+            for (int thread = 0; thread < THREADS; thread++) {
+                boolean forward = thread % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        Wallet from = walletRepository.findById(forward ? first : second).orElseThrow();
+                        Wallet to = walletRepository.findById(forward ? second : first).orElseThrow();
+                        walletTransactionService.create(from, to, forward ? new BigDecimal("1.00") : new BigDecimal("2.00"),
+                                OffsetDateTime.now(), null);
+                        transactionTemplate.executeWithoutResult(status -> balanceUpdater.applyDelta(
+                                walletRepository.findById(first).orElseThrow(), new BigDecimal("-0.25"),
+                                WalletLedgerEntrySource.ADJUSTMENT, null));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            compactor.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int perDirection = THREADS / 2 * ITERATIONS;
+        BigDecimal expectedFirst = new BigDecimal("1000.00")
+                .subtract(new BigDecimal("1.00").multiply(BigDecimal.valueOf(perDirection)))
+                .add(new BigDecimal("2.00").multiply(BigDecimal.valueOf(perDirection)))
+                .subtract(new BigDecimal("0.25").multiply(BigDecimal.valueOf((long) THREADS * ITERATIONS)));
+        BigDecimal expectedSecond = new BigDecimal("1000.00")
+                .add(new BigDecimal("1.00").multiply(BigDecimal.valueOf(perDirection)))
+                .subtract(new BigDecimal("2.00").multiply(BigDecimal.valueOf(perDirection)));
+
+        assertThat(walletService.getById(first).getBalance()).isEqualByComparingTo(expectedFirst);
+        assertThat(walletService.getById(second).getBalance()).isEqualByComparingTo(expectedSecond);
+
+        walletLedger.compact(first);
+        walletLedger.compact(second);
+        assertThat(walletRepository.findById(first).orElseThrow().getBalance()).isEqualByComparingTo(expectedFirst);
+        assertThat(walletRepository.findById(second).orElseThrow().getBalance()).isEqualByComparingTo(expectedSecond);
+    }
+
+    @Test
+    void adjustmentShouldWaitForOpenAppendsAndSetExactBalance() throws Exception {
+        User owner = new User();
+        owner.setTelegramUserId(System.nanoTime());
+        owner.setTelegramUsername("adjustment");
+        owner = userRepository.save(owner);
+        Currency usd = currencyRepository.findByCodeIgnoreCase("USD").orElseThrow();
+        Long walletId = createWallet(owner, usd, "Adjusted").getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<?> append = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                balanceUpdater.applyDelta(walletRepository.findById(walletId).orElseThrow(), new BigDecimal("10.00"),
+                        WalletLedgerEntrySource.ADJUSTMENT, null);
+                appended.countDown();
+                try {
+                    release.await(1, TimeUnit.MINUTES);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            appended.await(1, TimeUnit.MINUTES);
+            Future<?> adjustment = executor.submit(() -> transactionTemplate.executeWithoutResult(status ->
+                    balanceUpdater.setBalance(walletRepository.findById(walletId).orElseThrow(),
+                            new BigDecimal("500.00"))));
+            Thread.sleep(300);
+            assertThat(adjustment.isDone()).isFalse();
+
+            release.countDown();
+            append.get(1, TimeUnit.MINUTES);
+            adjustment.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(walletService.getById(walletId).getBalance()).isEqualByComparingTo("500.00");
+    }
+
+    @Test
+    void balanceBeforeHistoryStartShouldBeRejected() {
+        User owner = new User();
+        owner.setTelegramUserId(System.nanoTime());
+        owner.setTelegramUsername("history");
+        owner = userRepository.save(owner);
+        Currency usd = currencyRepository.findByCodeIgnoreCase("USD").orElseThrow();
+        OffsetDateTime beforeCreation = OffsetDateTime.now().minusDays(1);
+        Long walletId = createWallet(owner, usd, "History").getId();
+
+        assertThatThrownBy(() -> walletService.getBalanceAt(walletId, beforeCreation))
+                .isInstanceOf(WalletBalanceHistoryUnavailableException.class)
+                .hasMessageStartingWith("История баланса кошелька доступна начиная с");
+        assertThat(walletService.getBalanceAt(walletId, OffsetDateTime.now().plusSeconds(1)))
+                .isEqualByComparingTo("1000.00");
+    }
+
+    private Wallet createWallet(User owner, Currency currency, String name) {
+        Wallet wallet = new Wallet();
+        wallet.setName(name);
+        return walletService.create(owner.getId(), wallet, currency.getCode(), new BigDecimal("1000.00"));
+    }
+}